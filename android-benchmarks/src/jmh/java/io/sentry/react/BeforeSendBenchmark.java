@@ -0,0 +1,146 @@
+package io.sentry.react;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.sentry.SentryEvent;
+import io.sentry.protocol.Message;
+import io.sentry.protocol.SdkVersion;
+import io.sentry.protocol.SentryException;
+import io.sentry.protocol.SentryPackage;
+import io.sentry.protocol.SentryStackFrame;
+import io.sentry.protocol.SentryStackTrace;
+
+/**
+ * The beforeSend enrichment of JS events, before and after the merged SDK descriptor is precomputed,
+ * and the fingerprinting of events for deduplication.
+ * Each invocation enriches a new event, as the JS SDK sends a new SDK descriptor with every event;
+ * createEvent measures that part alone.
+ */
+@State(Scope.Benchmark)
+public class BeforeSendBenchmark {
+
+    private SdkVersion nativeSdk;
+    private RNSentryEventEnricher enricher;
+    private SentryEvent event;
+    private JSONObject serializedEvent;
+
+    @Setup
+    public void setUp() throws Exception {
+        nativeSdk = new SdkVersion("sentry.java.android", "5.5.1");
+        nativeSdk.addPackage("maven:io.sentry:sentry", "5.5.1");
+        nativeSdk.addPackage("maven:io.sentry:sentry-android-core", "5.5.1");
+        nativeSdk.addPackage("maven:io.sentry:sentry-android-ndk", "5.5.1");
+        for (String integration : Arrays.asList(
+                "UncaughtExceptionHandler", "ShutdownHook", "SendCachedEnvelope", "NdkIntegration",
+                "AnrIntegration", "ActivityLifecycle", "AppComponentsBreadcrumbs", "NetworkBreadcrumbs")) {
+            nativeSdk.addIntegration(integration);
+        }
+        enricher = new RNSentryEventEnricher(nativeSdk);
+        event = createEvent();
+        serializedEvent = new JSONObject(BenchmarkPayloads.event(1024));
+    }
+
+    @Benchmark
+    public SentryEvent createEvent() {
+        final SdkVersion jsSdk = new SdkVersion(RNSentryEventEnricher.JS_SDK_NAME, "3.2.9");
+        jsSdk.addPackage("npm:@sentry/react-native", "3.2.9");
+        for (String integration : Arrays.asList(
+                "InboundFilters", "FunctionToString", "Breadcrumbs", "LinkedErrors", "HttpContext",
+                "ReactNativeErrorHandlers", "Release", "EventOrigin", "SdkInfo", "ReactNativeInfo", "DeviceContext")) {
+            jsSdk.addIntegration(integration);
+        }
+
+        final SentryStackFrame frame = new SentryStackFrame();
+        frame.setFunction("onPress");
+        frame.setFilename("app:///index.bundle");
+        frame.setLineno(100);
+        final SentryStackTrace stacktrace = new SentryStackTrace();
+        stacktrace.setFrames(Arrays.asList(frame, frame, frame));
+        final SentryException exception = new SentryException();
+        exception.setType("TypeError");
+        exception.setValue("undefined is not a function");
+        exception.setStacktrace(stacktrace);
+        final Message message = new Message();
+        message.setMessage("undefined is not a function");
+
+        final SentryEvent event = new SentryEvent();
+        event.setSdk(jsSdk);
+        event.setExceptions(Arrays.asList(exception));
+        event.setMessage(message);
+        return event;
+    }
+
+    /**
+     * The enrichment as it was before RNSentryEventEnricher, adding the Android packages to every event.
+     */
+    @Benchmark
+    public SentryEvent enrichLegacy() {
+        final SentryEvent event = createEvent();
+        setEventOriginTag(event);
+        addPackages(event, nativeSdk);
+        return event;
+    }
+
+    @Benchmark
+    public SentryEvent enrich() {
+        final SentryEvent event = createEvent();
+        enricher.enrich(event);
+        return event;
+    }
+
+    @Benchmark
+    public long fingerprintEvent() {
+        return RNSentryDedupCache.fingerprint(event);
+    }
+
+    @Benchmark
+    public long fingerprintSerializedEvent() {
+        return RNSentryDedupCache.fingerprint(serializedEvent);
+    }
+
+    private static void setEventOriginTag(SentryEvent event) {
+        SdkVersion sdk = event.getSdk();
+        if (sdk != null) {
+            switch (sdk.getName()) {
+                case "sentry.native":
+                    event.setTag("event.origin", "android");
+                    event.setTag("event.environment", "native");
+                    break;
+                case "sentry.java.android":
+                    event.setTag("event.origin", "android");
+                    event.setTag("event.environment", "java");
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void addPackages(SentryEvent event, SdkVersion sdk) {
+        SdkVersion eventSdk = event.getSdk();
+        if (eventSdk != null && eventSdk.getName().equals("sentry.javascript.react-native") && sdk != null) {
+            List<SentryPackage> sentryPackages = sdk.getPackages();
+            if (sentryPackages != null) {
+                for (SentryPackage sentryPackage : sentryPackages) {
+                    eventSdk.addPackage(sentryPackage.getName(), sentryPackage.getVersion());
+                }
+            }
+
+            List<String> integrations = sdk.getIntegrations();
+            if (integrations != null) {
+                for (String integration : integrations) {
+                    eventSdk.addIntegration(integration);
+                }
+            }
+
+            event.setSdk(eventSdk);
+        }
+    }
+}
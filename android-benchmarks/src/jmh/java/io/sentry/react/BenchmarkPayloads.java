@@ -0,0 +1,44 @@
+package io.sentry.react;
+
+import java.util.Locale;
+
+/**
+ * Serialized payloads shaped like the events of the JS SDK.
+ */
+final class BenchmarkPayloads {
+
+    static final String ENVELOPE_HEADER =
+            "{\"event_id\":\"0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d\",\"sdk\":{\"name\":\"sentry.javascript.react-native\",\"version\":\"3.2.9\"}}";
+
+    private BenchmarkPayloads() {
+    }
+
+    /**
+     * Returns an event payload of about the given size in bytes, padded with breadcrumbs.
+     */
+    static String event(int size) {
+        final StringBuilder payload = new StringBuilder(size + 256);
+        payload.append("{\"event_id\":\"0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d\",\"level\":\"error\",")
+                .append("\"platform\":\"javascript\",\"message\":{\"message\":\"Benchmark \u2013 \u00fcn\u00efc\u00f6d\u00e9\"},")
+                .append("\"exception\":{\"values\":[{\"type\":\"TypeError\",\"value\":\"undefined is not a function\",")
+                .append("\"stacktrace\":{\"frames\":[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append(String.format(Locale.ROOT,
+                    "{\"function\":\"fn%d\",\"filename\":\"app:///index.bundle\",\"lineno\":%d,\"colno\":%d}",
+                    i, 100 + i, 10 + i));
+        }
+        payload.append("]}}]},\"breadcrumbs\":[");
+        for (int i = 0; payload.length() < size; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append(String.format(Locale.ROOT,
+                    "{\"timestamp\":%d,\"category\":\"navigation\",\"message\":\"Screen %d\",\"level\":\"info\"}",
+                    1640000000 + i, i));
+        }
+        return payload.append("]}").toString();
+    }
+}
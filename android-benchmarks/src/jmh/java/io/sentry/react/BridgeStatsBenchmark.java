@@ -0,0 +1,46 @@
+package io.sentry.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Map;
+
+/**
+ * The overhead the bridge stats add to every bridge method call, and reading them back.
+ */
+@State(Scope.Benchmark)
+public class BridgeStatsBenchmark {
+
+    private RNSentryBridgeStats stats;
+
+    @Setup
+    public void setUp() {
+        stats = new RNSentryBridgeStats();
+        for (String method : new String[] {"captureEnvelopes", "addBreadcrumb", "setUser", "fetchNativeFrames"}) {
+            stats.recordCall(method, System.nanoTime());
+        }
+    }
+
+    @Benchmark
+    public void recordCall() {
+        stats.recordCall("addBreadcrumb", System.nanoTime());
+    }
+
+    /**
+     * The native modules thread and the envelope writer thread record concurrently.
+     */
+    @Benchmark
+    @Threads(2)
+    public void recordCallContended() {
+        stats.recordCall("captureEnvelopes", System.nanoTime());
+        stats.recordBytesWritten("captureEnvelopes", 1024);
+    }
+
+    @Benchmark
+    public Map<String, long[]> fetchNativeStats() {
+        return stats.getStats();
+    }
+}
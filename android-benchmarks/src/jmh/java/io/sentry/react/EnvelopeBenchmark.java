@@ -0,0 +1,103 @@
+package io.sentry.react;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The captureSerializedEnvelope path, writing to a temporary outbox kept small by the outbox budget.
+ */
+@State(Scope.Benchmark)
+public class EnvelopeBenchmark {
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    /**
+     * Bytes on disk and envelopes written, to compare the size of compressed envelopes.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WrittenBytes {
+        public long bytes;
+        public long envelopes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            envelopes = 0;
+        }
+    }
+
+    private File outbox;
+    private String payload;
+    private RNSentryEnvelopeWriter writer;
+    private RNSentryOutboxBudget budget;
+    private RNSentryEnvelopeQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        outbox = Files.createTempDirectory("outbox").toFile();
+        payload = BenchmarkPayloads.event(payloadSize);
+        writer = new RNSentryEnvelopeWriter();
+        writer.setCompressionEnabled(compressed);
+        budget = new RNSentryOutboxBudget(
+                RNSentryOutboxBudget.DEFAULT_MAX_SIZE_BYTES, RNSentryOutboxBudget.DEFAULT_MAX_ENVELOPES);
+        // Blocks once full, so the throughput is the one the writer thread sustains.
+        queue = new RNSentryEnvelopeQueue(
+                writer, RNSentryEnvelopeQueue.DEFAULT_CAPACITY, RNSentryEnvelopeQueue.OverflowPolicy.BLOCK);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+        final File[] files = outbox.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        outbox.delete();
+    }
+
+    /**
+     * The work done on the native modules thread: queueing the envelope to be written.
+     */
+    @Benchmark
+    public boolean captureSerializedEnvelope() {
+        final RNSentryOutboxBudget.Priority priority = RNSentryOutboxBudget.Priority.ERROR;
+        return queue.enqueue(
+                RNSentryOutboxBudget.createFile(outbox.getPath(), priority),
+                (envelopeWriter, file) -> {
+                    envelopeWriter.write(file, BenchmarkPayloads.ENVELOPE_HEADER, "event", payload);
+                    budget.onWritten(file, priority);
+                },
+                false,
+                null);
+    }
+
+    /**
+     * The work done on the writer thread: encoding, optionally compressing, and writing one envelope.
+     */
+    @Benchmark
+    public void writeEnvelope(WrittenBytes written) throws IOException {
+        final RNSentryOutboxBudget.Priority priority = RNSentryOutboxBudget.Priority.ERROR;
+        final File file = RNSentryOutboxBudget.createFile(outbox.getPath(), priority);
+        writer.write(file, BenchmarkPayloads.ENVELOPE_HEADER, "event", payload);
+        written.bytes += file.length();
+        written.envelopes++;
+        budget.onWritten(file, priority);
+    }
+}
@@ -0,0 +1,66 @@
+package io.sentry.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting frames as they are rendered, and the fetchNativeFrames and frame snapshot reads.
+ * The conversion to a WritableMap needs the React Native runtime and is not included.
+ */
+@State(Scope.Benchmark)
+public class FramesBenchmark {
+
+    // A mix of fast, slow and frozen frame times.
+    private static final long[] FRAME_TIMES_NANOS = {
+            TimeUnit.MILLISECONDS.toNanos(8),
+            TimeUnit.MILLISECONDS.toNanos(12),
+            TimeUnit.MILLISECONDS.toNanos(16),
+            TimeUnit.MILLISECONDS.toNanos(24),
+            TimeUnit.MILLISECONDS.toNanos(40),
+            TimeUnit.MILLISECONDS.toNanos(120),
+            TimeUnit.MILLISECONDS.toNanos(800),
+            TimeUnit.MILLISECONDS.toNanos(10),
+    };
+
+    private RNSentryFrameCounter counter;
+    private AtomicLongArray activityCounters;
+    private int frame = 0;
+
+    @Setup
+    public void setUp() {
+        counter = new RNSentryFrameCounter(16, RNSentryFrameCounter.DEFAULT_FROZEN_FRAME_THRESHOLD_MS);
+        activityCounters = counter.getActivityCounters("io.sentry.sample.MainActivity");
+        for (int i = 0; i < 10000; i++) {
+            counter.onFrame(activityCounters, FRAME_TIMES_NANOS[i % FRAME_TIMES_NANOS.length]);
+        }
+    }
+
+    @Benchmark
+    public void onFrame() {
+        counter.onFrame(activityCounters, FRAME_TIMES_NANOS[frame++ & (FRAME_TIMES_NANOS.length - 1)]);
+    }
+
+    @Benchmark
+    public void fetchNativeFrames(Blackhole blackhole) {
+        final long[] frames = counter.getFrames();
+        blackhole.consume(frames);
+        blackhole.consume(RNSentryFrameCounter.getPercentile(frames, 0.5));
+        blackhole.consume(RNSentryFrameCounter.getPercentile(frames, 0.95));
+        blackhole.consume(RNSentryFrameCounter.getPercentile(frames, 0.99));
+        blackhole.consume(counter.getActivityFrames());
+    }
+
+    /**
+     * A transaction start and finish.
+     */
+    @Benchmark
+    public long[] frameSnapshot() {
+        return counter.finishSnapshot(counter.startSnapshot());
+    }
+}
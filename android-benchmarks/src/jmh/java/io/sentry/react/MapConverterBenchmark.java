@@ -0,0 +1,62 @@
+package io.sentry.react;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.sentry.Breadcrumb;
+
+/**
+ * Converting breadcrumbs with large typed data payloads, as sent by network and navigation instrumentation.
+ */
+@State(Scope.Benchmark)
+public class MapConverterBenchmark {
+
+    // Number of data entries of the breadcrumb, each holding a nested map and array.
+    @Param({"10", "100", "500"})
+    public int dataEntries;
+
+    private ReadableMap breadcrumb;
+
+    @Setup
+    public void setUp() {
+        final Object[] data = new Object[dataEntries * 2];
+        for (int i = 0; i < dataEntries; i++) {
+            data[i * 2] = "key" + i;
+            switch (i % 4) {
+                case 0:
+                    data[i * 2 + 1] = "https://example.com/api/items/" + i;
+                    break;
+                case 1:
+                    data[i * 2 + 1] = (double) i;
+                    break;
+                case 2:
+                    data[i * 2 + 1] = i % 3 == 0;
+                    break;
+                default:
+                    data[i * 2 + 1] = JavaOnlyMap.of(
+                            "status", 200d,
+                            "headers", JavaOnlyMap.of("content-type", "application/json", "content-length", 512d),
+                            "timings", JavaOnlyArray.of(1.5, 12.25, 40d));
+                    break;
+            }
+        }
+        breadcrumb = JavaOnlyMap.of(
+                "message", "GET /api/items",
+                "category", "xhr",
+                "type", "http",
+                "level", "info",
+                "data", JavaOnlyMap.of(data));
+    }
+
+    @Benchmark
+    public Breadcrumb toBreadcrumb() {
+        return RNSentryMapConverter.toBreadcrumb(breadcrumb);
+    }
+}
@@ -0,0 +1,118 @@
+package io.sentry.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import io.sentry.EnvelopeReader;
+import io.sentry.IEnvelopeReader;
+import io.sentry.SentryEnvelope;
+
+/**
+ * Getting an envelope to the Android SDK through its own outbox file against through the outbox log,
+ * with and without forcing it to disk.
+ * Both include reading the envelope back: the file as OutboxSender reads and deletes it,
+ * the log by handing over its completed segments every SEGMENT_HANDOVER_INTERVAL appends,
+ * as the reader thread does, counted against the appends.
+ */
+@State(Scope.Benchmark)
+public class OutboxLogBenchmark {
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    private static final int SEGMENT_HANDOVER_INTERVAL = 64;
+
+    private File directory;
+    private File outbox;
+    private String payload;
+    private RNSentryEnvelopeWriter writer;
+    private RNSentryOutboxBudget budget;
+    private RNSentryOutboxLog log;
+    private IEnvelopeReader envelopeReader;
+    private long appends = 0;
+    private long handedOver = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("outbox-log").toFile();
+        outbox = Files.createTempDirectory("outbox").toFile();
+        payload = BenchmarkPayloads.event(payloadSize);
+        writer = new RNSentryEnvelopeWriter();
+        budget = new RNSentryOutboxBudget(
+                RNSentryOutboxBudget.DEFAULT_MAX_SIZE_BYTES, RNSentryOutboxBudget.DEFAULT_MAX_ENVELOPES);
+        log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        envelopeReader = new RNSentryEnvelopeReader(new EnvelopeReader());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        log.close();
+        delete(directory);
+        delete(outbox);
+    }
+
+    @Benchmark
+    public SentryEnvelope filePerEnvelope() throws IOException {
+        final RNSentryOutboxBudget.Priority priority = RNSentryOutboxBudget.Priority.ERROR;
+        final File file = RNSentryOutboxBudget.createFile(outbox.getPath(), priority);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            writer.write(out, BenchmarkPayloads.ENVELOPE_HEADER, "event", payload);
+            if (fsync) {
+                out.getFD().sync();
+            }
+        }
+        budget.onWritten(file, priority);
+
+        final SentryEnvelope envelope;
+        try (InputStream in = new FileInputStream(file)) {
+            envelope = envelopeReader.read(in);
+        }
+        file.delete();
+        return envelope;
+    }
+
+    @Benchmark
+    public long outboxLog() throws IOException {
+        final long size = log.append(
+                RNSentryOutboxBudget.Priority.ERROR.ordinal(),
+                fsync,
+                out -> writer.write(out, BenchmarkPayloads.ENVELOPE_HEADER, "event", payload));
+        // Listing the segments on each append would outweigh it.
+        if (++appends % SEGMENT_HANDOVER_INTERVAL == 0) {
+            log.rotate();
+            for (File segment : log.getCompletedSegments()) {
+                RNSentryOutboxLogReader.handOver(segment, envelopeReader, envelope -> {
+                    handedOver++;
+                    return true;
+                });
+                segment.delete();
+            }
+        }
+        return size;
+    }
+
+    private static void delete(File directory) {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,75 @@
+package io.sentry.react;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.sentry.Breadcrumb;
+
+import io.sentry.SentryOptions;
+
+/**
+ * The addBreadcrumb and setUser bridge methods, from the maps sent by the JS SDK to the native scope,
+ * and mirroring breadcrumbs into the persisted breadcrumb ring.
+ */
+@State(Scope.Benchmark)
+public class ScopeBenchmark {
+
+    private io.sentry.Scope scope;
+    private ReadableMap breadcrumb;
+    private ReadableMap user;
+    private ReadableMap otherUserKeys;
+    private File ringFile;
+    private RNSentryBreadcrumbRing ring;
+    private Breadcrumb convertedBreadcrumb;
+
+    @Setup
+    public void setUp() throws IOException {
+        scope = new io.sentry.Scope(new SentryOptions());
+        breadcrumb = JavaOnlyMap.of(
+                "message", "Navigated to Home",
+                "category", "navigation",
+                "type", "navigation",
+                "level", "info",
+                "data", JavaOnlyMap.of("from", "Login", "to", "Home", "params", "{\"id\":1}"));
+        user = JavaOnlyMap.of(
+                "id", "1234",
+                "email", "user@example.com",
+                "username", "user",
+                "ip_address", "{{auto}}");
+        otherUserKeys = JavaOnlyMap.of("plan", "pro", "segment", "beta");
+
+        ringFile = File.createTempFile("breadcrumbs", null);
+        ring = RNSentryBreadcrumbRing.open(ringFile, 100, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE);
+        convertedBreadcrumb = RNSentryMapConverter.toBreadcrumb(breadcrumb);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ring.close();
+        ringFile.delete();
+    }
+
+    @Benchmark
+    public void addBreadcrumb() {
+        scope.addBreadcrumb(RNSentryMapConverter.toBreadcrumb(breadcrumb));
+    }
+
+    @Benchmark
+    public void appendPersistedBreadcrumb() {
+        ring.append(convertedBreadcrumb);
+    }
+
+    @Benchmark
+    public void setUser() {
+        scope.setUser(RNSentryMapConverter.toUser(user, otherUserKeys));
+    }
+}
@@ -0,0 +1,19 @@
+package com.facebook.react.bridge;
+
+/**
+ * Stand-in for the React Native bridge factory, creating in-memory maps and arrays
+ * instead of the native ones.
+ */
+public final class Arguments {
+
+    private Arguments() {
+    }
+
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return JavaOnlyArray.of();
+    }
+}
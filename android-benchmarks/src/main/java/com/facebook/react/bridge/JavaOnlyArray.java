@@ -0,0 +1,131 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * In-memory WritableArray, as the one of React Native used in its own JVM tests.
+ */
+public class JavaOnlyArray implements WritableArray {
+
+    private final List<Object> backingList;
+
+    public static JavaOnlyArray of(Object... values) {
+        return new JavaOnlyArray(Arrays.asList(values));
+    }
+
+    private JavaOnlyArray(List<Object> values) {
+        this.backingList = new ArrayList<>(values);
+    }
+
+    @Override
+    public int size() {
+        return backingList.size();
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return backingList.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return (Boolean) backingList.get(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) backingList.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) backingList.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) backingList.get(index);
+    }
+
+    @Override
+    public ReadableArray getArray(int index) {
+        return (ReadableArray) backingList.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(int index) {
+        return (ReadableMap) backingList.get(index);
+    }
+
+    @Override
+    public ReadableType getType(int index) {
+        return typeOf(backingList.get(index));
+    }
+
+    @Override
+    public void pushNull() {
+        backingList.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushArray(ReadableArray array) {
+        backingList.add(array);
+    }
+
+    @Override
+    public void pushMap(ReadableMap map) {
+        backingList.add(map);
+    }
+
+    @Override
+    public ArrayList<Object> toArrayList() {
+        final ArrayList<Object> list = new ArrayList<>();
+        for (Object value : backingList) {
+            list.add(toJava(value));
+        }
+        return list;
+    }
+
+    static ReadableType typeOf(Object value) {
+        if (value == null) {
+            return ReadableType.Null;
+        } else if (value instanceof Boolean) {
+            return ReadableType.Boolean;
+        } else if (value instanceof Number) {
+            return ReadableType.Number;
+        } else if (value instanceof String) {
+            return ReadableType.String;
+        } else if (value instanceof ReadableMap) {
+            return ReadableType.Map;
+        } else if (value instanceof ReadableArray) {
+            return ReadableType.Array;
+        }
+        throw new IllegalArgumentException("Unsupported bridge value: " + value.getClass());
+    }
+
+    static Object toJava(Object value) {
+        if (value instanceof ReadableMap) {
+            return ((ReadableMap) value).toHashMap();
+        } else if (value instanceof ReadableArray) {
+            return ((ReadableArray) value).toArrayList();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,122 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory WritableMap, as the one of React Native used in its own JVM tests.
+ */
+public class JavaOnlyMap implements WritableMap {
+
+    private final Map<String, Object> backingMap = new LinkedHashMap<>();
+
+    public static JavaOnlyMap of(Object... keysAndValues) {
+        final JavaOnlyMap map = new JavaOnlyMap();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.backingMap.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Override
+    public boolean hasKey(String name) {
+        return backingMap.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return backingMap.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) backingMap.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return ((Number) backingMap.get(name)).doubleValue();
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Number) backingMap.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableArray getArray(String name) {
+        return (ReadableArray) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableMap getMap(String name) {
+        return (ReadableMap) backingMap.get(name);
+    }
+
+    @Override
+    public ReadableType getType(String name) {
+        return JavaOnlyArray.typeOf(backingMap.get(name));
+    }
+
+    @Override
+    public ReadableMapKeySetIterator keySetIterator() {
+        final Iterator<String> keys = backingMap.keySet().iterator();
+        return new ReadableMapKeySetIterator() {
+            @Override
+            public boolean hasNextKey() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public String nextKey() {
+                return keys.next();
+            }
+        };
+    }
+
+    @Override
+    public void putNull(String key) {
+        backingMap.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, ReadableArray value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, ReadableMap value) {
+        backingMap.put(key, value);
+    }
+
+    @Override
+    public HashMap<String, Object> toHashMap() {
+        final HashMap<String, Object> map = new HashMap<>();
+        for (Map.Entry<String, Object> entry : backingMap.entrySet()) {
+            map.put(entry.getKey(), JavaOnlyArray.toJava(entry.getValue()));
+        }
+        return map;
+    }
+}
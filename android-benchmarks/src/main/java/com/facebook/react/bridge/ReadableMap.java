@@ -0,0 +1,32 @@
+package com.facebook.react.bridge;
+
+import java.util.HashMap;
+
+/**
+ * Stand-in for the React Native bridge interface, to run the module code on a plain JVM.
+ * Only declares the methods the module code uses.
+ */
+public interface ReadableMap {
+
+    boolean hasKey(String name);
+
+    boolean isNull(String name);
+
+    boolean getBoolean(String name);
+
+    double getDouble(String name);
+
+    int getInt(String name);
+
+    String getString(String name);
+
+    ReadableArray getArray(String name);
+
+    ReadableMap getMap(String name);
+
+    ReadableType getType(String name);
+
+    ReadableMapKeySetIterator keySetIterator();
+
+    HashMap<String, Object> toHashMap();
+}
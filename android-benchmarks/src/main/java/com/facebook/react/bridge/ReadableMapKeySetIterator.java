@@ -0,0 +1,11 @@
+package com.facebook.react.bridge;
+
+/**
+ * Stand-in for the React Native bridge interface, to run the module code on a plain JVM.
+ */
+public interface ReadableMapKeySetIterator {
+
+    boolean hasNextKey();
+
+    String nextKey();
+}
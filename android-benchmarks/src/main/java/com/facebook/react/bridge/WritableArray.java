@@ -0,0 +1,20 @@
+package com.facebook.react.bridge;
+
+/**
+ * Stand-in for the React Native bridge interface, to run the module code on a plain JVM.
+ * Only declares the methods the module code uses.
+ */
+public interface WritableArray extends ReadableArray {
+
+    void pushNull();
+
+    void pushBoolean(boolean value);
+
+    void pushDouble(double value);
+
+    void pushString(String value);
+
+    void pushArray(ReadableArray array);
+
+    void pushMap(ReadableMap map);
+}
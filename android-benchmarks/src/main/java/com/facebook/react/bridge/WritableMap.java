@@ -0,0 +1,20 @@
+package com.facebook.react.bridge;
+
+/**
+ * Stand-in for the React Native bridge interface, to run the module code on a plain JVM.
+ * Only declares the methods the module code uses.
+ */
+public interface WritableMap extends ReadableMap {
+
+    void putNull(String key);
+
+    void putBoolean(String key, boolean value);
+
+    void putDouble(String key, double value);
+
+    void putString(String key, String value);
+
+    void putArray(String key, ReadableArray value);
+
+    void putMap(String key, ReadableMap value);
+}
@@ -0,0 +1,50 @@
+package io.sentry.react;
+
+import android.app.Application;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+/**
+ * Installs the app start hooks of RNSentryAppStartTracker. Content providers are created as the process starts,
+ * on the main thread, right before Application.onCreate is called, and need no setup from the app.
+ * It doesn't provide any content.
+ */
+public final class RNSentryAppStartProvider extends ContentProvider {
+
+    @Override
+    public boolean onCreate() {
+        final Context context = getContext();
+        if (context != null && context.getApplicationContext() instanceof Application) {
+            RNSentryAppStartTracker.getInstance().install((Application) context.getApplicationContext());
+        }
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return 0;
+    }
+}
@@ -0,0 +1,208 @@
+package io.sentry.react;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.facebook.react.bridge.ReactMarker;
+import com.facebook.react.bridge.ReactMarkerConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the timestamps of the phases of a cold app start, from hooks installed by RNSentryAppStartProvider
+ * as the process starts: process start, Application.onCreate, React context creation, JS bundle load,
+ * and the first frame of the first activity.
+ * Timestamps are taken on the monotonic elapsed realtime clock, and only converted to wall clock time when read.
+ *
+ * The application_on_create phase starts as the provider is created, not as Application.onCreate is called:
+ * it also includes the creation of the content providers with a lower init order, such as the ones of other
+ * libraries initializing themselves, which run in between.
+ *
+ * The hooks remove themselves once the first frame is drawn and the JS bundle is loaded,
+ * or right away with uninstall if app start tracking is off, after which the tracker does nothing.
+ * Apps can also leave the provider out of their manifest, the phases are then not returned.
+ */
+final class RNSentryAppStartTracker implements ReactMarker.MarkerListener, Application.ActivityLifecycleCallbacks {
+
+    private static final int PROCESS_START = 0;
+    private static final int APPLICATION_ON_CREATE_START = 1;
+    private static final int APPLICATION_ON_CREATE_END = 2;
+    private static final int REACT_CONTEXT_START = 3;
+    private static final int REACT_CONTEXT_END = 4;
+    private static final int JS_BUNDLE_START = 5;
+    private static final int JS_BUNDLE_END = 6;
+    private static final int FIRST_ACTIVITY_CREATED = 7;
+    private static final int FIRST_FRAME = 8;
+    private static final int SIZE = 9;
+
+    /** A phase of the app start, with its start and end in ms since the epoch. */
+    static final class Phase {
+        final String op;
+        final String description;
+        final double startTimestampMs;
+        final double endTimestampMs;
+
+        Phase(String op, String description, double startTimestampMs, double endTimestampMs) {
+            this.op = op;
+            this.description = description;
+            this.startTimestampMs = startTimestampMs;
+            this.endTimestampMs = endTimestampMs;
+        }
+    }
+
+    private static final RNSentryAppStartTracker instance = new RNSentryAppStartTracker();
+
+    // Elapsed realtime in ms of each timestamp, 0 until recorded. Only the first occurrence is kept.
+    private final AtomicLongArray timestamps = new AtomicLongArray(SIZE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Guarded by this.
+    private Application application = null;
+    private volatile boolean isUninstalled = false;
+
+    private RNSentryAppStartTracker() {
+    }
+
+    static RNSentryAppStartTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * Installs the hooks, to be called on the main thread before Application.onCreate.
+     */
+    synchronized void install(Application application) {
+        if (isUninstalled || this.application != null) {
+            return;
+        }
+        record(APPLICATION_ON_CREATE_START);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            timestamps.compareAndSet(PROCESS_START, 0, Process.getStartElapsedRealtime());
+        }
+
+        // Runs once the message binding the application, which calls Application.onCreate, is done.
+        mainHandler.postAtFrontOfQueue(() -> record(APPLICATION_ON_CREATE_END));
+
+        this.application = application;
+        application.registerActivityLifecycleCallbacks(this);
+        ReactMarker.addListener(this);
+    }
+
+    /**
+     * Removes the hooks left and stops recording, for when the app start is not tracked.
+     */
+    synchronized void uninstall() {
+        if (isUninstalled) {
+            return;
+        }
+        isUninstalled = true;
+        // Removed from the main thread, as the markers and lifecycle callbacks are dispatched from it.
+        mainHandler.post(() -> {
+            ReactMarker.removeListener(this);
+            unregisterActivityLifecycleCallbacks();
+        });
+    }
+
+    /**
+     * Returns the phases recorded with both their start and end, in the order they started.
+     */
+    List<Phase> getPhases() {
+        // A single offset, so the durations stay the ones measured on the monotonic clock.
+        final long epochOffsetMs = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        final List<Phase> phases = new ArrayList<>();
+        addPhase(phases, epochOffsetMs, "app.start.process_init", "Process Initialization",
+                PROCESS_START, APPLICATION_ON_CREATE_START);
+        addPhase(phases, epochOffsetMs, "app.start.application_on_create", "Application.onCreate",
+                APPLICATION_ON_CREATE_START, APPLICATION_ON_CREATE_END);
+        addPhase(phases, epochOffsetMs, "app.start.react_context", "React Context Creation",
+                REACT_CONTEXT_START, REACT_CONTEXT_END);
+        addPhase(phases, epochOffsetMs, "app.start.js_bundle", "JS Bundle Load",
+                JS_BUNDLE_START, JS_BUNDLE_END);
+        addPhase(phases, epochOffsetMs, "app.start.first_frame", "First Frame",
+                FIRST_ACTIVITY_CREATED, FIRST_FRAME);
+        return phases;
+    }
+
+    @Override
+    public void logMarker(ReactMarkerConstants name, String tag, int instanceKey) {
+        switch (name) {
+            case CREATE_REACT_CONTEXT_START:
+                record(REACT_CONTEXT_START);
+                break;
+            case CREATE_REACT_CONTEXT_END:
+                record(REACT_CONTEXT_END);
+                break;
+            case RUN_JS_BUNDLE_START:
+                record(JS_BUNDLE_START);
+                break;
+            case RUN_JS_BUNDLE_END:
+                record(JS_BUNDLE_END);
+                // Markers keep coming for the whole life of the app, later ones are of no interest.
+                // Removed from the main thread, as the markers are being dispatched to this listener.
+                mainHandler.post(() -> ReactMarker.removeListener(this));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        record(FIRST_ACTIVITY_CREATED);
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos -> record(FIRST_FRAME));
+        unregisterActivityLifecycleCallbacks();
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    private synchronized void unregisterActivityLifecycleCallbacks() {
+        if (application != null) {
+            application.unregisterActivityLifecycleCallbacks(this);
+            application = null;
+        }
+    }
+
+    private void record(int index) {
+        if (isUninstalled) {
+            return;
+        }
+        timestamps.compareAndSet(index, 0, SystemClock.elapsedRealtime());
+    }
+
+    private void addPhase(List<Phase> phases, long epochOffsetMs, String op, String description, int start, int end) {
+        final long startMs = timestamps.get(start);
+        final long endMs = timestamps.get(end);
+        if (startMs > 0 && endMs >= startMs) {
+            phases.add(new Phase(op, description, startMs + epochOffsetMs, endMs + epochOffsetMs));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.sentry.react;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A file attached to an envelope by reference, streamed into the envelope by RNSentryEnvelopeWriter
+ * on the writer thread, so its content never goes through the bridge or sits in memory.
+ */
+final class RNSentryAttachment {
+
+    /** Where the content of the attachment is read from. */
+    interface Source {
+        /**
+         * Returns the size of the content in bytes, or -1 if unknown.
+         */
+        long size() throws IOException;
+
+        InputStream open() throws IOException;
+    }
+
+    final String filename;
+    // Null to leave it to Sentry.
+    final String contentType;
+    final Source source;
+
+    RNSentryAttachment(String filename, String contentType, Source source) {
+        this.filename = filename;
+        this.contentType = contentType;
+        this.source = source;
+    }
+
+    static Source fileSource(File file) {
+        return new Source() {
+            @Override
+            public long size() {
+                return file.isFile() ? file.length() : -1;
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+}
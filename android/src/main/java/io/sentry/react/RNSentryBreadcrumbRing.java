@@ -0,0 +1,419 @@
+package io.sentry.react;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.sentry.Breadcrumb;
+import io.sentry.SentryLevel;
+
+/**
+ * Mirrors the breadcrumbs of the native scope into a fixed-size memory-mapped file, so the last breadcrumbs
+ * can be recovered after the process died, without persisting the whole scope on every breadcrumb.
+ * The file holds a header followed by fixed-size slots, one per breadcrumb, overwritten oldest first.
+ * An append encodes the breadcrumb straight into its slot and costs the same whatever the number of breadcrumbs.
+ * Each slot starts with its sequence number, which is cleared before the slot is written and set once it is complete,
+ * so a slot torn by the process dying in the middle of an append is skipped on recovery.
+ * The mapping is never forced: the OS writes the pages back once the process died,
+ * but the last breadcrumbs are lost on a power loss or a crash of the OS.
+ * Data values are written tagged with their type, so numbers, booleans, maps and lists are recovered as such.
+ * Strings which don't fit in a slot are truncated, and the data entries which don't fit are left out.
+ */
+final class RNSentryBreadcrumbRing {
+
+    static final String FILE_NAME = "react-native-breadcrumbs";
+    static final int DEFAULT_SLOT_SIZE = 512;
+
+    private static final int MAGIC = 0x524e4243;
+    // 3 writes data values tagged with their type.
+    private static final int VERSION = 3;
+    // Magic, version, slot size and capacity.
+    private static final int HEADER_SIZE = 16;
+    // Sequence, timestamp and level.
+    private static final int SLOT_HEADER_SIZE = 8 + 8 + 1;
+    // Lengths of strings are written as shorts, -1 for null.
+    private static final int NULL_LENGTH = -1;
+    // Types of data values.
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_FALSE = 1;
+    private static final byte TYPE_TRUE = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_MAP = 6;
+    private static final byte TYPE_LIST = 7;
+    // Maps and lists nested deeper are written as their string.
+    private static final int MAX_DEPTH = 8;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int slotSize;
+    private final int capacity;
+    private final List<Breadcrumb> recovered;
+    private long nextSequence = 1;
+
+    private RNSentryBreadcrumbRing(RandomAccessFile file, MappedByteBuffer buffer, int slotSize, int capacity,
+                                   List<Breadcrumb> recovered) {
+        this.file = file;
+        this.buffer = buffer;
+        this.slotSize = slotSize;
+        this.capacity = capacity;
+        this.recovered = recovered;
+    }
+
+    /**
+     * Maps the ring file, recovering the breadcrumbs left in it by the previous process, and starts an empty ring.
+     */
+    static RNSentryBreadcrumbRing open(File path, int capacity, int slotSize) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            final long size = HEADER_SIZE + (long) capacity * slotSize;
+            final boolean hadFile = file.length() >= HEADER_SIZE;
+            final MappedByteBuffer buffer = file.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, Math.max(size, hadFile ? file.length() : 0));
+
+            final List<Breadcrumb> recovered = hadFile ? recover(buffer) : Collections.<Breadcrumb>emptyList();
+            final RNSentryBreadcrumbRing ring = new RNSentryBreadcrumbRing(file, buffer, slotSize, capacity, recovered);
+            ring.reset();
+            return ring;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the breadcrumbs the previous process left in the ring, oldest first.
+     */
+    List<Breadcrumb> getRecovered() {
+        return recovered;
+    }
+
+    synchronized void append(Breadcrumb breadcrumb) {
+        final int slot = HEADER_SIZE + (int) ((nextSequence - 1) % capacity) * slotSize;
+        final int end = slot + slotSize;
+        // Invalidates the slot until it is complete.
+        buffer.putLong(slot, 0);
+
+        buffer.putLong(slot + 8, breadcrumb.getTimestamp().getTime());
+        final SentryLevel level = breadcrumb.getLevel();
+        buffer.put(slot + 16, (byte) (level != null ? level.ordinal() + 1 : 0));
+
+        int position = slot + SLOT_HEADER_SIZE;
+        position = putString(position, end, breadcrumb.getCategory());
+        position = putString(position, end, breadcrumb.getType());
+        position = putString(position, end, breadcrumb.getMessage());
+
+        // The number of data entries is written once these are, as the last ones might not fit.
+        final int dataCountPosition = position;
+        position++;
+        int dataCount = 0;
+        final Map<String, Object> data = breadcrumb.getData();
+        if (data != null && position < end) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                if (dataCount == Byte.MAX_VALUE) {
+                    break;
+                }
+                final int keyEnd = putFullString(position, end, entry.getKey());
+                final int valueEnd = keyEnd >= 0 ? putValue(keyEnd, end, entry.getValue(), 0) : -1;
+                if (valueEnd < 0) {
+                    // Not counted, so the bytes written past the position are ignored.
+                    break;
+                }
+                position = valueEnd;
+                dataCount++;
+            }
+        }
+        if (dataCountPosition < end) {
+            buffer.put(dataCountPosition, (byte) dataCount);
+        }
+
+        buffer.putLong(slot, nextSequence++);
+    }
+
+    synchronized void clear() {
+        reset();
+    }
+
+    synchronized void close() {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // The mapping stays valid until it is garbage collected.
+        }
+    }
+
+    private void reset() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slotSize);
+        buffer.putInt(12, capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffer.putLong(HEADER_SIZE + i * slotSize, 0);
+        }
+        nextSequence = 1;
+    }
+
+    private static List<Breadcrumb> recover(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return Collections.emptyList();
+        }
+        final int slotSize = buffer.getInt(8);
+        final int capacity = buffer.getInt(12);
+        if (slotSize <= SLOT_HEADER_SIZE || capacity <= 0
+                || HEADER_SIZE + (long) capacity * slotSize > buffer.capacity()) {
+            return Collections.emptyList();
+        }
+
+        final List<long[]> slots = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            final long sequence = buffer.getLong(HEADER_SIZE + i * slotSize);
+            if (sequence > 0) {
+                slots.add(new long[] {sequence, HEADER_SIZE + i * slotSize});
+            }
+        }
+        Collections.sort(slots, (a, b) -> Long.compare(a[0], b[0]));
+
+        final List<Breadcrumb> breadcrumbs = new ArrayList<>(slots.size());
+        for (long[] slot : slots) {
+            final Breadcrumb breadcrumb = readSlot(buffer, (int) slot[1], (int) slot[1] + slotSize);
+            if (breadcrumb != null) {
+                breadcrumbs.add(breadcrumb);
+            }
+        }
+        return breadcrumbs;
+    }
+
+    private static Breadcrumb readSlot(ByteBuffer buffer, int slot, int end) {
+        final Breadcrumb breadcrumb = new Breadcrumb(new Date(buffer.getLong(slot + 8)));
+        final int level = buffer.get(slot + 16);
+        if (level > 0 && level <= SentryLevel.values().length) {
+            breadcrumb.setLevel(SentryLevel.values()[level - 1]);
+        }
+
+        final int[] position = {slot + SLOT_HEADER_SIZE};
+        try {
+            breadcrumb.setCategory(getString(buffer, position, end));
+            breadcrumb.setType(getString(buffer, position, end));
+            breadcrumb.setMessage(getString(buffer, position, end));
+            final int dataCount = position[0] < end ? buffer.get(position[0]++) : 0;
+            for (int i = 0; i < dataCount; i++) {
+                final String key = getString(buffer, position, end);
+                final Object value = getValue(buffer, position, end);
+                // The data of a breadcrumb doesn't keep nulls.
+                if (key != null && value != null) {
+                    breadcrumb.setData(key, value);
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // A corrupted slot.
+            return null;
+        }
+        return breadcrumb;
+    }
+
+    /**
+     * Writes the string as its UTF-8 length followed by its bytes, truncated to what fits before the end.
+     * Returns the position after the string.
+     */
+    private int putString(int position, int end, String string) {
+        if (position + 2 > end) {
+            return end;
+        }
+        if (string == null) {
+            buffer.putShort(position, (short) NULL_LENGTH);
+            return position + 2;
+        }
+
+        final int start = position + 2;
+        final int limit = Math.min(end, start + Short.MAX_VALUE);
+        int index = start;
+        final int count = string.length();
+        for (int i = 0; i < count; i++) {
+            int codePoint = string.charAt(i);
+            if (Character.isHighSurrogate((char) codePoint) && i + 1 < count
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                codePoint = Character.toCodePoint((char) codePoint, string.charAt(i + 1));
+            } else if (Character.isSurrogate((char) codePoint)) {
+                codePoint = '?';
+            }
+            final int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            // Truncates before a character which does not fit, never in the middle of it.
+            if (index + length > limit) {
+                break;
+            }
+            if (length == 1) {
+                buffer.put(index++, (byte) codePoint);
+            } else if (length == 2) {
+                buffer.put(index++, (byte) (0xc0 | codePoint >> 6));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3f));
+            } else if (length == 3) {
+                buffer.put(index++, (byte) (0xe0 | codePoint >> 12));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3f));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3f));
+            } else {
+                buffer.put(index++, (byte) (0xf0 | codePoint >> 18));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 12 & 0x3f));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3f));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3f));
+                i++;
+            }
+        }
+        buffer.putShort(position, (short) (index - start));
+        return index;
+    }
+
+    private static String getString(ByteBuffer buffer, int[] position, int end) {
+        if (position[0] + 2 > end) {
+            return null;
+        }
+        final int length = buffer.getShort(position[0]);
+        position[0] += 2;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || position[0] + length > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position[0] + i);
+        }
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the value tagged with its type, maps and lists with their entries, values without a type as their string.
+     * Returns the position after the value, or -1 if it does not fit before the end, as data values are not truncated.
+     */
+    private int putValue(int position, int end, Object value, int depth) {
+        if (position + 1 > end) {
+            return -1;
+        }
+        if (value == null) {
+            buffer.put(position, TYPE_NULL);
+            return position + 1;
+        } else if (value instanceof Boolean) {
+            buffer.put(position, (Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            return position + 1;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            if (position + 9 > end) {
+                return -1;
+            }
+            buffer.put(position, TYPE_LONG);
+            buffer.putLong(position + 1, ((Number) value).longValue());
+            return position + 9;
+        } else if (value instanceof Number) {
+            if (position + 9 > end) {
+                return -1;
+            }
+            buffer.put(position, TYPE_DOUBLE);
+            buffer.putDouble(position + 1, ((Number) value).doubleValue());
+            return position + 9;
+        } else if (value instanceof Map && depth < MAX_DEPTH) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            if (position + 3 > end || map.size() > Short.MAX_VALUE) {
+                return -1;
+            }
+            buffer.put(position, TYPE_MAP);
+            buffer.putShort(position + 1, (short) map.size());
+            position += 3;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                position = putFullString(position, end, String.valueOf(entry.getKey()));
+                if (position < 0) {
+                    return -1;
+                }
+                position = putValue(position, end, entry.getValue(), depth + 1);
+                if (position < 0) {
+                    return -1;
+                }
+            }
+            return position;
+        } else if (value instanceof Collection && depth < MAX_DEPTH) {
+            final Collection<?> list = (Collection<?>) value;
+            if (position + 3 > end || list.size() > Short.MAX_VALUE) {
+                return -1;
+            }
+            buffer.put(position, TYPE_LIST);
+            buffer.putShort(position + 1, (short) list.size());
+            position += 3;
+            for (Object item : list) {
+                position = putValue(position, end, item, depth + 1);
+                if (position < 0) {
+                    return -1;
+                }
+            }
+            return position;
+        }
+        buffer.put(position, TYPE_STRING);
+        return putFullString(position + 1, end, value.toString());
+    }
+
+    /**
+     * Same as putString, returning -1 instead of truncating a string which does not fit.
+     */
+    private int putFullString(int position, int end, String string) {
+        final long length = RNSentryEnvelopeWriter.utf8Length(string);
+        if (length > Short.MAX_VALUE || position + 2 + length > end) {
+            return -1;
+        }
+        return putString(position, end, string);
+    }
+
+    private static Object getValue(ByteBuffer buffer, int[] position, int end) {
+        if (position[0] + 1 > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        final byte type = buffer.get(position[0]++);
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_FALSE:
+                return false;
+            case TYPE_TRUE:
+                return true;
+            case TYPE_LONG:
+                position[0] += 8;
+                return buffer.getLong(position[0] - 8);
+            case TYPE_DOUBLE:
+                position[0] += 8;
+                return buffer.getDouble(position[0] - 8);
+            case TYPE_STRING:
+                return getString(buffer, position, end);
+            case TYPE_MAP: {
+                final int count = buffer.getShort(position[0]);
+                position[0] += 2;
+                final Map<String, Object> map = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    final String key = getString(buffer, position, end);
+                    map.put(key, getValue(buffer, position, end));
+                }
+                return map;
+            }
+            case TYPE_LIST: {
+                final int count = buffer.getShort(position[0]);
+                position[0] += 2;
+                final List<Object> list = new ArrayList<>(Math.max(0, count));
+                for (int i = 0; i < count; i++) {
+                    list.add(getValue(buffer, position, end));
+                }
+                return list;
+            }
+            default:
+                throw new IndexOutOfBoundsException();
+        }
+    }
+}
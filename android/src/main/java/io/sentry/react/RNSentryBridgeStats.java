@@ -0,0 +1,139 @@
+package io.sentry.react;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the calls, time spent, bytes written and failures of each bridge method,
+ * so the overhead of the SDK itself can be monitored in the field.
+ * Recording is lock-free: each method has a fixed array of atomic counters, created once on its first call.
+ * Call times are also counted in a bucketed histogram, from which percentiles are computed.
+ * The durations of the phases of the native SDK initialization are kept alongside.
+ */
+final class RNSentryBridgeStats {
+
+    /**
+     * Upper bounds in microseconds of the call time histogram buckets.
+     * The last bucket counts the calls slower than the last bound.
+     */
+    static final int[] HISTOGRAM_BOUNDS_US = {
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000
+    };
+
+    // Indexes of the counters in the returned stats arrays.
+    static final int CALLS = 0;
+    static final int FAILURES = 1;
+    static final int TIME_NANOS = 2;
+    static final int BYTES_WRITTEN = 3;
+    // The histogram bucket counts follow the four counters.
+    static final int HISTOGRAM = 4;
+    private static final int SIZE = HISTOGRAM + HISTOGRAM_BOUNDS_US.length + 1;
+
+    private static final long[] HISTOGRAM_BOUNDS_NANOS = new long[HISTOGRAM_BOUNDS_US.length];
+
+    static {
+        for (int i = 0; i < HISTOGRAM_BOUNDS_US.length; i++) {
+            HISTOGRAM_BOUNDS_NANOS[i] = TimeUnit.MICROSECONDS.toNanos(HISTOGRAM_BOUNDS_US[i]);
+        }
+    }
+
+    private final ConcurrentHashMap<String, AtomicLongArray> methods = new ConcurrentHashMap<>();
+    // In the order the phases were first recorded, the last initialization overwrites the previous one.
+    private final Map<String, Long> initPhases = new LinkedHashMap<>();
+
+    /**
+     * Records a call of the method which started at the given System.nanoTime().
+     */
+    void recordCall(String method, long startNanos) {
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final AtomicLongArray counters = getCounters(method);
+        counters.incrementAndGet(CALLS);
+        counters.addAndGet(TIME_NANOS, elapsedNanos);
+
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BOUNDS_NANOS.length && elapsedNanos > HISTOGRAM_BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        counters.incrementAndGet(HISTOGRAM + bucket);
+    }
+
+    void recordFailure(String method) {
+        getCounters(method).incrementAndGet(FAILURES);
+    }
+
+    void recordBytesWritten(String method, long bytes) {
+        getCounters(method).addAndGet(BYTES_WRITTEN, bytes);
+    }
+
+    void recordInitPhase(String phase, long durationNanos) {
+        synchronized (initPhases) {
+            initPhases.put(phase, durationNanos);
+        }
+    }
+
+    /**
+     * Returns the duration in nanoseconds of each initialization phase recorded so far.
+     */
+    Map<String, Long> getInitPhases() {
+        synchronized (initPhases) {
+            return new LinkedHashMap<>(initPhases);
+        }
+    }
+
+    /**
+     * Returns the stats of each method called so far,
+     * indexed by CALLS, FAILURES, TIME_NANOS, BYTES_WRITTEN followed by the histogram bucket counts.
+     */
+    Map<String, long[]> getStats() {
+        final Map<String, long[]> stats = new HashMap<>();
+        for (Map.Entry<String, AtomicLongArray> entry : methods.entrySet()) {
+            final AtomicLongArray counters = entry.getValue();
+            final long[] methodStats = new long[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                methodStats[i] = counters.get(i);
+            }
+            stats.put(entry.getKey(), methodStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the upper bound in microseconds of the histogram bucket holding the given percentile of the calls,
+     * or 0 if there are no calls.
+     */
+    static int getPercentile(long[] stats, double percentile) {
+        long total = 0;
+        for (int i = HISTOGRAM; i < SIZE; i++) {
+            total += stats[i];
+        }
+        if (total <= 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile);
+        long count = 0;
+        for (int i = 0; i < HISTOGRAM_BOUNDS_US.length; i++) {
+            count += stats[HISTOGRAM + i];
+            if (count >= rank) {
+                return HISTOGRAM_BOUNDS_US[i];
+            }
+        }
+        return HISTOGRAM_BOUNDS_US[HISTOGRAM_BOUNDS_US.length - 1];
+    }
+
+    private AtomicLongArray getCounters(String method) {
+        AtomicLongArray counters = methods.get(method);
+        if (counters == null) {
+            counters = new AtomicLongArray(SIZE);
+            final AtomicLongArray existing = methods.putIfAbsent(method, counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,95 @@
+package io.sentry.react;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Feeds frames to a RNSentryFrameCounter from Choreographer frame callbacks, where frame metrics are not available.
+ * The time of a frame is the time between the vsyncs of two consecutive callbacks,
+ * so a frame which misses vsyncs is as long as the vsyncs it missed.
+ * A callback is posted for every vsync while a window is tracked, but only the vsyncs after which a tracked window
+ * was drawn are counted, idle vsyncs are not frames. Windows are tracked while their activity is resumed.
+ */
+final class RNSentryChoreographerFrameCallback implements Choreographer.FrameCallback, ViewTreeObserver.OnDrawListener {
+
+    private final RNSentryFrameCounter counter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed on the main thread, which Choreographer.getInstance() must be called on.
+    private final Map<View, Boolean> decorViews = new WeakHashMap<>();
+    private boolean isRunning = false;
+    private boolean hasDrawn = false;
+    private long lastFrameTimeNanos = 0;
+    private AtomicLongArray activityCounts = null;
+
+    RNSentryChoreographerFrameCallback(RNSentryFrameCounter counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Starts counting the frames drawn by the window of the given decor view, to the given activity counters
+     * from now on.
+     */
+    void track(View decorView, AtomicLongArray activityCounts) {
+        mainHandler.post(() -> {
+            if (!decorViews.containsKey(decorView)) {
+                decorViews.put(decorView, Boolean.TRUE);
+                decorView.getViewTreeObserver().addOnDrawListener(this);
+            }
+            this.activityCounts = activityCounts;
+            if (!isRunning) {
+                isRunning = true;
+                hasDrawn = false;
+                lastFrameTimeNanos = 0;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        });
+    }
+
+    /**
+     * Stops counting the frames drawn by the window of the given decor view, and stops posting callbacks
+     * once no window is tracked.
+     */
+    void untrack(View decorView) {
+        mainHandler.post(() -> {
+            if (decorViews.remove(decorView) == null) {
+                return;
+            }
+            final ViewTreeObserver observer = decorView.getViewTreeObserver();
+            if (observer.isAlive()) {
+                observer.removeOnDrawListener(this);
+            }
+            if (decorViews.isEmpty() && isRunning) {
+                isRunning = false;
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+        });
+    }
+
+    @Override
+    public void onDraw() {
+        hasDrawn = true;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!isRunning) {
+            return;
+        }
+        // Frame callbacks run before the traversal of their frame, so a draw since the last callback
+        // belongs to the frame which started at its vsync.
+        if (hasDrawn && lastFrameTimeNanos > 0 && activityCounts != null) {
+            counter.onFrame(activityCounts, frameTimeNanos - lastFrameTimeNanos);
+        }
+        hasDrawn = false;
+        lastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,194 @@
+package io.sentry.react;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.SentryEvent;
+import io.sentry.protocol.Message;
+import io.sentry.protocol.SentryException;
+import io.sentry.protocol.SentryStackFrame;
+import io.sentry.protocol.SentryStackTrace;
+
+/**
+ * Collapses events which repeat within a time window into a single event with an occurrence count.
+ * Events are fingerprinted by their exception type, top frames and message. Only the 64-bit fingerprints are kept,
+ * in a fixed number of entries evicted least recently seen first, so the cache has a fixed memory cap.
+ */
+final class RNSentryDedupCache {
+
+    static final long DEFAULT_WINDOW_MS = 30000;
+    static final int DEFAULT_MAX_ENTRIES = 100;
+    // The occurrences collapsed into a kept event are set as this extra.
+    static final String OCCURRENCES_EXTRA = "occurrences";
+
+    // The innermost frames are the ones telling repeats apart.
+    private static final int TOP_FRAMES = 5;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final class Entry {
+        final long keptAtNanos;
+        long suppressed = 0;
+
+        Entry(long keptAtNanos) {
+            this.keptAtNanos = keptAtNanos;
+        }
+    }
+
+    private final long windowNanos;
+    private final Map<Long, Entry> entries;
+    private long totalSuppressed = 0;
+
+    RNSentryDedupCache(long windowMillis, final int maxEntries) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Records an occurrence of the fingerprint.
+     *
+     * @return 0 if the event repeats one kept within the window and should be dropped, otherwise the occurrences
+     *     the kept event stands for: itself and the repeats dropped since the previous event with this fingerprint.
+     */
+    synchronized long record(long fingerprint) {
+        final long now = System.nanoTime();
+        final Entry entry = entries.get(fingerprint);
+        if (entry != null && now - entry.keptAtNanos < windowNanos) {
+            entry.suppressed++;
+            totalSuppressed++;
+            return 0;
+        }
+
+        entries.put(fingerprint, new Entry(now));
+        return entry != null ? entry.suppressed + 1 : 1;
+    }
+
+    /**
+     * Records an occurrence of an event serialized by the JS SDK, as it is captured over the bridge.
+     *
+     * @return null if the event repeats one kept within the window, otherwise the payload to write,
+     *     with the occurrences it stands for as an extra if there were repeats.
+     */
+    String collapse(String payload) throws JSONException {
+        final JSONObject event = new JSONObject(payload);
+        final long occurrences = record(fingerprint(event));
+        if (occurrences == 0) {
+            return null;
+        } else if (occurrences == 1) {
+            return payload;
+        }
+
+        JSONObject extra = event.optJSONObject("extra");
+        if (extra == null) {
+            extra = new JSONObject();
+            event.put("extra", extra);
+        }
+        extra.put(OCCURRENCES_EXTRA, occurrences);
+        return event.toString();
+    }
+
+    synchronized long getSuppressedCount() {
+        return totalSuppressed;
+    }
+
+    static long fingerprint(SentryEvent event) {
+        long hash = FNV_OFFSET_BASIS;
+
+        final List<SentryException> exceptions = event.getExceptions();
+        if (exceptions != null && !exceptions.isEmpty()) {
+            final SentryException exception = exceptions.get(0);
+            hash = hash(hash, exception.getType());
+            hash = hash(hash, exception.getValue());
+
+            final SentryStackTrace stacktrace = exception.getStacktrace();
+            final List<SentryStackFrame> frames = stacktrace != null ? stacktrace.getFrames() : null;
+            if (frames != null) {
+                // Frames are ordered oldest first.
+                for (int i = frames.size() - 1; i >= Math.max(0, frames.size() - TOP_FRAMES); i--) {
+                    final SentryStackFrame frame = frames.get(i);
+                    hash = hash(hash, frame.getModule());
+                    hash = hash(hash, frame.getFunction());
+                    hash = hash(hash, frame.getFilename());
+                    hash = hash(hash, frame.getLineno() != null ? String.valueOf(frame.getLineno()) : null);
+                }
+            }
+        }
+
+        final Message message = event.getMessage();
+        if (message != null) {
+            hash = hash(hash, message.getFormatted() != null ? message.getFormatted() : message.getMessage());
+        }
+        return hash;
+    }
+
+    /**
+     * Same as fingerprint(SentryEvent), for an event serialized by the JS SDK.
+     */
+    static long fingerprint(JSONObject event) {
+        long hash = FNV_OFFSET_BASIS;
+
+        final JSONObject exceptionInterface = event.optJSONObject("exception");
+        final JSONArray exceptions = exceptionInterface != null ? exceptionInterface.optJSONArray("values") : null;
+        final JSONObject exception = exceptions != null ? exceptions.optJSONObject(0) : null;
+        if (exception != null) {
+            hash = hash(hash, optString(exception, "type"));
+            hash = hash(hash, optString(exception, "value"));
+
+            final JSONObject stacktrace = exception.optJSONObject("stacktrace");
+            final JSONArray frames = stacktrace != null ? stacktrace.optJSONArray("frames") : null;
+            if (frames != null) {
+                for (int i = frames.length() - 1; i >= Math.max(0, frames.length() - TOP_FRAMES); i--) {
+                    final JSONObject frame = frames.optJSONObject(i);
+                    if (frame == null) {
+                        continue;
+                    }
+                    hash = hash(hash, optString(frame, "module"));
+                    hash = hash(hash, optString(frame, "function"));
+                    hash = hash(hash, optString(frame, "filename"));
+                    hash = hash(hash, optString(frame, "lineno"));
+                }
+            }
+        }
+
+        // The JS SDK sends the message as a message interface, or as a string.
+        if (!event.isNull("message")) {
+            final JSONObject message = event.optJSONObject("message");
+            if (message == null) {
+                hash = hash(hash, optString(event, "message"));
+            } else {
+                hash = hash(hash, !message.isNull("formatted")
+                        ? optString(message, "formatted")
+                        : optString(message, "message"));
+            }
+        }
+        return hash;
+    }
+
+    private static String optString(JSONObject object, String key) {
+        return object.isNull(key) ? null : object.optString(key);
+    }
+
+    /**
+     * FNV-1a over the chars of the value, followed by a separator so that adjacent values can't run into each other.
+     */
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+}
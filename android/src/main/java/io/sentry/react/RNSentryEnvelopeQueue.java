@@ -0,0 +1,220 @@
+package io.sentry.react;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Writes envelopes to the outbox on a dedicated background thread,
+ * so slow disk writes never block the native modules thread.
+ * The queue is bounded and applies its overflow policy once full.
+ */
+final class RNSentryEnvelopeQueue {
+
+    // Same logger as RNSentryModule, without depending on the Android module class.
+    private static final Logger logger = Logger.getLogger("react-native-sentry");
+
+    static final int DEFAULT_CAPACITY = 100;
+
+    enum OverflowPolicy {
+        /** Drops the oldest queued envelope to make room for the new one. */
+        DROP_OLDEST,
+        /** Drops the new envelope. */
+        DROP_NEWEST,
+        /** Blocks the caller until there is room in the queue. */
+        BLOCK;
+
+        static OverflowPolicy fromString(String policy) {
+            if ("dropNewest".equals(policy)) {
+                return DROP_NEWEST;
+            }
+            if ("block".equals(policy)) {
+                return BLOCK;
+            }
+            return DROP_OLDEST;
+        }
+    }
+
+    /** Writes the envelope into the outbox file, which is null for envelopes appended to the outbox log. */
+    interface Write {
+        void writeTo(RNSentryEnvelopeWriter writer, File file) throws IOException;
+    }
+
+    /** Receives whether the envelope made it to disk, once it was written or dropped. */
+    interface Callback {
+        void onComplete(boolean written);
+    }
+
+    private final RNSentryEnvelopeWriter writer;
+    private final ThreadPoolExecutor executor;
+    private volatile Runnable onClosed = null;
+
+    RNSentryEnvelopeQueue(RNSentryEnvelopeWriter writer, int capacity, OverflowPolicy policy) {
+        this.writer = writer;
+        this.executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacity)),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "SentryReactNativeEnvelopeWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                createOverflowHandler(policy)) {
+            @Override
+            protected void terminated() {
+                final Runnable action = onClosed;
+                if (action != null) {
+                    action.run();
+                }
+            }
+        };
+    }
+
+    /**
+     * Queues the envelope to be written. Durable envelopes, the ones written as the app crashes,
+     * are never dropped to make room: the caller is blocked until there is room for them instead.
+     * Returns whether the envelope was accepted, the callback is called once it was written or dropped,
+     * also when it was not accepted.
+     */
+    boolean enqueue(File file, Write write, boolean isDurable, Callback callback) {
+        final Task task = new Task(file, write, isDurable, callback);
+        if (executor.isShutdown()) {
+            task.reject();
+            return false;
+        }
+        try {
+            executor.execute(task);
+        } catch (Throwable ignored) {
+            // Interrupted while waiting for room.
+            task.reject();
+        }
+        // Only the overflow handler rejects, within execute, so this isn't raced by the writer thread.
+        return !task.isRejected();
+    }
+
+    /**
+     * Writes the envelopes that are already queued and stops the writer thread.
+     * Envelopes enqueued from now on are rejected.
+     */
+    void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Same as close, then runs onClosed once the queued envelopes are written.
+     */
+    void close(Runnable onClosed) {
+        this.onClosed = onClosed;
+        executor.shutdown();
+    }
+
+    private static RejectedExecutionHandler createOverflowHandler(OverflowPolicy policy) {
+        return (runnable, executor) -> {
+            final Task task = (Task) runnable;
+            if (executor.isShutdown()) {
+                task.reject();
+                return;
+            }
+            if (task.isDurable || policy == OverflowPolicy.DROP_OLDEST) {
+                final Task oldest = pollOldestDroppable(executor);
+                if (oldest != null) {
+                    logger.warning("Envelope queue is full, dropping the oldest envelope.");
+                    oldest.complete(false);
+                    executor.execute(task);
+                    return;
+                }
+            }
+            if (task.isDurable || policy == OverflowPolicy.BLOCK) {
+                put(executor, task);
+                return;
+            }
+            logger.warning("Envelope queue is full, dropping an envelope.");
+            task.reject();
+        };
+    }
+
+    /**
+     * Removes the oldest queued envelope which isn't durable, returns null if all of them are.
+     */
+    private static Task pollOldestDroppable(ThreadPoolExecutor executor) {
+        for (Runnable queued : executor.getQueue()) {
+            if (!((Task) queued).isDurable && executor.getQueue().remove(queued)) {
+                return (Task) queued;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Blocks until there is room for the task in the queue.
+     */
+    private static void put(ThreadPoolExecutor executor, Task task) {
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.reject();
+            return;
+        }
+        // Shut down meanwhile, the writer thread might be gone already and never run it.
+        if (executor.isShutdown() && executor.getQueue().remove(task)) {
+            task.reject();
+        }
+    }
+
+    private final class Task implements Runnable {
+        private final File file;
+        private final Write write;
+        private final boolean isDurable;
+        private final Callback callback;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile boolean rejected = false;
+
+        Task(File file, Write write, boolean isDurable, Callback callback) {
+            this.file = file;
+            this.write = write;
+            this.isDurable = isDurable;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (completed.get()) {
+                return;
+            }
+            try {
+                write.writeTo(writer, file);
+                complete(true);
+            } catch (Throwable ignored) {
+                logger.severe("Error reading envelope");
+                complete(false);
+            }
+        }
+
+        boolean isRejected() {
+            return rejected;
+        }
+
+        /**
+         * Drops the envelope as it is enqueued.
+         */
+        void reject() {
+            rejected = true;
+            complete(false);
+        }
+
+        void complete(boolean written) {
+            if (completed.compareAndSet(false, true) && callback != null) {
+                callback.onComplete(written);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.sentry.react;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import io.sentry.IEnvelopeReader;
+import io.sentry.SentryEnvelope;
+
+/**
+ * Lets the Android SDK read the gzipped envelopes written to the outbox when compression is enabled.
+ * Envelopes which are not gzipped are handed to the wrapped reader as they are.
+ */
+final class RNSentryEnvelopeReader implements IEnvelopeReader {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private final IEnvelopeReader delegate;
+
+    RNSentryEnvelopeReader(IEnvelopeReader delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SentryEnvelope read(InputStream stream) throws IOException {
+        final InputStream buffered = stream.markSupported() ? stream : new BufferedInputStream(stream);
+
+        buffered.mark(2);
+        final int magic = buffered.read() | (buffered.read() << 8);
+        buffered.reset();
+
+        if (magic == GZIP_MAGIC) {
+            try (GZIPInputStream gzip = new GZIPInputStream(buffered)) {
+                return delegate.read(gzip);
+            }
+        }
+        return delegate.read(buffered);
+    }
+}
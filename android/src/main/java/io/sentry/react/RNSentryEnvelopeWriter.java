@@ -0,0 +1,258 @@
+package io.sentry.react;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes envelopes to outbox files, or to any stream such as a record of the outbox log.
+ * Strings are encoded to UTF-8 straight into the file through a reusable buffer,
+ * so no byte array the size of the envelope is ever allocated.
+ * When compression is enabled, the file is gzipped on the fly, see RNSentryEnvelopeReader.
+ * Attachments are streamed from their source through the same buffer, one chunk at a time.
+ */
+final class RNSentryEnvelopeWriter {
+
+    // Same logger as RNSentryModule.
+    private static final Logger logger = Logger.getLogger("react-native-sentry");
+
+    private static final int BUFFER_SIZE = 8192;
+    // The limits of Sentry for a single attachment and for all of the attachments of an event.
+    static final long DEFAULT_MAX_ATTACHMENT_SIZE = 20 * 1024 * 1024;
+    static final long DEFAULT_MAX_ENVELOPE_ATTACHMENTS_SIZE = 100 * 1024 * 1024;
+
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean compressionEnabled = false;
+    private long maxAttachmentSize = DEFAULT_MAX_ATTACHMENT_SIZE;
+    private long maxEnvelopeAttachmentsSize = DEFAULT_MAX_ENVELOPE_ATTACHMENTS_SIZE;
+
+    synchronized void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * Attachments larger than maxAttachmentSize, or which would take the attachments of an envelope
+     * over maxEnvelopeAttachmentsSize, are left out of the envelope.
+     */
+    synchronized void setAttachmentLimits(long maxAttachmentSize, long maxEnvelopeAttachmentsSize) {
+        this.maxAttachmentSize = maxAttachmentSize;
+        this.maxEnvelopeAttachmentsSize = maxEnvelopeAttachmentsSize;
+    }
+
+    /**
+     * Writes an envelope that has already been assembled on the JS side.
+     */
+    synchronized void write(File file, String envelope) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out, envelope);
+        }
+    }
+
+    /**
+     * Same as write(File, String), the stream is left open.
+     */
+    synchronized void write(OutputStream target, String envelope) throws IOException {
+        buffer.clear();
+        try (OutputStream out = wrap(target)) {
+            encode(envelope, out);
+            drain(out);
+        }
+    }
+
+    /**
+     * Assembles and writes a single item envelope.
+     * The item header is created here, as its length can only be known once the payload is UTF-8 encoded.
+     */
+    synchronized void write(File file, String header, String itemType, String payload) throws IOException {
+        write(file, header, itemType, payload, Collections.<RNSentryAttachment>emptyList());
+    }
+
+    /**
+     * Same as write(File, String, String, String), followed by an item for each of the attachments.
+     * Attachments which can't be read or are over the limits are left out.
+     */
+    synchronized void write(File file, String header, String itemType, String payload,
+                            List<RNSentryAttachment> attachments) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out, header, itemType, payload, attachments);
+        }
+    }
+
+    /**
+     * Same as write(File, String, String, String), the stream is left open.
+     */
+    synchronized void write(OutputStream target, String header, String itemType, String payload) throws IOException {
+        write(target, header, itemType, payload, Collections.<RNSentryAttachment>emptyList());
+    }
+
+    /**
+     * Same as write(File, String, String, String, List), the stream is left open.
+     */
+    synchronized void write(OutputStream target, String header, String itemType, String payload,
+                            List<RNSentryAttachment> attachments) throws IOException {
+        final String itemHeader = "{\"content_type\":\"application/json\",\"length\":"
+                + utf8Length(payload)
+                + ",\"type\":" + JSONObject.quote(itemType) + "}";
+
+        buffer.clear();
+        try (OutputStream out = wrap(target)) {
+            encode(header, out);
+            put((byte) '\n', out);
+            encode(itemHeader, out);
+            put((byte) '\n', out);
+            encode(payload, out);
+
+            long attachmentsSize = 0;
+            for (RNSentryAttachment attachment : attachments) {
+                attachmentsSize += writeAttachment(attachment, maxEnvelopeAttachmentsSize - attachmentsSize, out);
+            }
+            drain(out);
+        }
+    }
+
+    /**
+     * Writes the item of the attachment if it is readable and within the limits, returning its size.
+     */
+    private long writeAttachment(RNSentryAttachment attachment, long remainingSize, OutputStream out)
+            throws IOException {
+        final long size;
+        final InputStream in;
+        try {
+            size = attachment.source.size();
+            if (size < 0 || size > maxAttachmentSize || size > remainingSize) {
+                logger.warning("Attachment " + attachment.filename + " is of unknown size or over the size limits,"
+                        + " leaving it out of the envelope.");
+                return 0;
+            }
+            in = attachment.source.open();
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Error opening attachment " + attachment.filename + ", leaving it out of the envelope.");
+            return 0;
+        }
+
+        final String itemHeader = "{\"type\":\"attachment\",\"length\":" + size
+                + ",\"filename\":" + JSONObject.quote(attachment.filename)
+                + (attachment.contentType != null
+                        ? ",\"content_type\":" + JSONObject.quote(attachment.contentType)
+                        : "")
+                + "}";
+        try {
+            put((byte) '\n', out);
+            encode(itemHeader, out);
+            put((byte) '\n', out);
+            drain(out);
+            copy(in, size, out);
+        } finally {
+            in.close();
+        }
+        return size;
+    }
+
+    /**
+     * Copies exactly size bytes of the stream, in chunks of the buffer.
+     * If the source shrank since its size was taken, the rest is zero filled to keep the envelope well formed.
+     */
+    private void copy(InputStream in, long size, OutputStream out) throws IOException {
+        final byte[] chunk = buffer.array();
+        long remaining = size;
+        int read = 0;
+        while (remaining > 0 && (read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining))) != -1) {
+            out.write(chunk, 0, read);
+            remaining -= read;
+        }
+        if (remaining > 0) {
+            logger.warning("Attachment shrank while being written, filling in the missing bytes.");
+            Arrays.fill(chunk, (byte) 0);
+            while (remaining > 0) {
+                final int count = (int) Math.min(chunk.length, remaining);
+                out.write(chunk, 0, count);
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the string once encoded to UTF-8, without encoding it.
+     * Malformed surrogates count as one byte, as they are replaced by '?' when encoding.
+     */
+    static long utf8Length(String string) {
+        long length = 0;
+        final int count = string.length();
+        for (int i = 0; i < count; i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns a stream writing to the target, compressed if enabled, which leaves the target open once closed.
+     */
+    private OutputStream wrap(OutputStream target) throws IOException {
+        final OutputStream out = new FilterOutputStream(target) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return compressionEnabled ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    private void encode(String string, OutputStream out) throws IOException {
+        final CharBuffer chars = CharBuffer.wrap(string);
+
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain(out);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain(out);
+        }
+    }
+
+    private void put(byte b, OutputStream out) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain(out);
+        }
+        buffer.put(b);
+    }
+
+    private void drain(OutputStream out) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
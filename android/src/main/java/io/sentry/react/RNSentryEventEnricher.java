@@ -0,0 +1,142 @@
+package io.sentry.react;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.sentry.SentryEvent;
+import io.sentry.protocol.SdkVersion;
+import io.sentry.protocol.SentryPackage;
+
+/**
+ * Enriches the events going through beforeSend with their origin tags and, for JS events,
+ * the packages and integrations of the Android SDK added to their SDK descriptor.
+ * A JS event comes with its own descriptor, read from its envelope, so the native entries are added to it in place
+ * rather than to a copy, leaving out the ones it already has.
+ * The native entries are snapshotted once and only again when the Android SDK adds to its descriptor,
+ * such as when the NDK integration adds its package. As it never removes from it, the sizes of its lists
+ * tell whether it changed, without walking them on every event.
+ */
+final class RNSentryEventEnricher {
+
+    static final String JS_SDK_NAME = "sentry.javascript.react-native";
+
+    // SDK name to the `event.origin` and `event.environment` tags.
+    // Events from capacitor js get these set there, so these are not handled here.
+    private static final Map<String, String[]> ORIGIN_TAGS = new HashMap<>();
+
+    static {
+        ORIGIN_TAGS.put("sentry.native", new String[] {"android", "native"});
+        ORIGIN_TAGS.put("sentry.java.android", new String[] {"android", "java"});
+    }
+
+    /** The packages and integrations of the native descriptor, as of its last change. */
+    private static final class NativeEntries {
+        final int packageCount;
+        final int integrationCount;
+        final List<SentryPackage> packages;
+        final List<String> integrations;
+        // Packages as their name followed by their version.
+        final Set<String> packageKeys = new HashSet<>();
+        final Set<String> integrationNames;
+
+        NativeEntries(SdkVersion nativeSdk) {
+            this.packages = new ArrayList<>(orEmpty(nativeSdk.getPackages()));
+            this.integrations = new ArrayList<>(orEmpty(nativeSdk.getIntegrations()));
+            this.packageCount = packages.size();
+            this.integrationCount = integrations.size();
+            for (SentryPackage sentryPackage : packages) {
+                packageKeys.add(sentryPackage.getName() + "@" + sentryPackage.getVersion());
+            }
+            this.integrationNames = new HashSet<>(integrations);
+        }
+
+        boolean isCurrent(SdkVersion nativeSdk) {
+            return packageCount == orEmpty(nativeSdk.getPackages()).size()
+                    && integrationCount == orEmpty(nativeSdk.getIntegrations()).size();
+        }
+    }
+
+    private final SdkVersion nativeSdk;
+    // Guarded by this.
+    private NativeEntries nativeEntries = null;
+    // The last descriptor the native entries were added to, not added to again if an event shares it.
+    private SdkVersion lastEnrichedSdk = null;
+
+    /**
+     * @param nativeSdk the SDK descriptor of the Android SDK options, null if unknown.
+     */
+    RNSentryEventEnricher(SdkVersion nativeSdk) {
+        this.nativeSdk = nativeSdk;
+    }
+
+    void enrich(SentryEvent event) {
+        final SdkVersion sdk = event.getSdk();
+        if (sdk == null) {
+            return;
+        }
+
+        final String[] originTags = ORIGIN_TAGS.get(sdk.getName());
+        if (originTags != null) {
+            event.setTag("event.origin", originTags[0]);
+            event.setTag("event.environment", originTags[1]);
+        }
+
+        if (nativeSdk != null && JS_SDK_NAME.equals(sdk.getName())) {
+            addNativeEntries(sdk);
+        }
+    }
+
+    private synchronized void addNativeEntries(SdkVersion jsSdk) {
+        if (jsSdk == lastEnrichedSdk) {
+            return;
+        }
+        NativeEntries entries = nativeEntries;
+        if (entries == null || !entries.isCurrent(nativeSdk)) {
+            entries = new NativeEntries(nativeSdk);
+            nativeEntries = entries;
+        }
+        lastEnrichedSdk = jsSdk;
+
+        // The native entries the JS descriptor has too, which is rare, so only allocated if any.
+        Set<String> sharedPackages = null;
+        for (SentryPackage sentryPackage : orEmpty(jsSdk.getPackages())) {
+            final String key = sentryPackage.getName() + "@" + sentryPackage.getVersion();
+            if (entries.packageKeys.contains(key)) {
+                sharedPackages = add(sharedPackages, key);
+            }
+        }
+        Set<String> sharedIntegrations = null;
+        for (String integration : orEmpty(jsSdk.getIntegrations())) {
+            if (entries.integrationNames.contains(integration)) {
+                sharedIntegrations = add(sharedIntegrations, integration);
+            }
+        }
+
+        for (SentryPackage sentryPackage : entries.packages) {
+            if (sharedPackages == null
+                    || !sharedPackages.contains(sentryPackage.getName() + "@" + sentryPackage.getVersion())) {
+                jsSdk.addPackage(sentryPackage.getName(), sentryPackage.getVersion());
+            }
+        }
+        for (String integration : entries.integrations) {
+            if (sharedIntegrations == null || !sharedIntegrations.contains(integration)) {
+                jsSdk.addIntegration(integration);
+            }
+        }
+    }
+
+    private static Set<String> add(Set<String> set, String value) {
+        final Set<String> result = set != null ? set : new HashSet<String>();
+        result.add(value);
+        return result;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : Collections.<T>emptyList();
+    }
+}
@@ -0,0 +1,67 @@
+package io.sentry.react;
+
+import java.util.List;
+
+import io.sentry.SentryEvent;
+import io.sentry.protocol.SdkVersion;
+import io.sentry.protocol.SentryException;
+
+/**
+ * Decides in beforeSend whether an event is sent.
+ * Events of the JS SDK were already deduplicated and rate limited when they were captured over the bridge,
+ * and only reach beforeSend as the outbox is replayed, so only the events of the Android SDK are checked here.
+ */
+final class RNSentryEventFilter {
+
+    // Null when deduplication is disabled.
+    private final RNSentryDedupCache dedupCache;
+    private final RNSentryRateLimiter rateLimiter;
+
+    RNSentryEventFilter(RNSentryDedupCache dedupCache, RNSentryRateLimiter rateLimiter) {
+        this.dedupCache = dedupCache;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Returns the event to send, or null to drop it.
+     */
+    SentryEvent filter(SentryEvent event) {
+        // React native internally throws a JavascriptException
+        // Since we catch it before that, we don't want to send this one
+        // because we would send it twice
+        final List<SentryException> exceptions = event.getExceptions();
+        if (exceptions != null && !exceptions.isEmpty()) {
+            final SentryException ex = exceptions.get(0);
+            if (ex != null && ex.getType() != null && ex.getType().contains("JavascriptException")) {
+                return null;
+            }
+        }
+
+        if (isFromBridge(event)) {
+            return event;
+        }
+
+        if (dedupCache != null) {
+            final long occurrences = dedupCache.record(RNSentryDedupCache.fingerprint(event));
+            if (occurrences == 0) {
+                return null;
+            } else if (occurrences > 1) {
+                event.setExtra(RNSentryDedupCache.OCCURRENCES_EXTRA, occurrences);
+            }
+        }
+
+        // Crashes are always kept, these are the events the rate limits must not shed.
+        if (!event.isCrashed() && !rateLimiter.tryAcquire(RNSentryRateLimiter.CATEGORY_ERROR)) {
+            return null;
+        }
+        return event;
+    }
+
+    /**
+     * Returns whether the event was captured by the JS SDK and written to the outbox over the bridge.
+     */
+    static boolean isFromBridge(SentryEvent event) {
+        final SdkVersion sdk = event.getSdk();
+        return sdk != null && RNSentryEventEnricher.JS_SDK_NAME.equals(sdk.getName());
+    }
+}
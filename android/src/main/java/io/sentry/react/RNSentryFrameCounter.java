@@ -0,0 +1,211 @@
+package io.sentry.react;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts total, slow and frozen frames as they are rendered, so reading them is O(1).
+ * Snapshots record the counters at a point in time, so overlapping transactions
+ * can each get the frames rendered since their own start.
+ * Frame times are also counted in a bucketed histogram, from which percentiles are computed.
+ */
+final class RNSentryFrameCounter {
+
+    // 700ms to constitute frozen frames.
+    static final int DEFAULT_FROZEN_FRAME_THRESHOLD_MS = 700;
+    // 60fps, until the refresh rate of the display is known.
+    static final float DEFAULT_REFRESH_RATE = 60f;
+    // Snapshots of transactions which never finish are dropped, oldest first.
+    private static final int MAX_SNAPSHOTS = 100;
+
+    /**
+     * Upper bounds in ms of the frame time histogram buckets.
+     * The last bucket counts the frames slower than the last bound.
+     */
+    static final int[] HISTOGRAM_BOUNDS_MS = {
+            4, 8, 11, 16, 20, 25, 33, 50, 66, 100, 150, 250, 500, 700, 1000
+    };
+
+    // Indexes of the counters in the returned frames arrays.
+    static final int TOTAL = 0;
+    static final int SLOW = 1;
+    static final int FROZEN = 2;
+    // The histogram bucket counts follow the three counters.
+    static final int HISTOGRAM = 3;
+    private static final int SIZE = HISTOGRAM + HISTOGRAM_BOUNDS_MS.length + 1;
+
+    private final AtomicLongArray counters = new AtomicLongArray(SIZE);
+    // TOTAL, SLOW and FROZEN only, keyed by activity class name so they survive recreation.
+    private final ConcurrentHashMap<String, AtomicLongArray> activityCounters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextSnapshotId = new AtomicInteger();
+    private final Map<Integer, long[]> snapshots = new LinkedHashMap<Integer, long[]>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, long[]> eldest) {
+            return size() > MAX_SNAPSHOTS;
+        }
+    };
+
+    private volatile long slowFrameThresholdNanos;
+    private final long frozenFrameThresholdNanos;
+
+    RNSentryFrameCounter(double slowFrameThresholdMs, double frozenFrameThresholdMs) {
+        this.slowFrameThresholdNanos = millisToNanos(slowFrameThresholdMs);
+        this.frozenFrameThresholdNanos = millisToNanos(frozenFrameThresholdMs);
+    }
+
+    void setRefreshRate(float refreshRate) {
+        slowFrameThresholdNanos = frameBudgetNanos(refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE);
+    }
+
+    /**
+     * Returns the counters of the activity class, to be passed to onFrame.
+     */
+    AtomicLongArray getActivityCounters(String activityName) {
+        AtomicLongArray activityCounts = activityCounters.get(activityName);
+        if (activityCounts == null) {
+            activityCounts = new AtomicLongArray(HISTOGRAM);
+            final AtomicLongArray existing = activityCounters.putIfAbsent(activityName, activityCounts);
+            if (existing != null) {
+                activityCounts = existing;
+            }
+        }
+        return activityCounts;
+    }
+
+    void onFrame(AtomicLongArray activityCounts, long frameTimeNanos) {
+        counters.incrementAndGet(TOTAL);
+        activityCounts.incrementAndGet(TOTAL);
+        if (frameTimeNanos > frozenFrameThresholdNanos) {
+            counters.incrementAndGet(FROZEN);
+            activityCounts.incrementAndGet(FROZEN);
+        } else if (frameTimeNanos > slowFrameThresholdNanos) {
+            counters.incrementAndGet(SLOW);
+            activityCounts.incrementAndGet(SLOW);
+        }
+
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BOUNDS_MS.length && frameTimeNanos > millisToNanos(HISTOGRAM_BOUNDS_MS[bucket])) {
+            bucket++;
+        }
+        counters.incrementAndGet(HISTOGRAM + bucket);
+    }
+
+    /**
+     * Returns the frames rendered since the counter was created,
+     * indexed by TOTAL, SLOW, FROZEN followed by the histogram bucket counts.
+     */
+    long[] getFrames() {
+        final long[] frames = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            frames[i] = counters.get(i);
+        }
+        return frames;
+    }
+
+    /**
+     * Returns the frames rendered by each activity class, indexed by TOTAL, SLOW and FROZEN.
+     */
+    Map<String, long[]> getActivityFrames() {
+        final Map<String, long[]> frames = new HashMap<>();
+        for (Map.Entry<String, AtomicLongArray> entry : activityCounters.entrySet()) {
+            final AtomicLongArray activityCounts = entry.getValue();
+            frames.put(entry.getKey(), new long[] {
+                    activityCounts.get(TOTAL), activityCounts.get(SLOW), activityCounts.get(FROZEN)
+            });
+        }
+        return frames;
+    }
+
+    int startSnapshot() {
+        final int snapshotId = nextSnapshotId.incrementAndGet();
+        final long[] frames = getFrames();
+        synchronized (snapshots) {
+            snapshots.put(snapshotId, frames);
+        }
+        return snapshotId;
+    }
+
+    /**
+     * Returns the frames rendered since the snapshot was started, as getFrames does,
+     * or null if the snapshot does not exist.
+     */
+    long[] getSnapshotDelta(int snapshotId) {
+        final long[] start;
+        synchronized (snapshots) {
+            start = snapshots.get(snapshotId);
+        }
+        return delta(start);
+    }
+
+    /**
+     * Same as getSnapshotDelta, and discards the snapshot.
+     */
+    long[] finishSnapshot(int snapshotId) {
+        final long[] start;
+        synchronized (snapshots) {
+            start = snapshots.remove(snapshotId);
+        }
+        return delta(start);
+    }
+
+    /**
+     * Returns whether a snapshot is started and not finished, meaning a transaction is running.
+     */
+    boolean hasSnapshots() {
+        synchronized (snapshots) {
+            return !snapshots.isEmpty();
+        }
+    }
+
+    void clearSnapshots() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+    }
+
+    /**
+     * Returns the upper bound in ms of the histogram bucket holding the given percentile of the frames,
+     * or 0 if there are no frames.
+     */
+    static int getPercentile(long[] frames, double percentile) {
+        final long total = frames[TOTAL];
+        if (total <= 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile);
+        long count = 0;
+        for (int i = 0; i < HISTOGRAM_BOUNDS_MS.length; i++) {
+            count += frames[HISTOGRAM + i];
+            if (count >= rank) {
+                return HISTOGRAM_BOUNDS_MS[i];
+            }
+        }
+        return HISTOGRAM_BOUNDS_MS[HISTOGRAM_BOUNDS_MS.length - 1];
+    }
+
+    private static long frameBudgetNanos(float refreshRate) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
+    }
+
+    private long[] delta(long[] start) {
+        if (start == null) {
+            return null;
+        }
+        final long[] frames = getFrames();
+        for (int i = 0; i < SIZE; i++) {
+            frames[i] -= start[i];
+        }
+        return frames;
+    }
+
+    private static long millisToNanos(double millis) {
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,333 @@
+package io.sentry.react;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.View;
+import android.view.Window;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Feeds the frames rendered by the app to a RNSentryFrameCounter.
+ *
+ * Unless configured, the slow frame threshold is the frame budget of the display refresh rate,
+ * and follows the refresh rate when it changes.
+ *
+ * With frame metrics, every started activity is tracked through the activity lifecycle callbacks,
+ * and released once stopped, so recreated and secondary activities are counted too.
+ * Frames are also counted per activity class.
+ * Frame metrics are only available on API 24+, below that frames are counted from Choreographer frame callbacks
+ * while an activity is resumed, and attributed to the last resumed activity.
+ *
+ * If enabled, the main thread is also sampled for stalls longer than the frozen frame threshold,
+ * only while an activity is tracked and a frames snapshot, started by a transaction, is open.
+ */
+final class RNSentryFrameTracker implements Application.ActivityLifecycleCallbacks {
+
+    private final RNSentryFrameCounter counter;
+
+    // Derived from the refresh rate when not configured.
+    private final boolean isSlowFrameThresholdConfigured;
+    private final double frozenFrameThresholdMs;
+    private final boolean sampleStalls;
+    private final boolean useFrameMetrics = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N;
+
+    // Guarded by this, the lifecycle callbacks run on the main thread while start and stop do not.
+    private Application application = null;
+    private boolean isPaused = false;
+    private HandlerThread handlerThread = null;
+    private Handler handler = null;
+    private final Map<Activity, Window.OnFrameMetricsAvailableListener> listeners = new WeakHashMap<>();
+    // The resumed activities when frames come from Choreographer.
+    private final Map<Activity, Boolean> choreographerActivities = new WeakHashMap<>();
+    private RNSentryChoreographerFrameCallback choreographerCallback = null;
+    private RNSentryStallSampler stallSampler = null;
+    private DisplayManager displayManager = null;
+    private DisplayManager.DisplayListener displayListener = null;
+
+    /**
+     * @param slowFrameThresholdMs frames slower than this are slow, 0 to derive it from the refresh rate.
+     * @param frozenFrameThresholdMs frames slower than this are frozen.
+     * @param sampleStalls whether to sample the main thread stack when it stalls for longer than a frozen frame.
+     */
+    RNSentryFrameTracker(double slowFrameThresholdMs, double frozenFrameThresholdMs, boolean sampleStalls) {
+        this.isSlowFrameThresholdConfigured = slowFrameThresholdMs > 0;
+        this.frozenFrameThresholdMs = frozenFrameThresholdMs;
+        this.sampleStalls = sampleStalls;
+        this.counter = new RNSentryFrameCounter(
+                isSlowFrameThresholdConfigured
+                        ? slowFrameThresholdMs
+                        : 1000.0 / RNSentryFrameCounter.DEFAULT_REFRESH_RATE,
+                frozenFrameThresholdMs);
+    }
+
+    RNSentryFrameCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * Returns the stall sampler, or null if stalls are not sampled.
+     */
+    synchronized RNSentryStallSampler getStallSampler() {
+        return stallSampler;
+    }
+
+    /**
+     * Starts a frames snapshot of the counter, sampling stalls from now on until the last snapshot is finished.
+     */
+    synchronized int startSnapshot() {
+        final int snapshotId = counter.startSnapshot();
+        updateStallSampler();
+        return snapshotId;
+    }
+
+    /**
+     * Finishes a frames snapshot of the counter, stalls are no longer sampled once it was the last one.
+     */
+    synchronized long[] finishSnapshot(int snapshotId) {
+        final long[] frames = counter.finishSnapshot(snapshotId);
+        updateStallSampler();
+        return frames;
+    }
+
+    /**
+     * Starts counting the frames rendered by the current activity, if any, and by every activity started afterwards.
+     */
+    synchronized void start(Application application, Activity currentActivity) {
+        if (this.application != null) {
+            return;
+        }
+
+        handlerThread = new HandlerThread("SentryReactNativeFrameMetrics");
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+
+        if (!useFrameMetrics) {
+            choreographerCallback = new RNSentryChoreographerFrameCallback(counter);
+        }
+        if (sampleStalls) {
+            stallSampler = new RNSentryStallSampler(frozenFrameThresholdMs, handler);
+        }
+
+        // The display manager is only available on API 17+.
+        if (!isSlowFrameThresholdConfigured && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            displayManager = (DisplayManager) application.getSystemService(Context.DISPLAY_SERVICE);
+            final Display display = displayManager != null ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+            if (display != null) {
+                counter.setRefreshRate(display.getRefreshRate());
+
+                displayListener = new DisplayManager.DisplayListener() {
+                    @Override
+                    public void onDisplayAdded(int displayId) {
+                    }
+
+                    @Override
+                    public void onDisplayRemoved(int displayId) {
+                    }
+
+                    @Override
+                    public void onDisplayChanged(int displayId) {
+                        if (displayId == display.getDisplayId()) {
+                            counter.setRefreshRate(display.getRefreshRate());
+                        }
+                    }
+                };
+                displayManager.registerDisplayListener(displayListener, handler);
+            }
+        }
+
+        this.application = application;
+        application.registerActivityLifecycleCallbacks(this);
+
+        if (currentActivity != null) {
+            trackCurrent(currentActivity);
+        }
+    }
+
+    /**
+     * Stops counting frames until resumed, keeping the counters and snapshots.
+     * Resumes counting from the current activity, if any, and from every activity started afterwards.
+     */
+    synchronized void setPaused(boolean paused, Activity currentActivity) {
+        if (application == null || paused == isPaused) {
+            return;
+        }
+        isPaused = paused;
+        if (paused) {
+            application.unregisterActivityLifecycleCallbacks(this);
+            untrackAll();
+        } else {
+            application.registerActivityLifecycleCallbacks(this);
+            if (currentActivity != null) {
+                trackCurrent(currentActivity);
+            }
+        }
+    }
+
+    synchronized void stop() {
+        if (application != null) {
+            if (!isPaused) {
+                application.unregisterActivityLifecycleCallbacks(this);
+            }
+            application = null;
+        }
+        isPaused = false;
+        untrackAll();
+        choreographerCallback = null;
+        stallSampler = null;
+        if (displayManager != null && displayListener != null) {
+            displayManager.unregisterDisplayListener(displayListener);
+            displayManager = null;
+            displayListener = null;
+        }
+        if (handlerThread != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                handlerThread.quitSafely();
+            } else {
+                handlerThread.quit();
+            }
+            handlerThread = null;
+            handler = null;
+        }
+        counter.clearSnapshots();
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        if (useFrameMetrics) {
+            track(activity);
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        untrack(activity);
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        untrack(activity);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        if (!useFrameMetrics) {
+            track(activity);
+        }
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        if (!useFrameMetrics) {
+            untrack(activity);
+        }
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    /**
+     * Tracks the current activity, which without frame metrics is only tracked while shown,
+     * as its resume happened before the lifecycle callbacks were registered.
+     */
+    private synchronized void trackCurrent(Activity activity) {
+        if (!useFrameMetrics) {
+            final Window window = activity.getWindow();
+            final View decorView = window != null ? window.peekDecorView() : null;
+            if (decorView == null || !decorView.isShown()) {
+                return;
+            }
+        }
+        track(activity);
+    }
+
+    private synchronized void track(Activity activity) {
+        if (handler == null) {
+            return;
+        }
+
+        if (useFrameMetrics) {
+            trackFrameMetrics(activity);
+        } else if (!choreographerActivities.containsKey(activity)) {
+            choreographerActivities.put(activity, Boolean.TRUE);
+            choreographerCallback.track(
+                    activity.getWindow().getDecorView(), counter.getActivityCounters(activity.getClass().getName()));
+        }
+        updateStallSampler();
+    }
+
+    private synchronized void untrack(Activity activity) {
+        if (choreographerActivities.remove(activity) != null) {
+            // The decor view was created when tracked, and is kept for the lifetime of the window.
+            choreographerCallback.untrack(activity.getWindow().peekDecorView());
+        }
+        untrackFrameMetrics(activity);
+        updateStallSampler();
+    }
+
+    private void untrackAll() {
+        for (Activity activity : new ArrayList<>(listeners.keySet())) {
+            untrack(activity);
+        }
+        for (Activity activity : new ArrayList<>(choreographerActivities.keySet())) {
+            untrack(activity);
+        }
+    }
+
+    private void updateStallSampler() {
+        if (stallSampler != null) {
+            stallSampler.setActive(
+                    (!listeners.isEmpty() || !choreographerActivities.isEmpty()) && counter.hasSnapshots());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void trackFrameMetrics(Activity activity) {
+        if (listeners.containsKey(activity)) {
+            return;
+        }
+
+        final AtomicLongArray activityCounts = counter.getActivityCounters(activity.getClass().getName());
+        final Window.OnFrameMetricsAvailableListener listener = (frameWindow, frameMetrics, dropCountSinceLastInvocation) ->
+                counter.onFrame(activityCounts, frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        try {
+            activity.getWindow().addOnFrameMetricsAvailableListener(listener, handler);
+            listeners.put(activity, listener);
+        } catch (Throwable ignored) {
+            // throws ConcurrentModification when calling addOnFrameMetricsAvailableListener
+            // this is a best effort since we can't reproduce it
+            RNSentryModule.logger.warning("Error adding Activity to frameTracker.");
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void untrackFrameMetrics(Activity activity) {
+        final Window.OnFrameMetricsAvailableListener listener = listeners.remove(activity);
+        if (listener == null) {
+            return;
+        }
+
+        try {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+        } catch (Throwable ignored) {
+            // throws IllegalArgumentException if the listener was never added
+        }
+    }
+}
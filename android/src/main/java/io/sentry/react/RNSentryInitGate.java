@@ -0,0 +1,94 @@
+package io.sentry.react;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Holds back the bridge calls which need the native SDK while it is initialized in the background,
+ * and replays them in order once it is.
+ */
+final class RNSentryInitGate {
+
+    // Same logger as RNSentryModule.
+    private static final Logger logger = Logger.getLogger("react-native-sentry");
+
+    // Calls past this while the SDK is initialized are dropped, never run against the SDK being initialized.
+    static final int MAX_PENDING_CALLS = 100;
+
+    private final List<Runnable> pending = new ArrayList<>();
+    private boolean isOpen = true;
+    // The thread replaying the pending calls, which must go through.
+    private Thread replayingThread = null;
+
+    /**
+     * Holds back the calls from now on, until open is called.
+     */
+    synchronized void close() {
+        isOpen = false;
+    }
+
+    /**
+     * Same as defer, for calls without a promise to settle.
+     */
+    boolean defer(Runnable call) {
+        return defer(call, null);
+    }
+
+    /**
+     * Returns true if the call is held back to be replayed once the gate opens, or dropped,
+     * false if the caller should go ahead with it now.
+     * Once MAX_PENDING_CALLS are held back, the next calls are dropped until the gate opens,
+     * onDropped, if any, settling the promise of the call.
+     */
+    boolean defer(Runnable call, Runnable onDropped) {
+        synchronized (this) {
+            if (isOpen || Thread.currentThread() == replayingThread) {
+                return false;
+            }
+            if (pending.size() < MAX_PENDING_CALLS) {
+                pending.add(call);
+                return true;
+            }
+        }
+        logger.warning("Too many calls while the native SDK is initialized, dropping a call.");
+        if (onDropped != null) {
+            onDropped.run();
+        }
+        return true;
+    }
+
+    /**
+     * Replays the calls held back, on the calling thread, and lets the next ones through.
+     * Calls arriving during the replay are held back until it is done, so all run in order.
+     */
+    void open() {
+        synchronized (this) {
+            replayingThread = Thread.currentThread();
+        }
+        try {
+            while (true) {
+                final List<Runnable> calls;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        isOpen = true;
+                        return;
+                    }
+                    calls = new ArrayList<>(pending);
+                    pending.clear();
+                }
+                for (Runnable call : calls) {
+                    try {
+                        call.run();
+                    } catch (Throwable e) {
+                        logger.warning("Error replaying a call held back while the native SDK was initialized.");
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                replayingThread = null;
+            }
+        }
+    }
+}
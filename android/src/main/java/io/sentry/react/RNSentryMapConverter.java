@@ -0,0 +1,288 @@
+package io.sentry.react;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.sentry.Breadcrumb;
+import io.sentry.SentryLevel;
+import io.sentry.protocol.User;
+
+/**
+ * Converts the maps sent over the bridge by the JS SDK to their protocol types, and Java maps back to bridge maps.
+ * Values are converted by their type in a single pass: numbers, booleans, strings, maps and arrays,
+ * the integral numbers to longs as the JS SDK serializes them.
+ * Conversions are bounded, so a large payload can't exhaust the native heap: maps and arrays nested deeper
+ * than MAX_DEPTH are replaced by a placeholder, values past MAX_VALUES are dropped and strings are truncated.
+ */
+final class RNSentryMapConverter {
+
+    static final int MAX_DEPTH = 5;
+    // Values converted in total from one map, nested ones included.
+    static final int MAX_VALUES = 1000;
+    static final int MAX_STRING_LENGTH = 8192;
+
+    // Same placeholders as the normalization of the JS SDK.
+    private static final String MAP_PLACEHOLDER = "[Object]";
+    private static final String ARRAY_PLACEHOLDER = "[Array]";
+    // Largest long a double represents exactly.
+    private static final double MAX_SAFE_INTEGER = 9007199254740991d;
+
+    private static final class Budget {
+        int remainingValues = MAX_VALUES;
+
+        boolean take() {
+            return remainingValues-- > 0;
+        }
+    }
+
+    private RNSentryMapConverter() {
+    }
+
+    /**
+     * Returns the map converted to Java types, bounded by the conversion limits.
+     */
+    static Map<String, Object> toJava(ReadableMap map) {
+        return toJava(map, 1, new Budget());
+    }
+
+    /**
+     * Returns the map of Java types converted to a map for the bridge: numbers, booleans, strings, maps and lists,
+     * other values as their string.
+     */
+    static WritableMap toWritable(Map<String, Object> map) {
+        final WritableMap result = Arguments.createMap();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            putWritable(result, entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the user of the default and other user keys, or null if both are null to clear the user.
+     */
+    static User toUser(ReadableMap user, ReadableMap otherUserKeys) {
+        if (user == null && otherUserKeys == null) {
+            return null;
+        }
+
+        User userInstance = new User();
+
+        if (user != null) {
+            if (user.hasKey("email")) {
+                userInstance.setEmail(user.getString("email"));
+            }
+
+            if (user.hasKey("id")) {
+                userInstance.setId(user.getString("id"));
+            }
+
+            if (user.hasKey("username")) {
+                userInstance.setUsername(user.getString("username"));
+            }
+
+            if (user.hasKey("ip_address")) {
+                userInstance.setIpAddress(user.getString("ip_address"));
+            }
+        }
+
+        if (otherUserKeys != null) {
+            // The Android SDK only keeps strings as other user keys, these get the JSON of other values.
+            HashMap<String, String> otherUserKeysMap = new HashMap<String, String>();
+            final Budget budget = new Budget();
+            ReadableMapKeySetIterator it = otherUserKeys.keySetIterator();
+            while (it.hasNextKey() && budget.take()) {
+                String key = it.nextKey();
+                otherUserKeysMap.put(key, toJsonString(toJava(otherUserKeys, key, 1, budget)));
+            }
+
+            userInstance.setOthers(otherUserKeysMap);
+        }
+
+        return userInstance;
+    }
+
+    static Breadcrumb toBreadcrumb(ReadableMap breadcrumb) {
+        Breadcrumb breadcrumbInstance = new Breadcrumb();
+
+        if (breadcrumb.hasKey("message")) {
+            breadcrumbInstance.setMessage(breadcrumb.getString("message"));
+        }
+
+        if (breadcrumb.hasKey("type")) {
+            breadcrumbInstance.setType(breadcrumb.getString("type"));
+        }
+
+        if (breadcrumb.hasKey("category")) {
+            breadcrumbInstance.setCategory(breadcrumb.getString("category"));
+        }
+
+        if (breadcrumb.hasKey("level")) {
+            switch (breadcrumb.getString("level")) {
+                case "fatal":
+                    breadcrumbInstance.setLevel(SentryLevel.FATAL);
+                    break;
+                case "warning":
+                    breadcrumbInstance.setLevel(SentryLevel.WARNING);
+                    break;
+                case "info":
+                    breadcrumbInstance.setLevel(SentryLevel.INFO);
+                    break;
+                case "debug":
+                    breadcrumbInstance.setLevel(SentryLevel.DEBUG);
+                    break;
+                case "error":
+                    breadcrumbInstance.setLevel(SentryLevel.ERROR);
+                    break;
+                default:
+                    breadcrumbInstance.setLevel(SentryLevel.ERROR);
+                    break;
+            }
+        }
+
+        if (breadcrumb.hasKey("data") && !breadcrumb.isNull("data")) {
+            // Straight into the data of the breadcrumb, without an intermediate map.
+            ReadableMap data = breadcrumb.getMap("data");
+            final Budget budget = new Budget();
+            ReadableMapKeySetIterator it = data.keySetIterator();
+            while (it.hasNextKey() && budget.take()) {
+                String key = it.nextKey();
+                breadcrumbInstance.setData(key, toJava(data, key, 1, budget));
+            }
+        }
+
+        return breadcrumbInstance;
+    }
+
+    private static Map<String, Object> toJava(ReadableMap map, int depth, Budget budget) {
+        final Map<String, Object> result = new HashMap<>();
+        ReadableMapKeySetIterator it = map.keySetIterator();
+        while (it.hasNextKey() && budget.take()) {
+            String key = it.nextKey();
+            result.put(key, toJava(map, key, depth, budget));
+        }
+        return result;
+    }
+
+    private static List<Object> toJava(ReadableArray array, int depth, Budget budget) {
+        final int size = Math.min(array.size(), Math.max(0, budget.remainingValues));
+        final List<Object> result = new ArrayList<>(size);
+        for (int i = 0; i < size && budget.take(); i++) {
+            switch (array.getType(i)) {
+                case Boolean:
+                    result.add(array.getBoolean(i));
+                    break;
+                case Number:
+                    result.add(toNumber(array.getDouble(i)));
+                    break;
+                case String:
+                    result.add(truncate(array.getString(i)));
+                    break;
+                case Map:
+                    result.add(depth < MAX_DEPTH ? toJava(array.getMap(i), depth + 1, budget) : MAP_PLACEHOLDER);
+                    break;
+                case Array:
+                    result.add(depth < MAX_DEPTH ? toJava(array.getArray(i), depth + 1, budget) : ARRAY_PLACEHOLDER);
+                    break;
+                default:
+                    result.add(null);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts the value of the key in a map at the given depth.
+     */
+    private static Object toJava(ReadableMap map, String key, int depth, Budget budget) {
+        switch (map.getType(key)) {
+            case Boolean:
+                return map.getBoolean(key);
+            case Number:
+                return toNumber(map.getDouble(key));
+            case String:
+                return truncate(map.getString(key));
+            case Map:
+                return depth < MAX_DEPTH ? toJava(map.getMap(key), depth + 1, budget) : MAP_PLACEHOLDER;
+            case Array:
+                return depth < MAX_DEPTH ? toJava(map.getArray(key), depth + 1, budget) : ARRAY_PLACEHOLDER;
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putWritable(WritableMap map, String key, Object value) {
+        if (value == null) {
+            map.putNull(key);
+        } else if (value instanceof Boolean) {
+            map.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Number) {
+            map.putDouble(key, ((Number) value).doubleValue());
+        } else if (value instanceof Map) {
+            map.putMap(key, toWritable((Map<String, Object>) value));
+        } else if (value instanceof List) {
+            map.putArray(key, toWritable((List<Object>) value));
+        } else {
+            map.putString(key, value.toString());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WritableArray toWritable(List<Object> list) {
+        final WritableArray result = Arguments.createArray();
+        for (Object value : list) {
+            if (value == null) {
+                result.pushNull();
+            } else if (value instanceof Boolean) {
+                result.pushBoolean((Boolean) value);
+            } else if (value instanceof Number) {
+                result.pushDouble(((Number) value).doubleValue());
+            } else if (value instanceof Map) {
+                result.pushMap(toWritable((Map<String, Object>) value));
+            } else if (value instanceof List) {
+                result.pushArray(toWritable((List<Object>) value));
+            } else {
+                result.pushString(value.toString());
+            }
+        }
+        return result;
+    }
+
+    private static Object toNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) <= MAX_SAFE_INTEGER) {
+            return (long) value;
+        }
+        return value;
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > MAX_STRING_LENGTH ? value.substring(0, MAX_STRING_LENGTH) : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String toJsonString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Map) {
+            return new JSONObject((Map<String, Object>) value).toString();
+        }
+        if (value instanceof List) {
+            return new JSONArray((List<Object>) value).toString();
+        }
+        return String.valueOf(value);
+    }
+}
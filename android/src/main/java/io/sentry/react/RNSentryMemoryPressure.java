@@ -0,0 +1,236 @@
+package io.sentry.react;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.sentry.Breadcrumb;
+import io.sentry.HubAdapter;
+
+/**
+ * Degrades the SDK while the system reports memory pressure through onTrimMemory, each from its own trim level:
+ * trims the breadcrumbs of the native scope, pauses frame tracking and throttles envelope writes.
+ * The UI_HIDDEN and BACKGROUND levels only tell the app went to the background, which is not pressure.
+ * The system doesn't report when pressure eases, so the last trim level of the process is checked periodically
+ * while degraded, and full capability is restored once it drops below the configured levels.
+ */
+final class RNSentryMemoryPressure implements ComponentCallbacks2 {
+
+    /** Notified on the main thread when frame tracking should be paused or resumed. */
+    interface Listener {
+        void onPauseFramesTracking(boolean paused);
+    }
+
+    // Tag marking the events captured while degraded.
+    static final String LOW_MEMORY_TAG = "low_memory";
+    // Disables a degradation.
+    static final int LEVEL_NEVER = Integer.MAX_VALUE;
+    static final String DEFAULT_TRIM_BREADCRUMBS_LEVEL = "running_low";
+    static final String DEFAULT_PAUSE_FRAMES_TRACKING_LEVEL = "running_low";
+    static final String DEFAULT_THROTTLE_ENVELOPES_LEVEL = "running_critical";
+    // Breadcrumbs the native scope is trimmed down to.
+    static final int DEFAULT_MAX_BREADCRUMBS = 10;
+    // Envelopes other than errors written while throttled.
+    static final double DEFAULT_MAX_ENVELOPES_PER_SECOND = 1;
+    // How often the trim level is checked while degraded.
+    private static final long RECOVERY_CHECK_INTERVAL_MS = 30000;
+
+    private final int trimBreadcrumbsLevel;
+    private final int pauseFramesTrackingLevel;
+    private final int throttleEnvelopesLevel;
+    private final int maxBreadcrumbs;
+    private final RNSentryRateLimiter envelopeThrottle;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable recoveryCheck = this::checkRecovery;
+    private final Runnable trimBreadcrumbs = this::trimBreadcrumbs;
+
+    private volatile int level = 0;
+    private boolean isFramesTrackingPaused = false;
+    // The newest breadcrumbs of the native scope, which it is trimmed down to. Guarded by itself.
+    private final ArrayDeque<Breadcrumb> recentBreadcrumbs = new ArrayDeque<>();
+    private int breadcrumbsSinceTrim = 0;
+    // Set on the thread adding the breadcrumbs kept back to the scope while trimming it.
+    private final ThreadLocal<Boolean> isTrimming = new ThreadLocal<>();
+
+    RNSentryMemoryPressure(int trimBreadcrumbsLevel, int pauseFramesTrackingLevel, int throttleEnvelopesLevel,
+                           int maxBreadcrumbs, double maxEnvelopesPerSecond, Listener listener) {
+        this.trimBreadcrumbsLevel = trimBreadcrumbsLevel;
+        this.pauseFramesTrackingLevel = pauseFramesTrackingLevel;
+        this.throttleEnvelopesLevel = throttleEnvelopesLevel;
+        this.maxBreadcrumbs = Math.max(1, maxBreadcrumbs);
+        this.envelopeThrottle = new RNSentryRateLimiter();
+        for (String category : new String[] {
+                RNSentryRateLimiter.CATEGORY_TRANSACTION,
+                RNSentryRateLimiter.CATEGORY_SESSION,
+                RNSentryRateLimiter.CATEGORY_DEFAULT}) {
+            envelopeThrottle.limit(category, 1, maxEnvelopesPerSecond, maxEnvelopesPerSecond);
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the trim level of the name, LEVEL_NEVER for "never", or the one of the default name if unknown.
+     */
+    static int levelFromString(String name, String defaultName) {
+        final int level = name != null ? parseLevel(name) : -1;
+        return level != -1 ? level : parseLevel(defaultName);
+    }
+
+    private static int parseLevel(String name) {
+        switch (name) {
+            case "running_moderate":
+                return TRIM_MEMORY_RUNNING_MODERATE;
+            case "running_low":
+                return TRIM_MEMORY_RUNNING_LOW;
+            case "running_critical":
+                return TRIM_MEMORY_RUNNING_CRITICAL;
+            case "moderate":
+                return TRIM_MEMORY_MODERATE;
+            case "complete":
+                return TRIM_MEMORY_COMPLETE;
+            case "never":
+                return LEVEL_NEVER;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns whether any degradation is in effect, in which case events are marked as captured in low memory.
+     */
+    boolean isUnderPressure() {
+        final int current = level;
+        return current >= trimBreadcrumbsLevel || current >= pauseFramesTrackingLevel
+                || current >= throttleEnvelopesLevel;
+    }
+
+    /**
+     * Returns whether an envelope of the category should be written, always true unless throttled.
+     * Errors are never throttled.
+     */
+    boolean tryAcquireEnvelope(String category) {
+        return level < throttleEnvelopesLevel || envelopeThrottle.tryAcquire(category);
+    }
+
+    /**
+     * Returns the envelopes dropped while throttled so far.
+     */
+    long getThrottledCount() {
+        long count = 0;
+        for (long[] counts : envelopeThrottle.getDropCounts().values()) {
+            count += counts[1];
+        }
+        return count;
+    }
+
+    /**
+     * To be called from beforeBreadcrumb with every breadcrumb added to the native scope, all of which are kept.
+     * Returns false for the breadcrumbs added back while trimming the scope, which are not new.
+     * While trimmed, the scope is trimmed again each maxBreadcrumbs breadcrumbs, so it never holds twice as many.
+     */
+    boolean onBreadcrumb(Breadcrumb breadcrumb) {
+        if (isTrimming.get() != null) {
+            return false;
+        }
+        final boolean trim;
+        synchronized (recentBreadcrumbs) {
+            if (recentBreadcrumbs.size() >= maxBreadcrumbs) {
+                recentBreadcrumbs.removeFirst();
+            }
+            recentBreadcrumbs.addLast(breadcrumb);
+            trim = level >= trimBreadcrumbsLevel && ++breadcrumbsSinceTrim == maxBreadcrumbs;
+        }
+        if (trim) {
+            mainHandler.post(trimBreadcrumbs);
+        }
+        return true;
+    }
+
+    void close() {
+        mainHandler.removeCallbacks(recoveryCheck);
+        mainHandler.removeCallbacks(trimBreadcrumbs);
+    }
+
+    @Override
+    public void onTrimMemory(int trimLevel) {
+        if (isBackgroundLevel(trimLevel) || trimLevel <= level) {
+            return;
+        }
+        setLevel(trimLevel);
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void checkRecovery() {
+        final ActivityManager.RunningAppProcessInfo info = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(info);
+        final int trimLevel = isBackgroundLevel(info.lastTrimLevel) ? 0 : info.lastTrimLevel;
+        setLevel(Math.min(trimLevel, level));
+    }
+
+    /**
+     * Returns whether the level only tells the UI or the app went to the background, not that memory is low.
+     */
+    private static boolean isBackgroundLevel(int trimLevel) {
+        return trimLevel == TRIM_MEMORY_UI_HIDDEN || trimLevel == TRIM_MEMORY_BACKGROUND;
+    }
+
+    /**
+     * Replaces the breadcrumbs of the native scope with the newest maxBreadcrumbs, on the main thread.
+     * A breadcrumb added from another thread meanwhile may be left out.
+     */
+    private void trimBreadcrumbs() {
+        final List<Breadcrumb> kept;
+        synchronized (recentBreadcrumbs) {
+            kept = new ArrayList<>(recentBreadcrumbs);
+            breadcrumbsSinceTrim = 0;
+        }
+        isTrimming.set(Boolean.TRUE);
+        try {
+            HubAdapter.getInstance().configureScope(scope -> {
+                scope.clearBreadcrumbs();
+                for (Breadcrumb breadcrumb : kept) {
+                    scope.addBreadcrumb(breadcrumb);
+                }
+            });
+        } finally {
+            isTrimming.remove();
+        }
+    }
+
+    /**
+     * Applies the degradations of the level, on the main thread.
+     */
+    private void setLevel(int newLevel) {
+        final boolean trimBreadcrumbs = level < trimBreadcrumbsLevel && newLevel >= trimBreadcrumbsLevel;
+        level = newLevel;
+        if (trimBreadcrumbs) {
+            trimBreadcrumbs();
+        }
+
+        final boolean pauseFramesTracking = newLevel >= pauseFramesTrackingLevel;
+        if (pauseFramesTracking != isFramesTrackingPaused) {
+            isFramesTrackingPaused = pauseFramesTracking;
+            listener.onPauseFramesTracking(pauseFramesTracking);
+        }
+
+        mainHandler.removeCallbacks(recoveryCheck);
+        if (isUnderPressure()) {
+            mainHandler.postDelayed(recoveryCheck, RECOVERY_CHECK_INTERVAL_MS);
+        }
+    }
+}
@@ -1,51 +1,67 @@
 package io.sentry.react;
 
-import android.app.Activity;
+import android.app.Application;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.util.SparseIntArray;
-
-import androidx.core.app.FrameMetricsAggregator;
-
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.module.annotations.ReactModule;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import io.sentry.SentryEvent;
 import io.sentry.android.core.AnrIntegration;
 import io.sentry.android.core.AppStartState;
 import io.sentry.android.core.NdkIntegration;
 import io.sentry.android.core.SentryAndroid;
 import io.sentry.Breadcrumb;
 import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.ISerializer;
 import io.sentry.Integration;
 import io.sentry.Sentry;
-import io.sentry.SentryLevel;
+import io.sentry.SentryEnvelope;
+import io.sentry.SentryEnvelopeItem;
+import io.sentry.SentryEvent;
+import io.sentry.SentryItemType;
 import io.sentry.UncaughtExceptionHandlerIntegration;
-import io.sentry.protocol.SdkVersion;
-import io.sentry.protocol.SentryException;
-import io.sentry.protocol.SentryPackage;
-import io.sentry.protocol.User;
+import io.sentry.hints.Cached;
+import io.sentry.hints.Flushable;
+import io.sentry.hints.Retryable;
+import io.sentry.hints.SubmissionResult;
+import io.sentry.protocol.SentryTransaction;
 
 @ReactModule(name = RNSentryModule.NAME)
 public class RNSentryModule extends ReactContextBaseJavaModule {
@@ -54,18 +70,36 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
 
     final static Logger logger = Logger.getLogger("react-native-sentry");
 
+    // Looked up on first use, the PackageManager call is kept out of the app start.
     private static PackageInfo packageInfo;
+    private static boolean didLookUpPackageInfo = false;
     private static boolean didFetchAppStart = false;
-    private static FrameMetricsAggregator frameMetricsAggregator = null;
-
-    // 700ms to constitute frozen frames.
-    private final int FROZEN_FRAME_THRESHOLD = 700;
-    // 16ms (slower than 60fps) to constitute slow frames.
-    private final int SLOW_FRAME_THRESHOLD = 16;
+    // Published to the bridge threads once started.
+    private static volatile RNSentryFrameTracker frameTracker = null;
+    // Kept across bundle reloads, the stats cover the whole process.
+    private static final RNSentryBridgeStats bridgeStats = new RNSentryBridgeStats();
+    // Opened once per process, as the native scope outlives bundle reloads.
+    private static volatile RNSentryBreadcrumbRing breadcrumbRing = null;
+    // Registered for the trim memory signals of the application, replaced on each initialization.
+    private static volatile RNSentryMemoryPressure memoryPressure = null;
+    // Opened once per process, also to hand over the segments of a previous run once the log is turned off.
+    private static RNSentryOutboxLogReader outboxLogReader = null;
+
+    private final RNSentryEnvelopeWriter envelopeWriter = new RNSentryEnvelopeWriter();
+    private RNSentryEnvelopeQueue envelopeQueue = null;
+    private RNSentryOutboxBudget outboxBudget = null;
+    // Null unless envelopes are appended to the outbox log instead of written to their own file.
+    private volatile RNSentryOutboxLogReader outboxLog = null;
+    // Whether the outbox log is forced to disk after each append, otherwise the OS writes it back.
+    private volatile boolean outboxLogSync = false;
+    private final RNSentryInitGate initGate = new RNSentryInitGate();
+    private volatile RNSentryRateLimiter rateLimiter = new RNSentryRateLimiter();
+    // Null when deduplication is disabled.
+    private volatile RNSentryDedupCache dedupCache = new RNSentryDedupCache(
+            RNSentryDedupCache.DEFAULT_WINDOW_MS, RNSentryDedupCache.DEFAULT_MAX_ENTRIES);
 
     public RNSentryModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        RNSentryModule.packageInfo = getPackageInfo(reactContext);
     }
 
     @Override
@@ -83,6 +117,91 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void initNativeSdk(final ReadableMap rnOptions, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            setEnvelopeQueue(new RNSentryEnvelopeQueue(
+                    envelopeWriter,
+                    rnOptions.hasKey("envelopeQueueSize")
+                            ? rnOptions.getInt("envelopeQueueSize")
+                            : RNSentryEnvelopeQueue.DEFAULT_CAPACITY,
+                    RNSentryEnvelopeQueue.OverflowPolicy.fromString(
+                            rnOptions.hasKey("envelopeQueueOverflowPolicy")
+                                    ? rnOptions.getString("envelopeQueueOverflowPolicy")
+                                    : null)));
+            setOutboxBudget(new RNSentryOutboxBudget(
+                    rnOptions.hasKey("maxOutboxSize")
+                            ? (long) rnOptions.getDouble("maxOutboxSize")
+                            : RNSentryOutboxBudget.DEFAULT_MAX_SIZE_BYTES,
+                    rnOptions.hasKey("maxOutboxEnvelopes")
+                            ? rnOptions.getInt("maxOutboxEnvelopes")
+                            : RNSentryOutboxBudget.DEFAULT_MAX_ENVELOPES));
+            envelopeWriter.setCompressionEnabled(
+                    rnOptions.hasKey("compressOutboxEnvelopes") && rnOptions.getBoolean("compressOutboxEnvelopes"));
+            envelopeWriter.setAttachmentLimits(
+                    rnOptions.hasKey("maxAttachmentSize")
+                            ? (long) rnOptions.getDouble("maxAttachmentSize")
+                            : RNSentryEnvelopeWriter.DEFAULT_MAX_ATTACHMENT_SIZE,
+                    rnOptions.hasKey("maxEnvelopeAttachmentsSize")
+                            ? (long) rnOptions.getDouble("maxEnvelopeAttachmentsSize")
+                            : RNSentryEnvelopeWriter.DEFAULT_MAX_ENVELOPE_ATTACHMENTS_SIZE);
+            this.rateLimiter = createRateLimiter(
+                    rnOptions.hasKey("nativeRateLimits") ? rnOptions.getMap("nativeRateLimits") : null);
+            final double dedupWindowMs = rnOptions.hasKey("nativeDedupWindowMs")
+                    ? rnOptions.getDouble("nativeDedupWindowMs")
+                    : RNSentryDedupCache.DEFAULT_WINDOW_MS;
+            this.dedupCache = dedupWindowMs > 0
+                    ? new RNSentryDedupCache(
+                            (long) dedupWindowMs,
+                            rnOptions.hasKey("nativeDedupMaxEntries")
+                                    ? rnOptions.getInt("nativeDedupMaxEntries")
+                                    : RNSentryDedupCache.DEFAULT_MAX_ENTRIES)
+                    : null;
+
+            bridgeStats.recordInitPhase("configure", System.nanoTime() - startNanos);
+
+            if (rnOptions.hasKey("initNativeSdkInBackground") && rnOptions.getBoolean("initNativeSdkInBackground")) {
+                // The calls needing the SDK are held back until it is initialized.
+                initGate.close();
+                new Thread(() -> {
+                    Throwable error = null;
+                    try {
+                        initSentryAndroid(rnOptions);
+                    } catch (Throwable e) {
+                        error = e;
+                        logger.log(Level.SEVERE, "Error initializing the native SDK.", e);
+                    } finally {
+                        final long replayStartNanos = System.nanoTime();
+                        initGate.open();
+                        bridgeStats.recordInitPhase("replay", System.nanoTime() - replayStartNanos);
+                        bridgeStats.recordInitPhase("total", System.nanoTime() - startNanos);
+                    }
+                    // Same as a failed initialization on the native modules thread, which rejects the call.
+                    if (error != null) {
+                        promise.reject(
+                                "INIT_FAILED", "Error initializing the native SDK: " + error.getMessage(), error);
+                    } else {
+                        promise.resolve(true);
+                    }
+                }, "SentryReactNativeInit").start();
+            } else {
+                initSentryAndroid(rnOptions);
+                bridgeStats.recordInitPhase("total", System.nanoTime() - startNanos);
+                promise.resolve(true);
+            }
+        } finally {
+            bridgeStats.recordCall("initNativeSdk", startNanos);
+        }
+    }
+
+    /**
+     * Settles the promise of a call dropped as too many were held back while the SDK is initialized.
+     */
+    private static void rejectInitPending(Promise promise) {
+        promise.reject("INIT_PENDING", "Too many calls while the native SDK is initialized in the background.");
+    }
+
+    private void initSentryAndroid(final ReadableMap rnOptions) {
+        final long startNanos = System.nanoTime();
         SentryAndroid.init(this.getReactApplicationContext(), options -> {
             if (rnOptions.hasKey("debug") && rnOptions.getBoolean("debug")) {
                 options.setDebug(true);
@@ -128,39 +247,65 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
             if (rnOptions.hasKey("sendDefaultPii")) {
                 options.setSendDefaultPii(rnOptions.getBoolean("sendDefaultPii"));
             }
+            // Always installed, as the outbox might still hold compressed envelopes
+            // written before compression was turned off.
+            options.setEnvelopeReader(new RNSentryEnvelopeReader(options.getEnvelopeReader()));
+            // Null unless memoryPressure is set.
+            stopMemoryPressure(getReactApplicationContext());
+            final RNSentryMemoryPressure pressure = rnOptions.hasKey("memoryPressure")
+                    && !rnOptions.isNull("memoryPressure")
+                    ? startMemoryPressure(rnOptions.getMap("memoryPressure"))
+                    : null;
+            final RNSentryBreadcrumbRing ring =
+                    rnOptions.hasKey("persistNativeBreadcrumbs") && rnOptions.getBoolean("persistNativeBreadcrumbs")
+                            ? openBreadcrumbRing(getReactApplicationContext(), options.getMaxBreadcrumbs())
+                            : null;
+            // Sees the breadcrumbs of the Android SDK integrations too, not only the JS ones.
+            options.setBeforeBreadcrumb((breadcrumb, hint) -> {
+                if (pressure != null && !pressure.onBreadcrumb(breadcrumb)) {
+                    // Added back while trimming the scope, already persisted.
+                    return breadcrumb;
+                }
+                if (ring != null) {
+                    ring.append(breadcrumb);
+                }
+                return breadcrumb;
+            });
             if (rnOptions.hasKey("enableAutoPerformanceTracking")
                     && rnOptions.getBoolean("enableAutoPerformanceTracking")) {
-                RNSentryModule.frameMetricsAggregator = new FrameMetricsAggregator();
-                Activity currentActivity = getCurrentActivity();
-
-                if (currentActivity != null) {
-                    try {
-                        RNSentryModule.frameMetricsAggregator.add(currentActivity);
-                    } catch (Throwable ignored) {
-                        // throws ConcurrentModification when calling addOnFrameMetricsAvailableListener
-                        // this is a best effort since we can't reproduce it
-                        logger.warning("Error adding Activity to frameMetricsAggregator.");
-                    }
-                }
+                stopFrameTracking();
+                final long frameTrackingStartNanos = System.nanoTime();
+                RNSentryFrameTracker tracker = new RNSentryFrameTracker(
+                        rnOptions.hasKey("slowFrameThresholdMs") ? rnOptions.getDouble("slowFrameThresholdMs") : 0,
+                        rnOptions.hasKey("frozenFrameThresholdMs")
+                                ? rnOptions.getDouble("frozenFrameThresholdMs")
+                                : RNSentryFrameCounter.DEFAULT_FROZEN_FRAME_THRESHOLD_MS,
+                        rnOptions.hasKey("sampleMainThreadStalls") && rnOptions.getBoolean("sampleMainThreadStalls"));
+                // Activities started from now on are tracked through the lifecycle callbacks.
+                tracker.start(
+                        (Application) this.getReactApplicationContext().getApplicationContext(),
+                        getCurrentActivity());
+                RNSentryModule.frameTracker = tracker;
+                bridgeStats.recordInitPhase("frameTracking", System.nanoTime() - frameTrackingStartNanos);
             } else {
-                this.disableNativeFramesTracking();
+                stopFrameTracking();
+                // The app start is not fetched, its hooks are removed rather than left until the first frame.
+                RNSentryAppStartTracker.getInstance().uninstall();
             }
 
+            // Built once, the SDK descriptor merged into JS events is only rebuilt when it changes.
+            final RNSentryEventEnricher enricher = new RNSentryEventEnricher(options.getSdkVersion());
+            final RNSentryEventFilter filter = new RNSentryEventFilter(dedupCache, rateLimiter);
             options.setBeforeSend((event, hint) -> {
-                // React native internally throws a JavascriptException
-                // Since we catch it before that, we don't want to send this one
-                // because we would send it twice
-                try {
-                    SentryException ex = event.getExceptions().get(0);
-                    if (null != ex && ex.getType().contains("JavascriptException")) {
-                        return null;
-                    }
-                } catch (Throwable ignored) {
-                    // We do nothing
+                if (filter.filter(event) == null) {
+                    return null;
                 }
 
-                setEventOriginTag(event);
-                addPackages(event, options.getSdkVersion());
+                enricher.enrich(event);
+
+                if (pressure != null && pressure.isUnderPressure()) {
+                    event.setTag(RNSentryMemoryPressure.LOW_MEMORY_TAG, "true");
+                }
 
                 return event;
             });
@@ -178,7 +323,144 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
             logger.info(String.format("Native Integrations '%s'", options.getIntegrations().toString()));
         });
 
-        promise.resolve(true);
+        final String outboxPath = HubAdapter.getInstance().getOptions().getOutboxPath();
+        final boolean useOutboxLog = rnOptions.hasKey("useOutboxLog") && rnOptions.getBoolean("useOutboxLog");
+        final File outboxLogDirectory = outboxPath != null
+                ? new File(new File(outboxPath).getParentFile(), RNSentryOutboxLog.DIRECTORY_NAME)
+                : null;
+        if (outboxLogDirectory != null && (useOutboxLog || outboxLogDirectory.isDirectory())) {
+            final RNSentryOutboxLogReader reader = openOutboxLog(
+                    outboxLogDirectory,
+                    rnOptions.hasKey("outboxLogSegmentSize")
+                            ? (long) rnOptions.getDouble("outboxLogSegmentSize")
+                            : RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE,
+                    rnOptions.hasKey("outboxLogMaxSegmentAgeMs")
+                            ? (long) rnOptions.getDouble("outboxLogMaxSegmentAgeMs")
+                            : RNSentryOutboxLogReader.DEFAULT_MAX_SEGMENT_AGE_MS);
+            this.outboxLog = useOutboxLog ? reader : null;
+            this.outboxLogSync = rnOptions.hasKey("outboxLogSync") && rnOptions.getBoolean("outboxLogSync");
+        } else {
+            this.outboxLog = null;
+        }
+        bridgeStats.recordInitPhase("sentryAndroidInit", System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Opens the outbox log, outside of the outbox so the Android SDK never reads its segments.
+     */
+    private static synchronized RNSentryOutboxLogReader openOutboxLog(
+            File directory, long segmentSize, long maxSegmentAgeMs) {
+        if (outboxLogReader == null) {
+            try {
+                outboxLogReader = new RNSentryOutboxLogReader(
+                        RNSentryOutboxLog.open(directory, segmentSize),
+                        HubAdapter.getInstance().getOptions().getEnvelopeReader(),
+                        RNSentryModule::sendOutboxLogEnvelope,
+                        maxSegmentAgeMs);
+            } catch (IOException e) {
+                logger.warning("Error opening the outbox log, envelopes will be written to their own file.");
+            }
+        }
+        return outboxLogReader;
+    }
+
+    /**
+     * Returns the outbox log for the caller to close, the next initialization opens it again.
+     */
+    private static synchronized RNSentryOutboxLogReader takeOutboxLog() {
+        final RNSentryOutboxLogReader reader = outboxLogReader;
+        outboxLogReader = null;
+        return reader;
+    }
+
+    /**
+     * Sends an envelope handed over from the outbox log the way OutboxSender sends an envelope of the outbox:
+     * events and transactions are captured again, other items are sent as they are. Each item carries a hint
+     * marking it as cached, so the current scope is not applied to an event of an earlier session, and the
+     * item is not cached to disk again. Waits for each item to be sent, returns false if one is to be retried,
+     * the segment is then handed over again.
+     */
+    private static boolean sendOutboxLogEnvelope(SentryEnvelope envelope) {
+        final IHub hub = HubAdapter.getInstance();
+        final ISerializer serializer = hub.getOptions().getSerializer();
+        final long flushTimeoutMillis = hub.getOptions().getFlushTimeoutMillis();
+        for (SentryEnvelopeItem item : envelope.getItems()) {
+            final OutboxLogHint hint = new OutboxLogHint(flushTimeoutMillis);
+            try {
+                final SentryItemType type = item.getHeader().getType();
+                if (SentryItemType.Event.equals(type)) {
+                    final SentryEvent event = item.getEvent(serializer);
+                    if (event == null) {
+                        continue;
+                    }
+                    hub.captureEvent(event, hint);
+                } else if (SentryItemType.Transaction.equals(type)) {
+                    final SentryTransaction transaction = item.getTransaction(serializer);
+                    if (transaction == null) {
+                        continue;
+                    }
+                    hub.captureTransaction(transaction, envelope.getHeader().getTrace(), hint);
+                } else {
+                    hub.captureEnvelope(
+                            new SentryEnvelope(envelope.getHeader(), Collections.singletonList(item)), hint);
+                }
+            } catch (Exception e) {
+                logger.warning("Error sending an envelope item of the outbox log, skipping it.");
+                continue;
+            }
+            if (!hint.waitFlush()) {
+                // Dropped before reaching the transport, by beforeSend or sampling, or still queued.
+                logger.warning("Timed out waiting for an envelope item of the outbox log to be sent.");
+            } else if (hint.isRetry()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as the hint OutboxSender gives to the items of an outbox file, set by the transport once sent.
+     */
+    private static final class OutboxLogHint implements Cached, Retryable, SubmissionResult, Flushable {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final long flushTimeoutMillis;
+        private volatile boolean retry = false;
+        private volatile boolean succeeded = false;
+
+        OutboxLogHint(long flushTimeoutMillis) {
+            this.flushTimeoutMillis = flushTimeoutMillis;
+        }
+
+        @Override
+        public boolean waitFlush() {
+            try {
+                return latch.await(flushTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean isRetry() {
+            return retry;
+        }
+
+        @Override
+        public void setRetry(boolean retry) {
+            this.retry = retry;
+        }
+
+        @Override
+        public void setResult(boolean succeeded) {
+            this.succeeded = succeeded;
+            latch.countDown();
+        }
+
+        @Override
+        public boolean isSuccess() {
+            return succeeded;
+        }
     }
 
     @ReactMethod
@@ -188,35 +470,60 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void fetchNativeRelease(Promise promise) {
-        WritableMap release = Arguments.createMap();
-        release.putString("id", packageInfo.packageName);
-        release.putString("version", packageInfo.versionName);
-        release.putString("build", String.valueOf(packageInfo.versionCode));
-        promise.resolve(release);
+        final long startNanos = System.nanoTime();
+        try {
+            WritableMap release = Arguments.createMap();
+            final PackageInfo packageInfo = getPackageInfo(getReactApplicationContext());
+            release.putString("id", packageInfo.packageName);
+            release.putString("version", packageInfo.versionName);
+            release.putString("build", String.valueOf(packageInfo.versionCode));
+            promise.resolve(release);
+        } finally {
+            bridgeStats.recordCall("fetchNativeRelease", startNanos);
+        }
     }
 
     @ReactMethod
     public void fetchNativeAppStart(Promise promise) {
-        final AppStartState appStartInstance = AppStartState.getInstance();
-        final Date appStartTime = appStartInstance.getAppStartTime();
-
-        if (appStartTime == null) {
-            promise.resolve(null);
-        } else {
-            final double appStartTimestamp = (double) appStartTime.getTime();
-
-            WritableMap appStart = Arguments.createMap();
+        final long startNanos = System.nanoTime();
+        try {
+            final AppStartState appStartInstance = AppStartState.getInstance();
+            final Date appStartTime = appStartInstance.getAppStartTime();
 
-            appStart.putDouble("appStartTime", appStartTimestamp);
-            appStart.putBoolean("isColdStart", appStartInstance.isColdStart());
-            appStart.putBoolean("didFetchAppStart", RNSentryModule.didFetchAppStart);
+            if (appStartTime == null) {
+                promise.resolve(null);
+            } else {
+                final double appStartTimestamp = (double) appStartTime.getTime();
+
+                WritableMap appStart = Arguments.createMap();
+
+                appStart.putDouble("appStartTime", appStartTimestamp);
+                appStart.putBoolean("isColdStart", appStartInstance.isColdStart());
+                appStart.putBoolean("didFetchAppStart", RNSentryModule.didFetchAppStart);
+
+                WritableArray phases = Arguments.createArray();
+                // The phases start with the process, which a warm start doesn't include.
+                if (Boolean.TRUE.equals(appStartInstance.isColdStart())) {
+                    for (RNSentryAppStartTracker.Phase phase : RNSentryAppStartTracker.getInstance().getPhases()) {
+                        WritableMap phaseMap = Arguments.createMap();
+                        phaseMap.putString("op", phase.op);
+                        phaseMap.putString("description", phase.description);
+                        phaseMap.putDouble("startTimestampMs", phase.startTimestampMs);
+                        phaseMap.putDouble("endTimestampMs", phase.endTimestampMs);
+                        phases.pushMap(phaseMap);
+                    }
+                }
+                appStart.putArray("phases", phases);
 
-            promise.resolve(appStart);
+                promise.resolve(appStart);
+            }
+            // This is always set to true, as we would only allow an app start fetch to only
+            // happen once in the case of a JS bundle reload, we do not want it to be
+            // instrumented again.
+            RNSentryModule.didFetchAppStart = true;
+        } finally {
+            bridgeStats.recordCall("fetchNativeAppStart", startNanos);
         }
-        // This is always set to true, as we would only allow an app start fetch to only
-        // happen once in the case of a JS bundle reload, we do not want it to be
-        // instrumented again.
-        RNSentryModule.didFetchAppStart = true;
     }
 
     /**
@@ -224,265 +531,995 @@ public class RNSentryModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void fetchNativeFrames(Promise promise) {
-        if (RNSentryModule.frameMetricsAggregator == null) {
-            promise.resolve(null);
-        } else {
-            try {
-                int totalFrames = 0;
-                int slowFrames = 0;
-                int frozenFrames = 0;
-
-                final SparseIntArray[] framesRates = RNSentryModule.frameMetricsAggregator.getMetrics();
-
-                if (framesRates != null) {
-                    final SparseIntArray totalIndexArray = framesRates[FrameMetricsAggregator.TOTAL_INDEX];
-                    if (totalIndexArray != null) {
-                        for (int i = 0; i < totalIndexArray.size(); i++) {
-                            int frameTime = totalIndexArray.keyAt(i);
-                            int numFrames = totalIndexArray.valueAt(i);
-                            totalFrames += numFrames;
-                            // hard coded values, its also in the official android docs and frame metrics
-                            // API
-                            if (frameTime > FROZEN_FRAME_THRESHOLD) {
-                                // frozen frames, threshold is 700ms
-                                frozenFrames += numFrames;
-                            } else if (frameTime > SLOW_FRAME_THRESHOLD) {
-                                // slow frames, above 16ms, 60 frames/second
-                                slowFrames += numFrames;
-                            }
-                        }
-                    }
+        if (initGate.defer(() -> fetchNativeFrames(promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+            if (tracker == null) {
+                promise.resolve(null);
+            } else {
+                WritableMap map = createFramesMap(tracker.getCounter().getFrames());
+
+                WritableMap activities = Arguments.createMap();
+                for (Map.Entry<String, long[]> entry : tracker.getCounter().getActivityFrames().entrySet()) {
+                    long[] frames = entry.getValue();
+                    WritableMap activity = Arguments.createMap();
+                    activity.putDouble("totalFrames", frames[RNSentryFrameCounter.TOTAL]);
+                    activity.putDouble("slowFrames", frames[RNSentryFrameCounter.SLOW]);
+                    activity.putDouble("frozenFrames", frames[RNSentryFrameCounter.FROZEN]);
+                    activities.putMap(entry.getKey(), activity);
                 }
-
-                WritableMap map = Arguments.createMap();
-                map.putInt("totalFrames", totalFrames);
-                map.putInt("slowFrames", slowFrames);
-                map.putInt("frozenFrames", frozenFrames);
+                map.putMap("activities", activities);
 
                 promise.resolve(map);
-            } catch (Throwable ignored) {
-                logger.warning("Error fetching native frames.");
-                promise.resolve(null);
             }
+        } catch (Throwable ignored) {
+            logger.warning("Error fetching native frames.");
+            bridgeStats.recordFailure("fetchNativeFrames");
+            promise.resolve(null);
+        } finally {
+            bridgeStats.recordCall("fetchNativeFrames", startNanos);
         }
     }
 
+    /**
+     * Starts a frames snapshot and resolves with its id, or null if frames are not tracked.
+     */
     @ReactMethod
-    public void captureEnvelope(String envelope, Promise promise) {
+    public void startFrameSnapshot(Promise promise) {
+        if (initGate.defer(() -> startFrameSnapshot(promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
         try {
-            final String outboxPath = HubAdapter.getInstance().getOptions().getOutboxPath();
-
-            if (outboxPath == null) {
-                logger.severe(
-                        "Error retrieving outboxPath. Envelope will not be sent. Is the Android SDK initialized?");
+            RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+            if (tracker == null) {
+                promise.resolve(null);
             } else {
-                File installation = new File(outboxPath, UUID.randomUUID().toString());
-                try (FileOutputStream out = new FileOutputStream(installation)) {
-                    out.write(envelope.getBytes(Charset.forName("UTF-8")));
-                }
+                promise.resolve(tracker.startSnapshot());
             }
-        } catch (Throwable ignored) {
-            logger.severe("Error reading envelope");
+        } finally {
+            bridgeStats.recordCall("startFrameSnapshot", startNanos);
         }
-        promise.resolve(true);
     }
 
+    /**
+     * Returns the frames rendered since the snapshot was started.
+     */
     @ReactMethod
-    public void getStringBytesLength(String payload, Promise promise) {
+    public void fetchFrameSnapshot(int snapshotId, Promise promise) {
+        if (initGate.defer(() -> fetchFrameSnapshot(snapshotId, promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
         try {
-            promise.resolve(payload.getBytes("UTF-8").length);
-        } catch (UnsupportedEncodingException e) {
-            promise.reject(e);
+            RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+            if (tracker == null) {
+                promise.resolve(null);
+            } else {
+                promise.resolve(putStalls(createFramesMap(tracker.getCounter().getSnapshotDelta(snapshotId)), tracker));
+            }
+        } finally {
+            bridgeStats.recordCall("fetchFrameSnapshot", startNanos);
         }
     }
 
-    private static PackageInfo getPackageInfo(Context ctx) {
+    /**
+     * Returns the frames rendered since the snapshot was started and discards the snapshot.
+     */
+    @ReactMethod
+    public void finishFrameSnapshot(int snapshotId, Promise promise) {
+        if (initGate.defer(() -> finishFrameSnapshot(snapshotId, promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
         try {
-            return ctx.getPackageManager().getPackageInfo(ctx.getPackageName(), 0);
-        } catch (PackageManager.NameNotFoundException e) {
-            logger.warning("Error getting package info.");
+            RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+            if (tracker == null) {
+                promise.resolve(null);
+            } else {
+                promise.resolve(putStalls(createFramesMap(tracker.finishSnapshot(snapshotId)), tracker));
+            }
+        } finally {
+            bridgeStats.recordCall("finishFrameSnapshot", startNanos);
+        }
+    }
+
+    private static WritableMap createFramesMap(long[] frames) {
+        if (frames == null) {
             return null;
         }
+
+        WritableMap map = Arguments.createMap();
+        map.putDouble("totalFrames", frames[RNSentryFrameCounter.TOTAL]);
+        map.putDouble("slowFrames", frames[RNSentryFrameCounter.SLOW]);
+        map.putDouble("frozenFrames", frames[RNSentryFrameCounter.FROZEN]);
+
+        WritableArray bounds = Arguments.createArray();
+        WritableArray counts = Arguments.createArray();
+        for (int i = 0; i < RNSentryFrameCounter.HISTOGRAM_BOUNDS_MS.length; i++) {
+            bounds.pushInt(RNSentryFrameCounter.HISTOGRAM_BOUNDS_MS[i]);
+            counts.pushDouble(frames[RNSentryFrameCounter.HISTOGRAM + i]);
+        }
+        // Frames slower than the last bound.
+        counts.pushDouble(frames[RNSentryFrameCounter.HISTOGRAM + RNSentryFrameCounter.HISTOGRAM_BOUNDS_MS.length]);
+
+        WritableMap histogram = Arguments.createMap();
+        histogram.putArray("bounds", bounds);
+        histogram.putArray("counts", counts);
+        map.putMap("frameTimeHistogram", histogram);
+
+        map.putInt("frameTimeP50", RNSentryFrameCounter.getPercentile(frames, 0.5));
+        map.putInt("frameTimeP95", RNSentryFrameCounter.getPercentile(frames, 0.95));
+        map.putInt("frameTimeP99", RNSentryFrameCounter.getPercentile(frames, 0.99));
+        return map;
+    }
+
+    /**
+     * Adds the most recent main thread stalls to the frames, for the transaction to keep the ones within it.
+     */
+    private static WritableMap putStalls(WritableMap frames, RNSentryFrameTracker tracker) {
+        final RNSentryStallSampler sampler = tracker.getStallSampler();
+        if (frames == null || sampler == null) {
+            return frames;
+        }
+
+        WritableArray stalls = Arguments.createArray();
+        for (RNSentryStallSampler.Stall stall : sampler.getStalls()) {
+            WritableMap stallMap = Arguments.createMap();
+            stallMap.putDouble("startTimestampMs", stall.startTimestampMs);
+            stallMap.putDouble("durationMs", stall.getDurationMs());
+            WritableArray stackTrace = Arguments.createArray();
+            for (String frame : stall.getStackTrace()) {
+                stackTrace.pushString(frame);
+            }
+            stallMap.putArray("stackTrace", stackTrace);
+            stalls.pushMap(stallMap);
+        }
+        frames.putArray("mainThreadStalls", stalls);
+        return frames;
     }
 
     @ReactMethod
-    public void setUser(final ReadableMap user, final ReadableMap otherUserKeys) {
-        Sentry.configureScope(scope -> {
-            if (user == null && otherUserKeys == null) {
-                scope.setUser(null);
+    public void captureEnvelope(String envelope, Promise promise) {
+        if (initGate.defer(() -> captureEnvelope(envelope, promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            final String outboxPath = getOutboxPath("captureEnvelope");
+            // The item type is not known without parsing the envelope, so it is limited and budgeted as an error.
+            if (outboxPath == null || !rateLimiter.tryAcquire(RNSentryRateLimiter.CATEGORY_ERROR)) {
+                promise.resolve(false);
+                return;
+            }
+            final RNSentryOutboxBudget budget = getOutboxBudget();
+            final RNSentryOutboxBudget.Priority priority = RNSentryOutboxBudget.Priority.ERROR;
+            final RNSentryOutboxLogReader log = outboxLog;
+            final boolean sync = outboxLogSync;
+            // Duplicates are only found by parsing the envelope, which is left to the writer thread.
+            // The promise is resolved once queued, the duplicates dropped are counted in the outbox stats.
+            final boolean isQueued;
+            if (log != null) {
+                isQueued = getEnvelopeQueue().enqueue(
+                        null,
+                        recordLogWrite("captureEnvelope", writer -> isDuplicateEnvelope(envelope)
+                                ? 0
+                                : log.append(priority, sync, out -> writer.write(out, envelope))),
+                        false,
+                        null);
             } else {
-                User userInstance = new User();
+                isQueued = getEnvelopeQueue().enqueue(
+                        RNSentryOutboxBudget.createFile(outboxPath, priority),
+                        recordWrite("captureEnvelope", (writer, file) -> {
+                            if (isDuplicateEnvelope(envelope)) {
+                                return;
+                            }
+                            writer.write(file, envelope);
+                            budget.onWritten(file, priority);
+                        }),
+                        false,
+                        null);
+            }
+            promise.resolve(isQueued);
+        } catch (Throwable ignored) {
+            logger.severe("Error reading envelope");
+            bridgeStats.recordFailure("captureEnvelope");
+            promise.resolve(false);
+        } finally {
+            bridgeStats.recordCall("captureEnvelope", startNanos);
+        }
+    }
 
-                if (user != null) {
-                    if (user.hasKey("email")) {
-                        userInstance.setEmail(user.getString("email"));
-                    }
+    /**
+     * Assembles the envelope from its serialized header and payload and writes it to the outbox.
+     * Expects a map with the `header`, `payload` and item `type` strings.
+     * Resolves once the envelope is queued, or once it is written if `durable` is set.
+     */
+    @ReactMethod
+    public void captureSerializedEnvelope(ReadableMap envelope, Promise promise) {
+        if (initGate.defer(() -> captureSerializedEnvelope(envelope, promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            final String outboxPath = getOutboxPath("captureSerializedEnvelope");
+            if (outboxPath == null) {
+                promise.resolve(false);
+                return;
+            }
 
-                    if (user.hasKey("id")) {
-                        userInstance.setId(user.getString("id"));
-                    }
+            if (isDurable(envelope)) {
+                enqueueEnvelope("captureSerializedEnvelope", outboxPath, envelope, promise::resolve);
+            } else {
+                promise.resolve(enqueueEnvelope("captureSerializedEnvelope", outboxPath, envelope, null));
+            }
+        } finally {
+            bridgeStats.recordCall("captureSerializedEnvelope", startNanos);
+        }
+    }
 
-                    if (user.hasKey("username")) {
-                        userInstance.setUsername(user.getString("username"));
-                    }
+    /**
+     * Writes a batch of serialized envelopes, as accepted by captureSerializedEnvelope, with a single bridge call.
+     * Resolves with an array holding, for each envelope in order, whether it was queued,
+     * or written if it is `durable`. Resolves only once all the `durable` envelopes were written.
+     */
+    @ReactMethod
+    public void captureEnvelopes(ReadableArray envelopes, Promise promise) {
+        if (initGate.defer(() -> captureEnvelopes(envelopes, promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            final String outboxPath = getOutboxPath("captureEnvelopes");
+            if (outboxPath == null) {
+                // None of the envelopes can be written, the JS SDK rejects each of them.
+                promise.reject("OUTBOX_UNAVAILABLE", "The outbox path is not set, is the Android SDK initialized?");
+                return;
+            }
 
-                    if (user.hasKey("ip_address")) {
-                        userInstance.setIpAddress(user.getString("ip_address"));
+            final boolean[] results = new boolean[envelopes.size()];
+            // Starts at one, so the promise can't be resolved before all the envelopes are queued.
+            final AtomicInteger pending = new AtomicInteger(1);
+            final Runnable resolveWhenDone = () -> {
+                if (pending.decrementAndGet() == 0) {
+                    final WritableArray resultsArray = Arguments.createArray();
+                    for (boolean result : results) {
+                        resultsArray.pushBoolean(result);
                     }
+                    promise.resolve(resultsArray);
+                }
+            };
+
+            for (int i = 0; i < envelopes.size(); i++) {
+                final ReadableMap envelope = envelopes.getMap(i);
+                final int index = i;
+
+                // The outbox observer of the Android SDK reads one envelope per file,
+                // so each envelope of the batch still gets its own file.
+                if (isDurable(envelope)) {
+                    pending.incrementAndGet();
+                    enqueueEnvelope("captureEnvelopes", outboxPath, envelope, written -> {
+                        results[index] = written;
+                        resolveWhenDone.run();
+                    });
+                } else {
+                    results[index] = enqueueEnvelope("captureEnvelopes", outboxPath, envelope, null);
                 }
+            }
+
+            resolveWhenDone.run();
+        } finally {
+            bridgeStats.recordCall("captureEnvelopes", startNanos);
+        }
+    }
+
+    private String getOutboxPath(String method) {
+        final String outboxPath = HubAdapter.getInstance().getOptions().getOutboxPath();
+
+        if (outboxPath == null) {
+            logger.severe(
+                    "Error retrieving outboxPath. Envelope will not be sent. Is the Android SDK initialized?");
+            bridgeStats.recordFailure(method);
+        }
+        return outboxPath;
+    }
+
+    /**
+     * Counts the bytes written by the envelope write, or its failure, against the bridge method which captured it.
+     */
+    private static RNSentryEnvelopeQueue.Write recordWrite(String method, RNSentryEnvelopeQueue.Write write) {
+        return (writer, file) -> {
+            try {
+                write.writeTo(writer, file);
+            } catch (IOException | RuntimeException e) {
+                bridgeStats.recordFailure(method);
+                throw e;
+            }
+            bridgeStats.recordBytesWritten(method, file.length());
+        };
+    }
+
+    /** Appends an envelope to the outbox log, returning the size of its record. */
+    private interface LogWrite {
+        long appendWith(RNSentryEnvelopeWriter writer) throws IOException;
+    }
+
+    /**
+     * Same as recordWrite, for envelopes appended to the outbox log, which are queued without a file.
+     */
+    private static RNSentryEnvelopeQueue.Write recordLogWrite(String method, LogWrite write) {
+        return (writer, file) -> {
+            final long size;
+            try {
+                size = write.appendWith(writer);
+            } catch (IOException | RuntimeException e) {
+                bridgeStats.recordFailure(method);
+                throw e;
+            }
+            bridgeStats.recordBytesWritten(method, size);
+        };
+    }
+
+    private synchronized RNSentryEnvelopeQueue getEnvelopeQueue() {
+        // The native SDK might have been initialized without initNativeSdk
+        if (envelopeQueue == null) {
+            envelopeQueue = new RNSentryEnvelopeQueue(
+                    envelopeWriter,
+                    RNSentryEnvelopeQueue.DEFAULT_CAPACITY,
+                    RNSentryEnvelopeQueue.OverflowPolicy.DROP_OLDEST);
+        }
+        return envelopeQueue;
+    }
+
+    private synchronized void setEnvelopeQueue(RNSentryEnvelopeQueue queue) {
+        if (envelopeQueue != null) {
+            envelopeQueue.close();
+        }
+        envelopeQueue = queue;
+    }
+
+    /**
+     * Closes the envelope queue, onClosed runs once the envelopes already queued are written.
+     */
+    private synchronized void closeEnvelopeQueue(Runnable onClosed) {
+        if (envelopeQueue != null) {
+            envelopeQueue.close(onClosed);
+            envelopeQueue = null;
+        } else {
+            onClosed.run();
+        }
+    }
+
+    private synchronized RNSentryOutboxBudget getOutboxBudget() {
+        if (outboxBudget == null) {
+            outboxBudget = new RNSentryOutboxBudget(
+                    RNSentryOutboxBudget.DEFAULT_MAX_SIZE_BYTES,
+                    RNSentryOutboxBudget.DEFAULT_MAX_ENVELOPES);
+        }
+        return outboxBudget;
+    }
+
+    private synchronized void setOutboxBudget(RNSentryOutboxBudget budget) {
+        outboxBudget = budget;
+    }
+
+    /**
+     * Returns the event payload to write, with its collapsed occurrences if any,
+     * or null if it repeats an event written within the dedup window.
+     */
+    private String deduplicate(String payload) {
+        final RNSentryDedupCache cache = dedupCache;
+        if (cache == null || payload == null) {
+            return payload;
+        }
+
+        try {
+            // Only error events are parsed, which are far less frequent than transactions and sessions.
+            return cache.collapse(payload);
+        } catch (JSONException e) {
+            logger.warning("Error parsing the event to deduplicate, writing it as it is.");
+        }
+        return payload;
+    }
+
+    /**
+     * Returns whether the envelope holds an event which repeats one written within the dedup window.
+     * The occurrences are not added to the kept event, as that would change the item length in the envelope.
+     */
+    private boolean isDuplicateEnvelope(String envelope) {
+        final RNSentryDedupCache cache = dedupCache;
+        if (cache == null) {
+            return false;
+        }
+
+        // Envelope header, item header and item payload, each on their own line.
+        final int itemHeaderStart = envelope.indexOf('\n') + 1;
+        final int payloadStart = envelope.indexOf('\n', itemHeaderStart) + 1;
+        if (itemHeaderStart == 0 || payloadStart == 0) {
+            return false;
+        }
+        final int payloadEnd = envelope.indexOf('\n', payloadStart);
+
+        try {
+            final JSONObject itemHeader = new JSONObject(envelope.substring(itemHeaderStart, payloadStart - 1));
+            if (!"event".equals(itemHeader.optString("type"))) {
+                return false;
+            }
+            final JSONObject event = new JSONObject(
+                    payloadEnd == -1 ? envelope.substring(payloadStart) : envelope.substring(payloadStart, payloadEnd));
+            return cache.record(RNSentryDedupCache.fingerprint(event)) == 0;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Expects a map of categories to their `sampleRate`, `maxPerSecond` and `burst`.
+     */
+    private static RNSentryRateLimiter createRateLimiter(ReadableMap rateLimits) {
+        final RNSentryRateLimiter limiter = new RNSentryRateLimiter();
+        if (rateLimits == null) {
+            return limiter;
+        }
+
+        ReadableMapKeySetIterator it = rateLimits.keySetIterator();
+        while (it.hasNextKey()) {
+            String category = it.nextKey();
+            ReadableMap limit = rateLimits.getMap(category);
+            if (limit == null) {
+                continue;
+            }
+            limiter.limit(
+                    category,
+                    limit.hasKey("sampleRate") ? limit.getDouble("sampleRate") : 1,
+                    limit.hasKey("maxPerSecond") ? limit.getDouble("maxPerSecond") : 0,
+                    limit.hasKey("burst") ? limit.getDouble("burst") : 0);
+        }
+        return limiter;
+    }
+
+    private static boolean isDurable(ReadableMap envelope) {
+        return envelope.hasKey("durable") && envelope.getBoolean("durable");
+    }
+
+    /**
+     * Returns whether the envelope was queued to be written.
+     * The callback is called once it was written or dropped, also when it was not queued.
+     */
+    private boolean enqueueEnvelope(
+            String method, String outboxPath, ReadableMap envelope, RNSentryEnvelopeQueue.Callback callback) {
+        final String header = envelope.getString("header");
+        final String itemType = envelope.hasKey("type") && envelope.getString("type") != null
+                ? envelope.getString("type")
+                : "event";
+        // Durable envelopes are the ones written as the app crashes, these are never dropped.
+        final boolean isDroppable = !isDurable(envelope);
+
+        final String rawPayload = isDroppable && "event".equals(itemType)
+                ? deduplicate(envelope.getString("payload"))
+                : envelope.getString("payload");
+        final RNSentryMemoryPressure pressure = memoryPressure;
+        if (rawPayload == null
+                || isDroppable && !rateLimiter.tryAcquire(RNSentryRateLimiter.categoryOf(itemType))
+                || isDroppable && pressure != null
+                        && !pressure.tryAcquireEnvelope(RNSentryRateLimiter.categoryOf(itemType))) {
+            if (callback != null) {
+                callback.onComplete(false);
+            }
+            return false;
+        }
+        // Only parsed while under pressure, which is rare.
+        final String payload = pressure != null && pressure.isUnderPressure() && "event".equals(itemType)
+                ? markLowMemory(rawPayload)
+                : rawPayload;
+
+        final RNSentryOutboxBudget budget = getOutboxBudget();
+        final RNSentryOutboxBudget.Priority priority = RNSentryOutboxBudget.Priority.from(itemType, isDurable(envelope));
+
+        final List<RNSentryAttachment> attachments = readAttachments(envelope);
+
+        // Durable envelopes are written to their own file, which the Android SDK picks up without waiting on a rotation.
+        // Attachments are not copied into the log, only to be copied out again on handover.
+        final RNSentryOutboxLogReader log = outboxLog;
+        final boolean sync = outboxLogSync;
+        if (log != null && isDroppable && attachments.isEmpty()) {
+            return getEnvelopeQueue().enqueue(
+                    null,
+                    recordLogWrite(method, writer ->
+                            log.append(priority, sync, out -> writer.write(out, header, itemType, payload))),
+                    false,
+                    callback);
+        }
+        return getEnvelopeQueue().enqueue(
+                RNSentryOutboxBudget.createFile(outboxPath, priority),
+                recordWrite(method, (writer, file) -> {
+                    writer.write(file, header, itemType, payload, attachments);
+                    budget.onWritten(file, priority);
+                }),
+                !isDroppable,
+                callback);
+    }
 
-                if (otherUserKeys != null) {
-                    HashMap<String, String> otherUserKeysMap = new HashMap<String, String>();
-                    ReadableMapKeySetIterator it = otherUserKeys.keySetIterator();
-                    while (it.hasNextKey()) {
-                        String key = it.nextKey();
-                        String value = otherUserKeys.getString(key);
+    /**
+     * Returns the attachments referenced by the envelope, by file path, file URL or content URI.
+     * Nothing is read until the envelope is written.
+     */
+    private List<RNSentryAttachment> readAttachments(ReadableMap envelope) {
+        if (!envelope.hasKey("attachments") || envelope.getArray("attachments") == null) {
+            return Collections.emptyList();
+        }
+        final ReadableArray references = envelope.getArray("attachments");
+        final List<RNSentryAttachment> attachments = new ArrayList<>(references.size());
+        for (int i = 0; i < references.size(); i++) {
+            final ReadableMap reference = references.getMap(i);
+            final String path = reference != null && reference.hasKey("path") ? reference.getString("path") : null;
+            if (path == null) {
+                continue;
+            }
+            final Uri uri = Uri.parse(path);
+            final RNSentryAttachment.Source source;
+            final String defaultFilename;
+            if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+                source = contentSource(getReactApplicationContext().getContentResolver(), uri);
+                defaultFilename = uri.getLastPathSegment();
+            } else {
+                final File file = new File(ContentResolver.SCHEME_FILE.equals(uri.getScheme()) ? uri.getPath() : path);
+                source = RNSentryAttachment.fileSource(file);
+                defaultFilename = file.getName();
+            }
+            attachments.add(new RNSentryAttachment(
+                    reference.hasKey("filename") && reference.getString("filename") != null
+                            ? reference.getString("filename")
+                            : defaultFilename != null ? defaultFilename : "attachment",
+                    reference.hasKey("contentType") ? reference.getString("contentType") : null,
+                    source));
+        }
+        return attachments;
+    }
 
-                        otherUserKeysMap.put(key, value);
+    private static RNSentryAttachment.Source contentSource(ContentResolver resolver, Uri uri) {
+        return new RNSentryAttachment.Source() {
+            @Override
+            public long size() throws IOException {
+                final AssetFileDescriptor descriptor = resolver.openAssetFileDescriptor(uri, "r");
+                if (descriptor != null) {
+                    try {
+                        final long length = descriptor.getLength();
+                        if (length != AssetFileDescriptor.UNKNOWN_LENGTH) {
+                            return length;
+                        }
+                    } finally {
+                        descriptor.close();
                     }
+                }
+                // Streamed content, its provider might still know its size.
+                final Cursor cursor = resolver.query(uri, new String[] {OpenableColumns.SIZE}, null, null, null);
+                if (cursor == null) {
+                    return -1;
+                }
+                try {
+                    return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : -1;
+                } finally {
+                    cursor.close();
+                }
+            }
 
-                    userInstance.setOthers(otherUserKeysMap);
+            @Override
+            public InputStream open() throws IOException {
+                final InputStream in = resolver.openInputStream(uri);
+                if (in == null) {
+                    throw new FileNotFoundException(uri.toString());
                 }
+                return in;
+            }
+        };
+    }
 
-                scope.setUser(userInstance);
+    /**
+     * Returns the size of the envelopes written to the outbox and how many were evicted to stay within budget.
+     */
+    @ReactMethod
+    public void fetchNativeOutboxStats(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            final RNSentryOutboxBudget budget = getOutboxBudget();
+
+            WritableMap stats = Arguments.createMap();
+            stats.putInt("envelopeCount", budget.getTotalCount());
+            stats.putDouble("size", budget.getTotalSize());
+            stats.putDouble("evictedLowPriority", budget.getEvictedCount(RNSentryOutboxBudget.Priority.LOW));
+            stats.putDouble("evictedErrors", budget.getEvictedCount(RNSentryOutboxBudget.Priority.ERROR));
+
+            WritableMap dropped = Arguments.createMap();
+            for (Map.Entry<String, long[]> entry : rateLimiter.getDropCounts().entrySet()) {
+                WritableMap counts = Arguments.createMap();
+                counts.putDouble("sampledOut", entry.getValue()[0]);
+                counts.putDouble("rateLimited", entry.getValue()[1]);
+                dropped.putMap(entry.getKey(), counts);
             }
-        });
+            stats.putMap("dropped", dropped);
+
+            final RNSentryDedupCache cache = dedupCache;
+            stats.putDouble("duplicates", cache != null ? cache.getSuppressedCount() : 0);
+
+            final RNSentryMemoryPressure pressure = memoryPressure;
+            stats.putDouble("throttled", pressure != null ? pressure.getThrottledCount() : 0);
+
+            promise.resolve(stats);
+        } finally {
+            bridgeStats.recordCall("fetchNativeOutboxStats", startNanos);
+        }
     }
 
+    /**
+     * Returns the calls, time spent, bytes written and failures of each bridge method called so far.
+     * The time is the one spent on the native modules thread, envelopes are written in the background.
+     * Bytes written and write failures are counted against the method which captured the envelopes.
+     * Also returns the duration of each phase of the native SDK initialization.
+     */
     @ReactMethod
-    public void addBreadcrumb(final ReadableMap breadcrumb) {
-        Sentry.configureScope(scope -> {
-            Breadcrumb breadcrumbInstance = new Breadcrumb();
-
-            if (breadcrumb.hasKey("message")) {
-                breadcrumbInstance.setMessage(breadcrumb.getString("message"));
-            }
-
-            if (breadcrumb.hasKey("type")) {
-                breadcrumbInstance.setType(breadcrumb.getString("type"));
-            }
-
-            if (breadcrumb.hasKey("category")) {
-                breadcrumbInstance.setCategory(breadcrumb.getString("category"));
-            }
-
-            if (breadcrumb.hasKey("level")) {
-                switch (breadcrumb.getString("level")) {
-                    case "fatal":
-                        breadcrumbInstance.setLevel(SentryLevel.FATAL);
-                        break;
-                    case "warning":
-                        breadcrumbInstance.setLevel(SentryLevel.WARNING);
-                        break;
-                    case "info":
-                        breadcrumbInstance.setLevel(SentryLevel.INFO);
-                        break;
-                    case "debug":
-                        breadcrumbInstance.setLevel(SentryLevel.DEBUG);
-                        break;
-                    case "error":
-                        breadcrumbInstance.setLevel(SentryLevel.ERROR);
-                        break;
-                    default:
-                        breadcrumbInstance.setLevel(SentryLevel.ERROR);
-                        break;
-                }
+    public void fetchNativeStats(Promise promise) {
+        WritableMap methods = Arguments.createMap();
+        for (Map.Entry<String, long[]> entry : bridgeStats.getStats().entrySet()) {
+            long[] stats = entry.getValue();
+            WritableMap method = Arguments.createMap();
+            method.putDouble("calls", stats[RNSentryBridgeStats.CALLS]);
+            method.putDouble("failures", stats[RNSentryBridgeStats.FAILURES]);
+            method.putDouble("totalTimeMs", stats[RNSentryBridgeStats.TIME_NANOS] / 1e6);
+            method.putDouble("bytesWritten", stats[RNSentryBridgeStats.BYTES_WRITTEN]);
+
+            WritableArray bounds = Arguments.createArray();
+            WritableArray counts = Arguments.createArray();
+            for (int i = 0; i < RNSentryBridgeStats.HISTOGRAM_BOUNDS_US.length; i++) {
+                bounds.pushInt(RNSentryBridgeStats.HISTOGRAM_BOUNDS_US[i]);
+                counts.pushDouble(stats[RNSentryBridgeStats.HISTOGRAM + i]);
             }
+            // Calls slower than the last bound.
+            counts.pushDouble(stats[RNSentryBridgeStats.HISTOGRAM + RNSentryBridgeStats.HISTOGRAM_BOUNDS_US.length]);
+
+            WritableMap histogram = Arguments.createMap();
+            histogram.putArray("bounds", bounds);
+            histogram.putArray("counts", counts);
+            method.putMap("latencyHistogram", histogram);
+
+            method.putInt("latencyP50Us", RNSentryBridgeStats.getPercentile(stats, 0.5));
+            method.putInt("latencyP95Us", RNSentryBridgeStats.getPercentile(stats, 0.95));
+            method.putInt("latencyP99Us", RNSentryBridgeStats.getPercentile(stats, 0.99));
+            methods.putMap(entry.getKey(), method);
+        }
+
+        WritableMap initPhases = Arguments.createMap();
+        for (Map.Entry<String, Long> entry : bridgeStats.getInitPhases().entrySet()) {
+            initPhases.putDouble(entry.getKey(), entry.getValue() / 1e6);
+        }
+
+        WritableMap nativeStats = Arguments.createMap();
+        nativeStats.putMap("methods", methods);
+        nativeStats.putMap("initPhasesMs", initPhases);
+        promise.resolve(nativeStats);
+    }
 
-            if (breadcrumb.hasKey("data")) {
-                ReadableMap data = breadcrumb.getMap("data");
-                ReadableMapKeySetIterator it = data.keySetIterator();
-                while (it.hasNextKey()) {
-                    String key = it.nextKey();
-                    String value = data.getString(key);
+    /**
+     * Returns the breadcrumbs the previous process left in the persisted breadcrumbs,
+     * oldest first, or an empty array if these are not persisted.
+     */
+    @ReactMethod
+    public void fetchNativeRecoveredBreadcrumbs(Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            WritableArray breadcrumbs = Arguments.createArray();
+            final RNSentryBreadcrumbRing ring = breadcrumbRing;
+            if (ring != null) {
+                for (Breadcrumb breadcrumb : ring.getRecovered()) {
+                    WritableMap map = Arguments.createMap();
+                    map.putDouble("timestamp", breadcrumb.getTimestamp().getTime() / 1000.0);
+                    if (breadcrumb.getLevel() != null) {
+                        map.putString("level", breadcrumb.getLevel().name().toLowerCase(Locale.ROOT));
+                    }
+                    map.putString("category", breadcrumb.getCategory());
+                    map.putString("type", breadcrumb.getType());
+                    map.putString("message", breadcrumb.getMessage());
 
-                    breadcrumbInstance.setData(key, value);
+                    map.putMap("data", RNSentryMapConverter.toWritable(breadcrumb.getData()));
+                    breadcrumbs.pushMap(map);
                 }
             }
+            promise.resolve(breadcrumbs);
+        } finally {
+            bridgeStats.recordCall("fetchNativeRecoveredBreadcrumbs", startNanos);
+        }
+    }
 
-            scope.addBreadcrumb(breadcrumbInstance);
-        });
+    private static synchronized RNSentryBreadcrumbRing openBreadcrumbRing(Context context, int capacity) {
+        if (breadcrumbRing == null && capacity > 0) {
+            try {
+                breadcrumbRing = RNSentryBreadcrumbRing.open(
+                        new File(context.getCacheDir(), RNSentryBreadcrumbRing.FILE_NAME),
+                        capacity,
+                        RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE);
+            } catch (IOException e) {
+                logger.warning("Error opening the persisted breadcrumbs, breadcrumbs will not be persisted.");
+            }
+        }
+        return breadcrumbRing;
     }
 
-    @ReactMethod
-    public void clearBreadcrumbs() {
-        Sentry.configureScope(scope -> {
-            scope.clearBreadcrumbs();
-        });
+    /**
+     * Clears the breadcrumbs kept outside of the native scope, once these are cleared from it.
+     */
+    private static void onBreadcrumbsCleared() {
+        final RNSentryBreadcrumbRing ring = breadcrumbRing;
+        if (ring != null) {
+            ring.clear();
+        }
+    }
+
+    /**
+     * Expects the trim level names at which to `trimBreadcrumbsLevel`, `pauseFramesTrackingLevel`
+     * and `throttleEnvelopesLevel`, along with `maxBreadcrumbs` and `maxEnvelopesPerSecond`.
+     */
+    private RNSentryMemoryPressure startMemoryPressure(ReadableMap config) {
+        final Context context = getReactApplicationContext();
+        final RNSentryMemoryPressure pressure = new RNSentryMemoryPressure(
+                RNSentryMemoryPressure.levelFromString(
+                        config.hasKey("trimBreadcrumbsLevel")
+                                ? config.getString("trimBreadcrumbsLevel")
+                                : null,
+                        RNSentryMemoryPressure.DEFAULT_TRIM_BREADCRUMBS_LEVEL),
+                RNSentryMemoryPressure.levelFromString(
+                        config.hasKey("pauseFramesTrackingLevel")
+                                ? config.getString("pauseFramesTrackingLevel")
+                                : null,
+                        RNSentryMemoryPressure.DEFAULT_PAUSE_FRAMES_TRACKING_LEVEL),
+                RNSentryMemoryPressure.levelFromString(
+                        config.hasKey("throttleEnvelopesLevel")
+                                ? config.getString("throttleEnvelopesLevel")
+                                : null,
+                        RNSentryMemoryPressure.DEFAULT_THROTTLE_ENVELOPES_LEVEL),
+                config.hasKey("maxBreadcrumbs")
+                        ? config.getInt("maxBreadcrumbs")
+                        : RNSentryMemoryPressure.DEFAULT_MAX_BREADCRUMBS,
+                config.hasKey("maxEnvelopesPerSecond")
+                        ? config.getDouble("maxEnvelopesPerSecond")
+                        : RNSentryMemoryPressure.DEFAULT_MAX_ENVELOPES_PER_SECOND,
+                paused -> {
+                    RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+                    if (tracker != null) {
+                        tracker.setPaused(paused, getCurrentActivity());
+                    }
+                });
+        context.getApplicationContext().registerComponentCallbacks(pressure);
+        memoryPressure = pressure;
+        return pressure;
+    }
+
+    private static void stopMemoryPressure(Context context) {
+        final RNSentryMemoryPressure pressure = memoryPressure;
+        memoryPressure = null;
+        if (pressure != null) {
+            context.getApplicationContext().unregisterComponentCallbacks(pressure);
+            pressure.close();
+        }
+    }
+
+    /**
+     * Tags the event payload as captured in low memory, or returns it as it is if it can't be parsed.
+     */
+    private static String markLowMemory(String payload) {
+        try {
+            final JSONObject event = new JSONObject(payload);
+            JSONObject tags = event.optJSONObject("tags");
+            if (tags == null) {
+                tags = new JSONObject();
+                event.put("tags", tags);
+            }
+            tags.put(RNSentryMemoryPressure.LOW_MEMORY_TAG, "true");
+            return event.toString();
+        } catch (JSONException e) {
+            return payload;
+        }
     }
 
     @ReactMethod
-    public void setExtra(String key, String extra) {
-        Sentry.configureScope(scope -> {
-            scope.setExtra(key, extra);
-        });
+    public void getStringBytesLength(String payload, Promise promise) {
+        final long startNanos = System.nanoTime();
+        try {
+            promise.resolve((int) RNSentryEnvelopeWriter.utf8Length(payload));
+        } finally {
+            bridgeStats.recordCall("getStringBytesLength", startNanos);
+        }
+    }
+
+    private static synchronized PackageInfo getPackageInfo(Context ctx) {
+        if (!didLookUpPackageInfo) {
+            didLookUpPackageInfo = true;
+            final long startNanos = System.nanoTime();
+            try {
+                packageInfo = ctx.getPackageManager().getPackageInfo(ctx.getPackageName(), 0);
+            } catch (PackageManager.NameNotFoundException e) {
+                logger.warning("Error getting package info.");
+            }
+            bridgeStats.recordInitPhase("packageInfo", System.nanoTime() - startNanos);
+        }
+        return packageInfo;
     }
 
     @ReactMethod
-    public void setTag(String key, String value) {
-        Sentry.configureScope(scope -> {
-            scope.setTag(key, value);
-        });
+    public void setUser(final ReadableMap user, final ReadableMap otherUserKeys) {
+        if (initGate.defer(() -> setUser(user, otherUserKeys))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                scope.setUser(RNSentryMapConverter.toUser(user, otherUserKeys));
+            });
+        } finally {
+            bridgeStats.recordCall("setUser", startNanos);
+        }
     }
 
     @ReactMethod
-    public void closeNativeSdk(Promise promise) {
-        Sentry.close();
+    public void addBreadcrumb(final ReadableMap breadcrumb) {
+        if (initGate.defer(() -> addBreadcrumb(breadcrumb))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                scope.addBreadcrumb(RNSentryMapConverter.toBreadcrumb(breadcrumb));
+            });
+        } finally {
+            bridgeStats.recordCall("addBreadcrumb", startNanos);
+        }
+    }
 
-        disableNativeFramesTracking();
+    @ReactMethod
+    public void clearBreadcrumbs() {
+        if (initGate.defer(() -> clearBreadcrumbs())) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                scope.clearBreadcrumbs();
+            });
+            onBreadcrumbsCleared();
+        } finally {
+            bridgeStats.recordCall("clearBreadcrumbs", startNanos);
+        }
+    }
 
-        promise.resolve(true);
+    @ReactMethod
+    public void setExtra(String key, String extra) {
+        if (initGate.defer(() -> setExtra(key, extra))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                scope.setExtra(key, extra);
+            });
+        } finally {
+            bridgeStats.recordCall("setExtra", startNanos);
+        }
     }
 
     @ReactMethod
-    public void disableNativeFramesTracking() {
-        if (RNSentryModule.frameMetricsAggregator != null) {
-            RNSentryModule.frameMetricsAggregator.stop();
-            RNSentryModule.frameMetricsAggregator = null;
+    public void setTag(String key, String value) {
+        if (initGate.defer(() -> setTag(key, value))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                scope.setTag(key, value);
+            });
+        } finally {
+            bridgeStats.recordCall("setTag", startNanos);
         }
     }
 
-    private void setEventOriginTag(SentryEvent event) {
-        SdkVersion sdk = event.getSdk();
-        if (sdk != null) {
-            switch (sdk.getName()) {
-                // If the event is from capacitor js, it gets set there and we do not handle it
-                // here.
-                case "sentry.native":
-                    setEventEnvironmentTag(event, "android", "native");
-                    break;
-                case "sentry.java.android":
-                    setEventEnvironmentTag(event, "android", "java");
-                    break;
-                default:
-                    break;
-            }
+    /**
+     * Applies a batch of scope mutations in order, in a single configureScope call.
+     */
+    @ReactMethod
+    public void applyScopeUpdates(final ReadableArray updates) {
+        if (initGate.defer(() -> applyScopeUpdates(updates))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            Sentry.configureScope(scope -> {
+                for (int i = 0; i < updates.size(); i++) {
+                    ReadableMap update = updates.getMap(i);
+                    String op = update != null && update.hasKey("op") ? update.getString("op") : null;
+                    if (op == null) {
+                        continue;
+                    }
+
+                    switch (op) {
+                        case "setUser":
+                            scope.setUser(RNSentryMapConverter.toUser(
+                                    getNullableMap(update, "user"), getNullableMap(update, "otherUserKeys")));
+                            break;
+                        case "setTag":
+                            scope.setTag(update.getString("key"), update.getString("value"));
+                            break;
+                        case "setExtra":
+                            scope.setExtra(update.getString("key"), update.getString("value"));
+                            break;
+                        case "addBreadcrumb":
+                            scope.addBreadcrumb(RNSentryMapConverter.toBreadcrumb(update.getMap("breadcrumb")));
+                            break;
+                        case "clearBreadcrumbs":
+                            scope.clearBreadcrumbs();
+                            onBreadcrumbsCleared();
+                            break;
+                        default:
+                            logger.warning("Unsupported scope update: " + op);
+                            bridgeStats.recordFailure("applyScopeUpdates");
+                            break;
+                    }
+                }
+            });
+        } finally {
+            bridgeStats.recordCall("applyScopeUpdates", startNanos);
         }
     }
 
-    private void setEventEnvironmentTag(SentryEvent event, String origin, String environment) {
-        event.setTag("event.origin", origin);
-        event.setTag("event.environment", environment);
+    private static ReadableMap getNullableMap(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getMap(key) : null;
     }
 
-    private void addPackages(SentryEvent event, SdkVersion sdk) {
-        SdkVersion eventSdk = event.getSdk();
-        if (eventSdk != null && eventSdk.getName().equals("sentry.javascript.react-native") && sdk != null) {
-            List<SentryPackage> sentryPackages = sdk.getPackages();
-            if (sentryPackages != null) {
-                for (SentryPackage sentryPackage : sentryPackages) {
-                    eventSdk.addPackage(sentryPackage.getName(), sentryPackage.getVersion());
+    @ReactMethod
+    public void closeNativeSdk(Promise promise) {
+        if (initGate.defer(() -> closeNativeSdk(promise), () -> rejectInitPending(promise))) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            // Already queued envelopes are still written, before the outbox log is closed.
+            this.outboxLog = null;
+            final RNSentryOutboxLogReader log = takeOutboxLog();
+            closeEnvelopeQueue(() -> {
+                if (log != null) {
+                    log.close();
                 }
-            }
+            });
 
-            List<String> integrations = sdk.getIntegrations();
-            if (integrations != null) {
-                for (String integration : integrations) {
-                    eventSdk.addIntegration(integration);
-                }
-            }
+            Sentry.close();
+
+            stopFrameTracking();
+            stopMemoryPressure(getReactApplicationContext());
+
+            promise.resolve(true);
+        } finally {
+            bridgeStats.recordCall("closeNativeSdk", startNanos);
+        }
+    }
+
+    @ReactMethod
+    public void disableNativeFramesTracking() {
+        if (initGate.defer(() -> disableNativeFramesTracking())) {
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            stopFrameTracking();
+        } finally {
+            bridgeStats.recordCall("disableNativeFramesTracking", startNanos);
+        }
+    }
 
-            event.setSdk(eventSdk);
+    private static void stopFrameTracking() {
+        RNSentryFrameTracker tracker = RNSentryModule.frameTracker;
+        RNSentryModule.frameTracker = null;
+        if (tracker != null) {
+            tracker.stop();
         }
     }
 }
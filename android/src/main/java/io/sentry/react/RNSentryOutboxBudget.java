@@ -0,0 +1,178 @@
+package io.sentry.react;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the envelopes written to the outbox by the React Native SDK within a size and count budget.
+ * The written envelopes are tracked in memory, the outbox is only listed once to pick up the envelopes
+ * of a previous run. Once over budget, low priority envelopes are evicted first, then errors,
+ * oldest first. Crashes are never evicted.
+ */
+final class RNSentryOutboxBudget {
+
+    // Same logger as RNSentryModule.
+    private static final Logger logger = Logger.getLogger("react-native-sentry");
+
+    static final long DEFAULT_MAX_SIZE_BYTES = 5 * 1024 * 1024;
+    static final int DEFAULT_MAX_ENVELOPES = 100;
+
+    enum Priority {
+        /** Transactions, sessions and any other item that is not an error. */
+        LOW("rn0_"),
+        ERROR("rn1_"),
+        CRASH("rn2_");
+
+        // The Android SDK skips outbox files starting with `session`, so the prefix must never be one.
+        final String filePrefix;
+
+        Priority(String filePrefix) {
+            this.filePrefix = filePrefix;
+        }
+
+        static Priority from(String itemType, boolean isCrash) {
+            if (isCrash) {
+                return CRASH;
+            }
+            return itemType == null || "event".equals(itemType) ? ERROR : LOW;
+        }
+    }
+
+    private static final class Entry {
+        final File file;
+        final long size;
+
+        Entry(File file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    private final long maxSizeBytes;
+    private final int maxEnvelopes;
+
+    // Oldest first, indexed by priority ordinal.
+    private final List<ArrayDeque<Entry>> entries = new ArrayList<>();
+    private final long[] evicted = new long[Priority.values().length];
+    private long totalSize = 0;
+    private int totalCount = 0;
+    private boolean didLoadOutbox = false;
+
+    RNSentryOutboxBudget(long maxSizeBytes, int maxEnvelopes) {
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxEnvelopes = maxEnvelopes;
+        for (int i = 0; i < Priority.values().length; i++) {
+            entries.add(new ArrayDeque<>());
+        }
+    }
+
+    static File createFile(String outboxPath, Priority priority) {
+        return new File(outboxPath, priority.filePrefix + UUID.randomUUID().toString());
+    }
+
+    /**
+     * Records an envelope that was written to the outbox and evicts envelopes if over budget.
+     */
+    synchronized void onWritten(File file, Priority priority) {
+        if (!didLoadOutbox) {
+            didLoadOutbox = true;
+            loadOutbox(file.getParentFile(), file);
+        }
+
+        add(file, file.length(), priority);
+        enforce();
+    }
+
+    synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    synchronized int getTotalCount() {
+        return totalCount;
+    }
+
+    synchronized long getEvictedCount(Priority priority) {
+        return evicted[priority.ordinal()];
+    }
+
+    private void add(File file, long size, Priority priority) {
+        entries.get(priority.ordinal()).addLast(new Entry(file, size));
+        totalSize += size;
+        totalCount++;
+    }
+
+    private boolean isOverBudget() {
+        return totalSize > maxSizeBytes || totalCount > maxEnvelopes;
+    }
+
+    private void enforce() {
+        if (!isOverBudget()) {
+            return;
+        }
+
+        // Envelopes already sent by the Android SDK are deleted, these don't count anymore.
+        removeSentEnvelopes();
+
+        for (Priority priority : Arrays.asList(Priority.LOW, Priority.ERROR)) {
+            final ArrayDeque<Entry> queue = entries.get(priority.ordinal());
+            while (isOverBudget() && !queue.isEmpty()) {
+                final Entry entry = queue.pollFirst();
+                totalSize -= entry.size;
+                totalCount--;
+                if (entry.file.delete()) {
+                    evicted[priority.ordinal()]++;
+                }
+            }
+        }
+
+        if (isOverBudget()) {
+            logger.warning("Outbox is over budget with crash envelopes only.");
+        }
+    }
+
+    private void removeSentEnvelopes() {
+        for (ArrayDeque<Entry> queue : entries) {
+            final Iterator<Entry> it = queue.iterator();
+            while (it.hasNext()) {
+                final Entry entry = it.next();
+                if (!entry.file.exists()) {
+                    it.remove();
+                    totalSize -= entry.size;
+                    totalCount--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up the envelopes left in the outbox by a previous run, oldest first.
+     */
+    private void loadOutbox(File outbox, File excluded) {
+        final File[] files = outbox != null ? outbox.listFiles() : null;
+        if (files == null) {
+            return;
+        }
+
+        final List<File> ordered = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(ordered, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        for (File file : ordered) {
+            if (file.equals(excluded)) {
+                continue;
+            }
+            for (Priority priority : Priority.values()) {
+                if (file.getName().startsWith(priority.filePrefix)) {
+                    add(file, file.length(), priority);
+                    break;
+                }
+            }
+        }
+    }
+}
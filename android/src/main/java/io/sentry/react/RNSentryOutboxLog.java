@@ -0,0 +1,353 @@
+package io.sentry.react;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Appends envelopes as records to rolling segment files, instead of creating a file per envelope.
+ * A segment holds a header followed by records of [length int][crc32 int][flags byte][bytes].
+ * A record is streamed in after a blank header, which is only filled in once all of its bytes are written,
+ * so a record torn by a crash has no length or a checksum which doesn't match, and ends the segment.
+ * On open, the torn tail of the last segment is truncated, and the next segment is only created by the first append,
+ * so opening the log to hand over the segments of a previous run writes nothing.
+ * Rotating closes the active segment, completed segments are never written again.
+ */
+final class RNSentryOutboxLog {
+
+    static final String DIRECTORY_NAME = "react-native-outbox-log";
+    static final long DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final int MAGIC = 0x524e534c;
+    private static final int VERSION = 1;
+    // Magic and version.
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    // Length, checksum and flags.
+    static final int RECORD_HEADER_SIZE = 4 + 4 + 1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** Streams the bytes of a record. */
+    interface RecordWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** Receives a record of a segment, its bytes are the given range of the channel. */
+    interface RecordHandler {
+        void onRecord(int flags, FileChannel channel, long position, int length) throws IOException;
+    }
+
+    private final File directory;
+    private final long maxSegmentSize;
+
+    // Guarded by this. Null until the first append to the active segment.
+    private RandomAccessFile activeFile;
+    private long activeSequence;
+    private long activeSize;
+    private int activeRecords;
+    private long activeCreatedAtMs;
+    private boolean isClosed = false;
+
+    private RNSentryOutboxLog(File directory, long maxSegmentSize) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Opens the log in the directory, truncating the torn tail left by a crash, if any.
+     * The segments of the previous run are completed ones.
+     */
+    static RNSentryOutboxLog open(File directory, long maxSegmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create the outbox log directory " + directory);
+        }
+        final RNSentryOutboxLog log = new RNSentryOutboxLog(directory, maxSegmentSize);
+        final List<File> segments = log.listSegments();
+        long nextSequence = 1;
+        if (!segments.isEmpty()) {
+            final File last = segments.get(segments.size() - 1);
+            recover(last);
+            nextSequence = sequenceOf(last) + 1;
+        }
+        log.activeSequence = nextSequence;
+        return log;
+    }
+
+    /**
+     * Appends a record, rotating first if the active segment is full.
+     * The active segment is forced to disk afterwards if sync is set.
+     * Returns the size of the record.
+     */
+    synchronized long append(int flags, boolean sync, RecordWriter write) throws IOException {
+        if (isClosed) {
+            throw new IOException("The outbox log is closed");
+        }
+        if (activeRecords > 0 && activeSize >= maxSegmentSize) {
+            rotate();
+        }
+        if (activeFile == null) {
+            startSegment();
+        }
+
+        final FileChannel channel = activeFile.getChannel();
+        final long start = activeSize;
+        final RecordOutputStream out = new RecordOutputStream(channel, start + RECORD_HEADER_SIZE, flags);
+        try {
+            // Blank until the record is complete.
+            writeFully(channel, ByteBuffer.allocate(RECORD_HEADER_SIZE), start);
+            write.writeTo(out);
+            if (out.length > Integer.MAX_VALUE) {
+                throw new IOException("Record too large");
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            header.putInt((int) out.length);
+            header.putInt((int) out.crc.getValue());
+            header.put((byte) flags);
+            header.flip();
+            writeFully(channel, header, start);
+        } catch (IOException | RuntimeException e) {
+            // Drops what was written of the record.
+            channel.truncate(start);
+            throw e;
+        }
+        if (sync) {
+            channel.force(false);
+        }
+
+        activeSize = start + RECORD_HEADER_SIZE + out.length;
+        activeRecords++;
+        return RECORD_HEADER_SIZE + out.length;
+    }
+
+    /**
+     * Completes the active segment if it holds records, the next append starts the next one.
+     * Returns whether a segment was completed.
+     */
+    synchronized boolean rotate() throws IOException {
+        if (activeRecords == 0) {
+            return false;
+        }
+        final RandomAccessFile completed = activeFile;
+        activeFile = null;
+        activeSequence++;
+        activeRecords = 0;
+        completed.close();
+        return true;
+    }
+
+    /**
+     * Returns how long ago the active segment was started, or -1 if it holds no records.
+     */
+    synchronized long getActiveAgeMs() {
+        return activeRecords > 0 ? System.currentTimeMillis() - activeCreatedAtMs : -1;
+    }
+
+    /**
+     * Returns the completed segments, oldest first.
+     */
+    synchronized List<File> getCompletedSegments() {
+        final List<File> completed = new ArrayList<>();
+        for (File segment : listSegments()) {
+            if (sequenceOf(segment) < activeSequence) {
+                completed.add(segment);
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Closes the active segment, which is completed once the log is opened again.
+     */
+    synchronized void close() {
+        isClosed = true;
+        if (activeFile == null) {
+            return;
+        }
+        try {
+            activeFile.close();
+        } catch (IOException ignored) {
+            // Nothing was left to write.
+        }
+        activeFile = null;
+    }
+
+    /**
+     * Reads the records of a segment in order, up to the first torn or corrupted one.
+     * Returns the number of records read.
+     */
+    static int readSegment(File segment, RecordHandler handler) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            final FileChannel channel = file.getChannel();
+            int count = 0;
+            long position = SEGMENT_HEADER_SIZE;
+            if (!hasValidHeader(channel)) {
+                return 0;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            while (true) {
+                final long length = validRecordLength(channel, position, header);
+                if (length < 0) {
+                    return count;
+                }
+                handler.onRecord(header.get(8), channel, position + RECORD_HEADER_SIZE, (int) length);
+                count++;
+                position += RECORD_HEADER_SIZE + length;
+            }
+        }
+    }
+
+    /**
+     * Truncates the segment after its last complete record.
+     */
+    private static void recover(File segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            final FileChannel channel = file.getChannel();
+            if (!hasValidHeader(channel)) {
+                channel.truncate(0);
+                return;
+            }
+            long position = SEGMENT_HEADER_SIZE;
+            final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            long length;
+            while ((length = validRecordLength(channel, position, header)) >= 0) {
+                position += RECORD_HEADER_SIZE + length;
+            }
+            if (position < channel.size()) {
+                channel.truncate(position);
+            }
+        }
+    }
+
+    private static boolean hasValidHeader(FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        if (channel.size() < SEGMENT_HEADER_SIZE || !readFully(channel, header, 0)) {
+            return false;
+        }
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+    }
+
+    /**
+     * Returns the length of the record at the position, or -1 if it is torn or corrupted.
+     * The header of the record is left in the given buffer.
+     */
+    private static long validRecordLength(FileChannel channel, long position, ByteBuffer header) throws IOException {
+        header.clear();
+        if (!readFully(channel, header, position)) {
+            return -1;
+        }
+        final long length = header.getInt(0) & 0xffffffffL;
+        if (length == 0 || position + RECORD_HEADER_SIZE + length > channel.size()) {
+            return -1;
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(header.get(8));
+        final ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(length, 8192));
+        long read = 0;
+        while (read < length) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), length - read));
+            if (!readFully(channel, chunk, position + RECORD_HEADER_SIZE + read)) {
+                return -1;
+            }
+            crc.update(chunk.array(), 0, chunk.limit());
+            read += chunk.limit();
+        }
+        return (int) crc.getValue() == header.getInt(4) ? length : -1;
+    }
+
+    private void startSegment() throws IOException {
+        final File segment = new File(directory,
+                SEGMENT_PREFIX + String.format(Locale.ROOT, "%019d", activeSequence) + SEGMENT_SUFFIX);
+        final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.flip();
+            file.getChannel().truncate(0);
+            writeFully(file.getChannel(), header, 0);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        activeFile = file;
+        activeSize = SEGMENT_HEADER_SIZE;
+        activeRecords = 0;
+        activeCreatedAtMs = System.currentTimeMillis();
+    }
+
+    private List<File> listSegments() {
+        final File[] files = directory.listFiles(
+                (dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // Sequences are zero padded, so the names sort in order.
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static long sequenceOf(File segment) {
+        final String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the bytes of a record to the channel from the given position, computing their checksum.
+     */
+    private static final class RecordOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final long start;
+        final CRC32 crc = new CRC32();
+        long length = 0;
+
+        RecordOutputStream(FileChannel channel, long start, int flags) {
+            this.channel = channel;
+            this.start = start;
+            crc.update(flags);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeFully(channel, ByteBuffer.wrap(b, off, len), start + length);
+            crc.update(b, off, len);
+            length += len;
+        }
+    }
+}
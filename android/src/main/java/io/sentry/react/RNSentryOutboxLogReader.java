@@ -0,0 +1,160 @@
+package io.sentry.react;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import io.sentry.IEnvelopeReader;
+import io.sentry.SentryEnvelope;
+
+/**
+ * Appends envelopes to a RNSentryOutboxLog and hands its completed segments to the Android SDK.
+ * Segments are completed once full, or once their first record is older than the max segment age,
+ * so an envelope waits at most that long to be handed over.
+ * The records of a segment are read as envelopes on a background thread and given to the sender,
+ * without writing them to the outbox again, then the segment is deleted.
+ * Handing over is at least once: a segment the process died in the middle of is handed over again on the next run,
+ * and a segment with an envelope the sender could not send is kept and handed over again,
+ * the duplicated envelopes keep their event ids, which the server discards.
+ */
+final class RNSentryOutboxLogReader {
+
+    // Same logger as RNSentryModule.
+    private static final Logger logger = Logger.getLogger("react-native-sentry");
+
+    static final long DEFAULT_MAX_SEGMENT_AGE_MS = 1000;
+
+    /** Sends an envelope handed over, see RNSentryModule. Returns false if it is to be handed over again. */
+    interface EnvelopeSender {
+        boolean send(SentryEnvelope envelope);
+    }
+
+    private final RNSentryOutboxLog log;
+    private final IEnvelopeReader envelopeReader;
+    private final EnvelopeSender sender;
+    private final long maxSegmentAgeMs;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean isRotationScheduled = new AtomicBoolean(false);
+    private volatile boolean isClosed = false;
+
+    RNSentryOutboxLogReader(RNSentryOutboxLog log, IEnvelopeReader envelopeReader, EnvelopeSender sender,
+                            long maxSegmentAgeMs) {
+        this.log = log;
+        this.envelopeReader = envelopeReader;
+        this.sender = sender;
+        this.maxSegmentAgeMs = maxSegmentAgeMs;
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "SentryReactNativeOutboxLogReader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+        // Hands over the segments left by the previous run.
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Appends an envelope of the given priority, kept in the flags of its record, to the log.
+     * Unless sync is set, the record is only written to the page cache, which outlives a crash of the app
+     * but not a power loss or a crash of the OS. Returns the size of its record.
+     */
+    long append(RNSentryOutboxBudget.Priority priority, boolean sync, RNSentryOutboxLog.RecordWriter write)
+            throws IOException {
+        final long size = log.append(priority.ordinal(), sync, write);
+        if (isRotationScheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::rotateAndDrain, maxSegmentAgeMs, TimeUnit.MILLISECONDS);
+            } catch (Throwable ignored) {
+                // Closed, the records are handed over on the next run.
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Stops handing segments over and closes the log, the segments left are handed over on the next run.
+     */
+    void close() {
+        isClosed = true;
+        executor.shutdown();
+        log.close();
+    }
+
+    /**
+     * Reads the records of a completed segment as envelopes and gives them to the sender, in order.
+     * Records which are not a readable envelope are skipped. Returns false if the sender did not take one of them,
+     * the records after it are not given to the sender either and the segment is to be handed over again.
+     */
+    static boolean handOver(File segment, IEnvelopeReader envelopeReader, EnvelopeSender sender) throws IOException {
+        final boolean[] isTaken = {true};
+        RNSentryOutboxLog.readSegment(segment, (flags, channel, position, length) -> {
+            if (!isTaken[0]) {
+                return;
+            }
+            // The envelope reader reads the whole envelope into memory anyway.
+            final ByteBuffer record = ByteBuffer.allocate(length);
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + record.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            SentryEnvelope envelope;
+            try {
+                envelope = envelopeReader.read(new ByteArrayInputStream(record.array()));
+            } catch (IOException | RuntimeException e) {
+                envelope = null;
+            }
+            if (envelope == null) {
+                logger.warning("Error reading an envelope of the outbox log, skipping it.");
+                return;
+            }
+            isTaken[0] = sender.send(envelope);
+        });
+        return isTaken[0];
+    }
+
+    private void rotateAndDrain() {
+        isRotationScheduled.set(false);
+        try {
+            log.rotate();
+        } catch (IOException e) {
+            logger.warning("Error rotating the outbox log.");
+        }
+        drain();
+    }
+
+    private void drain() {
+        for (File segment : log.getCompletedSegments()) {
+            if (isClosed) {
+                return;
+            }
+            try {
+                if (!handOver(segment, envelopeReader, sender)) {
+                    // Kept for the next hand over, the envelopes already sent are sent again.
+                    logger.warning("Error sending an envelope of the outbox log, its segment is kept.");
+                    return;
+                }
+            } catch (IOException e) {
+                // Left for the next run.
+                logger.warning("Error handing over an outbox log segment.");
+                return;
+            }
+            // Closed while handing over, the SDK might not have taken all of the envelopes.
+            if (isClosed) {
+                return;
+            }
+            if (!segment.delete()) {
+                logger.warning("Error deleting a handed over outbox log segment.");
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.sentry.react;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sheds envelopes per category before anything is written to the outbox, so a crash loop or
+ * a runaway error handler can't flood the disk and the network with envelopes the server would reject.
+ * Each configured category is sampled first, then limited by a token bucket which refills at a steady rate
+ * up to its burst. Categories which are not configured are never dropped.
+ */
+final class RNSentryRateLimiter {
+
+    static final String CATEGORY_ERROR = "error";
+    static final String CATEGORY_TRANSACTION = "transaction";
+    static final String CATEGORY_SESSION = "session";
+    static final String CATEGORY_DEFAULT = "default";
+
+    private static final class Bucket {
+        private final double sampleRate;
+        // 0 when the category is only sampled.
+        private final double tokensPerNano;
+        private final double capacity;
+
+        private double tokens;
+        private long lastRefillNanos;
+
+        final AtomicLong sampledOut = new AtomicLong();
+        final AtomicLong rateLimited = new AtomicLong();
+
+        Bucket(double sampleRate, double maxPerSecond, double burst) {
+            this.sampleRate = sampleRate;
+            this.tokensPerNano = maxPerSecond > 0 ? maxPerSecond / TimeUnit.SECONDS.toNanos(1) : 0;
+            this.capacity = Math.max(1, burst > 0 ? burst : maxPerSecond);
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        boolean tryAcquire() {
+            if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                sampledOut.incrementAndGet();
+                return false;
+            }
+            if (tokensPerNano > 0 && !tryTakeToken()) {
+                rateLimited.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private synchronized boolean tryTakeToken() {
+            final long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Limits a category, meant to be called before the limiter is in use.
+     *
+     * @param sampleRate the share of envelopes kept, between 0 and 1.
+     * @param maxPerSecond the steady rate of envelopes kept, 0 to not rate limit.
+     * @param burst how many envelopes can be kept at once after a quiet period, defaults to maxPerSecond.
+     */
+    RNSentryRateLimiter limit(String category, double sampleRate, double maxPerSecond, double burst) {
+        buckets.put(category, new Bucket(sampleRate, maxPerSecond, burst));
+        return this;
+    }
+
+    static String categoryOf(String itemType) {
+        if (itemType == null || "event".equals(itemType)) {
+            return CATEGORY_ERROR;
+        }
+        switch (itemType) {
+            case "transaction":
+                return CATEGORY_TRANSACTION;
+            case "session":
+            case "sessions":
+                return CATEGORY_SESSION;
+            default:
+                return CATEGORY_DEFAULT;
+        }
+    }
+
+    /**
+     * Returns whether an envelope of the category should be kept, counting it as dropped otherwise.
+     */
+    boolean tryAcquire(String category) {
+        final Bucket bucket = buckets.get(category);
+        return bucket == null || bucket.tryAcquire();
+    }
+
+    /**
+     * Returns the envelopes dropped so far per configured category, as [sampled out, rate limited].
+     */
+    Map<String, long[]> getDropCounts() {
+        final Map<String, long[]> counts = new HashMap<>();
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            counts.put(entry.getKey(), new long[] {
+                    entry.getValue().sampledOut.get(), entry.getValue().rateLimited.get()
+            });
+        }
+        return counts;
+    }
+}
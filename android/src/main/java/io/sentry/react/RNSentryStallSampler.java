@@ -0,0 +1,147 @@
+package io.sentry.react;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples the stack of the main thread when it is stalled for longer than the frozen frame threshold,
+ * meaning the frame it should be rendering is frozen.
+ * A tick is posted to the main thread and checked on from a background handler at half the threshold.
+ * Only once the tick is pending for longer than the threshold is the main thread stack captured, once per stall.
+ * While the main thread is responsive, this costs a message on each thread per check.
+ */
+final class RNSentryStallSampler {
+
+    // Stalls kept for transactions to pick up, oldest dropped first.
+    static final int MAX_STALLS = 10;
+    // Main thread stack frames kept per stall, innermost first.
+    static final int MAX_STACK_FRAMES = 50;
+
+    /** A stall of the main thread, which started when the tick it delayed was posted. */
+    static final class Stall {
+        final double startTimestampMs;
+        private final long startElapsedMs;
+        // 0 while the main thread is still stalled.
+        private volatile long endElapsedMs = 0;
+        private volatile String[] stackTrace = new String[0];
+
+        Stall(long startElapsedMs) {
+            this.startElapsedMs = startElapsedMs;
+            this.startTimestampMs = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - startElapsedMs);
+        }
+
+        /**
+         * Returns the duration of the stall, so far if it is still ongoing.
+         */
+        long getDurationMs() {
+            final long end = endElapsedMs;
+            return (end > 0 ? end : SystemClock.elapsedRealtime()) - startElapsedMs;
+        }
+
+        String[] getStackTrace() {
+            return stackTrace;
+        }
+    }
+
+    private final long thresholdMs;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable check = this::check;
+    private final Runnable tick = this::tick;
+
+    // Guarded by this.
+    private final ArrayDeque<Stall> stalls = new ArrayDeque<>();
+    private boolean isActive = false;
+    private boolean isTickPending = false;
+    private long tickPostedAt = 0;
+    private Stall currentStall = null;
+
+    /**
+     * @param handler the background handler the checks run on.
+     */
+    RNSentryStallSampler(double thresholdMs, Handler handler) {
+        this.thresholdMs = Math.max(1, (long) thresholdMs);
+        this.handler = handler;
+    }
+
+    /**
+     * Samples while active, so no thread wakes up while the app is in the background.
+     */
+    synchronized void setActive(boolean active) {
+        if (active == isActive) {
+            return;
+        }
+        isActive = active;
+        if (active) {
+            handler.post(check);
+        } else {
+            handler.removeCallbacks(check);
+            mainHandler.removeCallbacks(tick);
+            isTickPending = false;
+            if (currentStall != null) {
+                // Its end is unknown, ends it where it was last seen.
+                currentStall.endElapsedMs = SystemClock.elapsedRealtime();
+                currentStall = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the most recent stalls, oldest first.
+     */
+    synchronized List<Stall> getStalls() {
+        return new ArrayList<>(stalls);
+    }
+
+    private void check() {
+        final long now = SystemClock.elapsedRealtime();
+        Stall stall = null;
+        synchronized (this) {
+            if (!isActive) {
+                return;
+            }
+            if (!isTickPending) {
+                isTickPending = true;
+                tickPostedAt = now;
+                mainHandler.post(tick);
+            } else if (currentStall == null && now - tickPostedAt >= thresholdMs) {
+                stall = new Stall(tickPostedAt);
+                currentStall = stall;
+                if (stalls.size() >= MAX_STALLS) {
+                    stalls.removeFirst();
+                }
+                stalls.addLast(stall);
+            }
+            handler.postDelayed(check, Math.max(1, thresholdMs / 2));
+        }
+        // Sampled outside of the lock, which the main thread takes once unstalled.
+        if (stall != null) {
+            stall.stackTrace = sampleMainThread();
+        }
+    }
+
+    private void tick() {
+        final long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            isTickPending = false;
+            if (currentStall != null) {
+                currentStall.endElapsedMs = now;
+                currentStall = null;
+            }
+        }
+    }
+
+    private static String[] sampleMainThread() {
+        final StackTraceElement[] elements = Looper.getMainLooper().getThread().getStackTrace();
+        final String[] stackTrace = new String[Math.min(elements.length, MAX_STACK_FRAMES)];
+        for (int i = 0; i < stackTrace.length; i++) {
+            stackTrace[i] = elements[i].toString();
+        }
+        return stackTrace;
+    }
+}
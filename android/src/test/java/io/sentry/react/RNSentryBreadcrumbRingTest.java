@@ -0,0 +1,108 @@
+package io.sentry.react;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.sentry.Breadcrumb;
+import io.sentry.SentryLevel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNSentryBreadcrumbRingTest {
+
+    private File path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("breadcrumbs", null).toFile();
+        assertTrue(path.delete());
+    }
+
+    @After
+    public void tearDown() {
+        path.delete();
+    }
+
+    @Test
+    public void recoversDataValuesWithTheirTypes() throws IOException {
+        final Map<String, Object> nested = new HashMap<>();
+        nested.put("status", 200L);
+        final Breadcrumb breadcrumb = new Breadcrumb();
+        breadcrumb.setCategory("http");
+        breadcrumb.setLevel(SentryLevel.INFO);
+        breadcrumb.setData("url", "https://sentry.io");
+        breadcrumb.setData("numeric", "123");
+        breadcrumb.setData("count", 3L);
+        breadcrumb.setData("duration", 1.5);
+        breadcrumb.setData("cached", true);
+        breadcrumb.setData("response", nested);
+        breadcrumb.setData("ids", Arrays.asList(1L, "two"));
+
+        final RNSentryBreadcrumbRing ring = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE);
+        ring.append(breadcrumb);
+        ring.close();
+
+        final List<Breadcrumb> recovered = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE).getRecovered();
+        assertEquals(1, recovered.size());
+        final Breadcrumb result = recovered.get(0);
+        assertEquals("http", result.getCategory());
+        assertEquals(SentryLevel.INFO, result.getLevel());
+        assertEquals(breadcrumb.getTimestamp().getTime(), result.getTimestamp().getTime());
+        assertEquals("https://sentry.io", result.getData("url"));
+        assertEquals("123", result.getData("numeric"));
+        assertEquals(3, ((Number) result.getData("count")).longValue());
+        assertEquals(1.5, ((Number) result.getData("duration")).doubleValue(), 0);
+        assertEquals(true, result.getData("cached"));
+        assertEquals(200, ((Number) ((Map<?, ?>) result.getData("response")).get("status")).longValue());
+        final List<?> ids = (List<?>) result.getData("ids");
+        assertEquals(1, ((Number) ids.get(0)).longValue());
+        assertEquals("two", ids.get(1));
+    }
+
+    @Test
+    public void leavesOutDataEntriesWhichDoNotFit() throws IOException {
+        final Breadcrumb breadcrumb = new Breadcrumb();
+        breadcrumb.setData("large", Collections.nCopies(200, "value"));
+
+        final RNSentryBreadcrumbRing ring = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE);
+        ring.append(breadcrumb);
+        ring.close();
+
+        final List<Breadcrumb> recovered = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE).getRecovered();
+        assertEquals(1, recovered.size());
+        assertFalse(recovered.get(0).getData().containsKey("large"));
+    }
+
+    @Test
+    public void recoversNonFiniteNumbersAndOtherValuesAsStrings() throws IOException {
+        final Breadcrumb breadcrumb = new Breadcrumb();
+        breadcrumb.setData("ratio", Double.NaN);
+        breadcrumb.setData("builder", new StringBuilder("built"));
+
+        final RNSentryBreadcrumbRing ring = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE);
+        ring.append(breadcrumb);
+        ring.close();
+
+        final Breadcrumb result = RNSentryBreadcrumbRing.open(
+                path, 4, RNSentryBreadcrumbRing.DEFAULT_SLOT_SIZE).getRecovered().get(0);
+        assertTrue(Double.isNaN((Double) result.getData("ratio")));
+        assertEquals("built", result.getData("builder"));
+    }
+}
@@ -0,0 +1,130 @@
+package io.sentry.react;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNSentryEnvelopeQueueTest {
+
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch writerBlocked = new CountDownLatch(1);
+    private final CountDownLatch unblockWriter = new CountDownLatch(1);
+    private RNSentryEnvelopeQueue queue;
+
+    @After
+    public void tearDown() {
+        unblockWriter.countDown();
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void dropsOldestEnvelopeWhichIsNotDurable() throws Exception {
+        queue = new RNSentryEnvelopeQueue(
+                new RNSentryEnvelopeWriter(), 2, RNSentryEnvelopeQueue.OverflowPolicy.DROP_OLDEST);
+        blockWriter();
+        final Dropped dropped = new Dropped();
+
+        assertTrue(queue.enqueue(null, write("crash"), true, dropped.callback("crash")));
+        assertTrue(queue.enqueue(null, write("old"), false, dropped.callback("old")));
+        assertTrue(queue.enqueue(null, write("new"), false, dropped.callback("new")));
+
+        assertEquals(Collections.singletonList("old"), dropped.envelopes);
+        unblockWriter.countDown();
+        awaitClosed();
+        assertEquals(3, written.size());
+        assertEquals("crash", written.get(1));
+        assertEquals("new", written.get(2));
+    }
+
+    @Test
+    public void dropsNewEnvelopeWhenOnlyDurableOnesAreQueued() throws Exception {
+        queue = new RNSentryEnvelopeQueue(
+                new RNSentryEnvelopeWriter(), 1, RNSentryEnvelopeQueue.OverflowPolicy.DROP_OLDEST);
+        blockWriter();
+        final Dropped dropped = new Dropped();
+
+        assertTrue(queue.enqueue(null, write("crash"), true, dropped.callback("crash")));
+        assertFalse(queue.enqueue(null, write("new"), false, dropped.callback("new")));
+
+        assertEquals(Collections.singletonList("new"), dropped.envelopes);
+        unblockWriter.countDown();
+        awaitClosed();
+        assertEquals("crash", written.get(1));
+    }
+
+    @Test
+    public void rejectsEnvelopesOnceClosed() {
+        for (RNSentryEnvelopeQueue.OverflowPolicy policy : RNSentryEnvelopeQueue.OverflowPolicy.values()) {
+            final RNSentryEnvelopeQueue closed = new RNSentryEnvelopeQueue(new RNSentryEnvelopeWriter(), 1, policy);
+            closed.close();
+            final Dropped dropped = new Dropped();
+
+            assertFalse(closed.enqueue(null, write("late"), false, dropped.callback("late")));
+            assertEquals(Collections.singletonList("late"), dropped.envelopes);
+        }
+    }
+
+    @Test
+    public void acceptsEnvelopeWhichFailsToBeWritten() throws Exception {
+        queue = new RNSentryEnvelopeQueue(
+                new RNSentryEnvelopeWriter(), 1, RNSentryEnvelopeQueue.OverflowPolicy.DROP_NEWEST);
+        final Dropped dropped = new Dropped();
+
+        assertTrue(queue.enqueue(null, (writer, file) -> {
+            throw new IOException("Disk full");
+        }, false, dropped.callback("failed")));
+        awaitClosed();
+        assertEquals(Collections.singletonList("failed"), dropped.envelopes);
+    }
+
+    /**
+     * Keeps the writer thread busy until unblockWriter is counted down.
+     */
+    private void blockWriter() throws InterruptedException {
+        queue.enqueue(null, (writer, file) -> {
+            writerBlocked.countDown();
+            try {
+                unblockWriter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add("blocker");
+        }, false, null);
+        assertTrue(writerBlocked.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitClosed() throws InterruptedException {
+        final CountDownLatch closed = new CountDownLatch(1);
+        queue.close(closed::countDown);
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    private RNSentryEnvelopeQueue.Write write(String envelope) {
+        return (writer, file) -> written.add(envelope);
+    }
+
+    /** The envelopes whose callback was called as dropped. */
+    private static final class Dropped {
+        final List<String> envelopes = Collections.synchronizedList(new ArrayList<>());
+
+        RNSentryEnvelopeQueue.Callback callback(String envelope) {
+            return isWritten -> {
+                if (!isWritten) {
+                    envelopes.add(envelope);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.sentry.react;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import io.sentry.SentryEvent;
+import io.sentry.protocol.SdkVersion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class RNSentryEventEnricherTest {
+
+    private SdkVersion nativeSdk;
+    private RNSentryEventEnricher enricher;
+
+    @Before
+    public void setUp() {
+        nativeSdk = new SdkVersion("sentry.java.android", "5.5.1");
+        nativeSdk.addPackage("maven:io.sentry:sentry-android-core", "5.5.1");
+        nativeSdk.addIntegration("AnrIntegration");
+        enricher = new RNSentryEventEnricher(nativeSdk);
+    }
+
+    @Test
+    public void mergesNativePackagesAndIntegrationsIntoJsEvents() {
+        final SentryEvent event = jsEvent("ReactNativeErrorHandlers");
+        enricher.enrich(event);
+
+        assertEquals(RNSentryEventEnricher.JS_SDK_NAME, event.getSdk().getName());
+        assertEquals(2, event.getSdk().getPackages().size());
+        assertEquals(Arrays.asList("ReactNativeErrorHandlers", "AnrIntegration"), event.getSdk().getIntegrations());
+    }
+
+    @Test
+    public void givesEachEventItsOwnDescriptor() {
+        final SentryEvent first = jsEvent("ReactNativeErrorHandlers");
+        final SentryEvent second = jsEvent("ReactNativeErrorHandlers");
+        enricher.enrich(first);
+        enricher.enrich(second);
+
+        assertNotSame(first.getSdk(), second.getSdk());
+        first.getSdk().addIntegration("Changed");
+        assertEquals(2, second.getSdk().getIntegrations().size());
+    }
+
+    @Test
+    public void remergesWhenAnIntegrationIsSwapped() {
+        final SentryEvent first = jsEvent("ReactNativeErrorHandlers");
+        enricher.enrich(first);
+
+        final SentryEvent swapped = jsEvent("DeviceContext");
+        enricher.enrich(swapped);
+
+        assertEquals(Arrays.asList("DeviceContext", "AnrIntegration"), swapped.getSdk().getIntegrations());
+    }
+
+    @Test
+    public void remergesWhenANativePackageIsAdded() {
+        enricher.enrich(jsEvent("ReactNativeErrorHandlers"));
+        nativeSdk.addPackage("maven:io.sentry:sentry-android-ndk", "5.5.1");
+
+        final SentryEvent event = jsEvent("ReactNativeErrorHandlers");
+        enricher.enrich(event);
+
+        assertEquals(3, event.getSdk().getPackages().size());
+        assertEquals("maven:io.sentry:sentry-android-ndk", event.getSdk().getPackages().get(2).getName());
+    }
+
+    @Test
+    public void leavesOutTheNativeEntriesTheJsDescriptorHas() {
+        final SentryEvent event = jsEvent("AnrIntegration");
+        event.getSdk().addPackage("maven:io.sentry:sentry-android-core", "5.5.1");
+        enricher.enrich(event);
+        enricher.enrich(event);
+
+        assertEquals(2, event.getSdk().getPackages().size());
+        assertEquals(Arrays.asList("AnrIntegration"), event.getSdk().getIntegrations());
+    }
+
+    @Test
+    public void tagsNativeEventsWithTheirOrigin() {
+        final SentryEvent event = new SentryEvent();
+        event.setSdk(new SdkVersion("sentry.native", "0.4.12"));
+        enricher.enrich(event);
+
+        assertEquals("android", event.getTag("event.origin"));
+        assertEquals("native", event.getTag("event.environment"));
+        assertNull(event.getSdk().getPackages());
+    }
+
+    private static SentryEvent jsEvent(String integration) {
+        final SdkVersion sdk = new SdkVersion(RNSentryEventEnricher.JS_SDK_NAME, "3.2.9");
+        sdk.addPackage("npm:@sentry/react-native", "3.2.9");
+        sdk.addIntegration(integration);
+        final SentryEvent event = new SentryEvent();
+        event.setSdk(sdk);
+        return event;
+    }
+}
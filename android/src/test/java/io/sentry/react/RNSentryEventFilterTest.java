@@ -0,0 +1,146 @@
+package io.sentry.react;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.sentry.GsonSerializer;
+import io.sentry.SentryEnvelope;
+import io.sentry.SentryEnvelopeItem;
+import io.sentry.SentryEvent;
+import io.sentry.SentryOptions;
+import io.sentry.protocol.Mechanism;
+import io.sentry.protocol.SdkVersion;
+import io.sentry.protocol.SentryException;
+import io.sentry.protocol.SentryStackFrame;
+import io.sentry.protocol.SentryStackTrace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RNSentryEventFilterTest {
+
+    private static final String ENVELOPE_HEADER = "{\"event_id\":\"0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d\"}";
+    private static final String JS_ERROR = "{\"event_id\":\"0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d\",\"level\":\"error\","
+            + "\"platform\":\"javascript\","
+            + "\"sdk\":{\"name\":\"sentry.javascript.react-native\",\"version\":\"3.2.9\"},"
+            + "\"exception\":{\"values\":[{\"type\":\"TypeError\",\"value\":\"undefined is not a function\","
+            + "\"stacktrace\":{\"frames\":[{\"function\":\"onPress\",\"filename\":\"app:///index.bundle\","
+            + "\"lineno\":100}]}}]}}";
+
+    private RNSentryDedupCache dedupCache;
+    private GsonSerializer serializer;
+
+    @Before
+    public void setUp() {
+        dedupCache = new RNSentryDedupCache(
+                RNSentryDedupCache.DEFAULT_WINDOW_MS, RNSentryDedupCache.DEFAULT_MAX_ENTRIES);
+        serializer = new GsonSerializer(new SentryOptions());
+    }
+
+    @Test
+    public void keepsJsErrorReplayedFromTheOutbox() throws Exception {
+        final RNSentryEventFilter filter = new RNSentryEventFilter(dedupCache, new RNSentryRateLimiter());
+
+        // Captured over the bridge.
+        final String payload = dedupCache.collapse(JS_ERROR);
+        assertNotNull(payload);
+
+        // Replayed from the outbox by the Android SDK, which runs beforeSend.
+        final SentryEvent event = replay(payload);
+        assertEquals(RNSentryDedupCache.fingerprint(event), RNSentryDedupCache.fingerprint(new JSONObject(JS_ERROR)));
+        assertSame(event, filter.filter(event));
+    }
+
+    @Test
+    public void dropsRepeatedJsErrorOnCapture() throws Exception {
+        assertNotNull(dedupCache.collapse(JS_ERROR));
+        assertNull(dedupCache.collapse(JS_ERROR));
+    }
+
+    @Test
+    public void dropsRepeatedNativeEvent() {
+        final RNSentryEventFilter filter = new RNSentryEventFilter(dedupCache, new RNSentryRateLimiter());
+
+        assertNotNull(filter.filter(nativeEvent()));
+        assertNull(filter.filter(nativeEvent()));
+    }
+
+    @Test
+    public void doesNotRateLimitJsErrorTwice() throws Exception {
+        final RNSentryRateLimiter rateLimiter = new RNSentryRateLimiter()
+                .limit(RNSentryRateLimiter.CATEGORY_ERROR, 1, 1, 1);
+        final RNSentryEventFilter filter = new RNSentryEventFilter(null, rateLimiter);
+
+        // Captured over the bridge, taking the only token.
+        assertTrue(rateLimiter.tryAcquire(RNSentryRateLimiter.CATEGORY_ERROR));
+
+        final SentryEvent event = replay(JS_ERROR);
+        assertSame(event, filter.filter(event));
+        assertNull(filter.filter(nativeEvent()));
+    }
+
+    @Test
+    public void keepsCrashesOverTheRateLimit() {
+        final RNSentryEventFilter filter = new RNSentryEventFilter(
+                null, new RNSentryRateLimiter().limit(RNSentryRateLimiter.CATEGORY_ERROR, 0, 0, 0));
+        final SentryEvent event = nativeEvent();
+        final Mechanism mechanism = new Mechanism();
+        mechanism.setHandled(false);
+        event.getExceptions().get(0).setMechanism(mechanism);
+
+        assertSame(event, filter.filter(event));
+        assertNull(filter.filter(nativeEvent()));
+    }
+
+    @Test
+    public void dropsJavascriptException() {
+        final RNSentryEventFilter filter = new RNSentryEventFilter(null, new RNSentryRateLimiter());
+        final SentryEvent event = nativeEvent();
+        event.getExceptions().get(0).setType("com.facebook.react.common.JavascriptException");
+
+        assertNull(filter.filter(event));
+    }
+
+    /**
+     * Writes the event to an envelope and reads it back as OutboxSender does.
+     */
+    private SentryEvent replay(String payload) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RNSentryEnvelopeWriter().write(out, ENVELOPE_HEADER, "event", payload);
+
+        final SentryEnvelope envelope = serializer.deserializeEnvelope(new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(envelope);
+        final SentryEnvelopeItem item = envelope.getItems().iterator().next();
+        return serializer.deserialize(
+                new InputStreamReader(new ByteArrayInputStream(item.getData()), StandardCharsets.UTF_8),
+                SentryEvent.class);
+    }
+
+    private static SentryEvent nativeEvent() {
+        final SentryStackFrame frame = new SentryStackFrame();
+        frame.setModule("io.sentry.sample.MainActivity");
+        frame.setFunction("onClick");
+        frame.setLineno(42);
+        final SentryStackTrace stacktrace = new SentryStackTrace();
+        stacktrace.setFrames(Arrays.asList(frame));
+        final SentryException exception = new SentryException();
+        exception.setType("IllegalStateException");
+        exception.setValue("Not attached");
+        exception.setStacktrace(stacktrace);
+
+        final SentryEvent event = new SentryEvent();
+        event.setSdk(new SdkVersion("sentry.java.android", "5.5.1"));
+        event.setExceptions(Arrays.asList(exception));
+        return event;
+    }
+}
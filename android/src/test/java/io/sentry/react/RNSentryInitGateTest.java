@@ -0,0 +1,46 @@
+package io.sentry.react;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNSentryInitGateTest {
+
+    @Test
+    public void replaysHeldBackCallsInOrder() {
+        final RNSentryInitGate gate = new RNSentryInitGate();
+        final List<Integer> calls = new ArrayList<>();
+
+        gate.close();
+        assertTrue(gate.defer(() -> calls.add(1)));
+        assertTrue(gate.defer(() -> calls.add(2)));
+        assertEquals(0, calls.size());
+
+        gate.open();
+        assertEquals(Arrays.asList(1, 2), calls);
+        assertFalse(gate.defer(() -> calls.add(3)));
+    }
+
+    @Test
+    public void dropsCallsOnceFull() {
+        final RNSentryInitGate gate = new RNSentryInitGate();
+        final List<String> calls = new ArrayList<>();
+        gate.close();
+        for (int i = 0; i < RNSentryInitGate.MAX_PENDING_CALLS; i++) {
+            assertTrue(gate.defer(() -> { }));
+        }
+
+        // Neither run now nor replayed, its promise is settled by onDropped.
+        assertTrue(gate.defer(() -> calls.add("call"), () -> calls.add("dropped")));
+        assertEquals(Arrays.asList("dropped"), calls);
+
+        gate.open();
+        assertEquals(Arrays.asList("dropped"), calls);
+    }
+}
@@ -0,0 +1,228 @@
+package io.sentry.react;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import io.sentry.EnvelopeReader;
+import io.sentry.SentryEnvelope;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RNSentryOutboxLogTest {
+
+    private static final String ENVELOPE = "{\"event_id\":\"0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d\"}\n"
+            + "{\"type\":\"event\",\"length\":2}\n"
+            + "{}";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("outbox-log").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void writesSegmentHeaderAndChecksummedRecords() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 2, "first");
+        log.close();
+
+        final File[] segments = directory.listFiles();
+        assertEquals(1, segments.length);
+        assertEquals("segment-0000000000000000001.log", segments[0].getName());
+
+        final ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(segments[0].toPath()));
+        assertEquals(8 + RNSentryOutboxLog.RECORD_HEADER_SIZE + 5, segment.limit());
+        // Magic and version.
+        assertEquals(0x524e534c, segment.getInt());
+        assertEquals(1, segment.getInt());
+        // Length, checksum of the flags and bytes, and flags.
+        final CRC32 crc = new CRC32();
+        crc.update(2);
+        crc.update("first".getBytes(StandardCharsets.UTF_8));
+        assertEquals(5, segment.getInt());
+        assertEquals((int) crc.getValue(), segment.getInt());
+        assertEquals(2, segment.get());
+    }
+
+    @Test
+    public void readsRecordsInOrder() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, "first");
+        append(log, 1, "second");
+        assertTrue(log.rotate());
+        log.close();
+
+        final List<File> completed = log.getCompletedSegments();
+        assertEquals(1, completed.size());
+        final List<String> records = new ArrayList<>();
+        final List<Integer> flags = new ArrayList<>();
+        assertEquals(2, read(completed.get(0), records, flags));
+        assertEquals("first", records.get(0));
+        assertEquals("second", records.get(1));
+        assertEquals(Integer.valueOf(1), flags.get(1));
+    }
+
+    @Test
+    public void rotatesFullSegments() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, 16);
+        append(log, 0, "a full segment");
+        append(log, 0, "the next one");
+        log.close();
+
+        assertEquals(1, log.getCompletedSegments().size());
+        assertEquals(2, directory.listFiles().length);
+    }
+
+    @Test
+    public void opensWithoutCreatingASegment() throws IOException {
+        RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE).close();
+        assertEquals(0, directory.listFiles().length);
+
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, "first");
+        log.close();
+
+        // The segment of the previous run is a completed one.
+        final RNSentryOutboxLog reopened = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        assertEquals(1, reopened.getCompletedSegments().size());
+        assertEquals(1, directory.listFiles().length);
+        reopened.close();
+    }
+
+    @Test
+    public void truncatesTornTailOnOpen() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, "first");
+        log.close();
+        final File segment = directory.listFiles()[0];
+        final long complete = segment.length();
+
+        // A record whose header was never filled in, as left by a crash.
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(complete);
+            file.write(new byte[RNSentryOutboxLog.RECORD_HEADER_SIZE]);
+            file.write("torn".getBytes(StandardCharsets.UTF_8));
+        }
+
+        RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE).close();
+        assertEquals(complete, segment.length());
+        assertEquals(1, read(segment, new ArrayList<>(), new ArrayList<>()));
+    }
+
+    @Test
+    public void stopsAtRecordWithBadChecksum() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, "first");
+        append(log, 0, "second");
+        append(log, 0, "third");
+        log.close();
+        final File segment = directory.listFiles()[0];
+
+        // Flips a byte of the second record.
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            final long position = 8 + RNSentryOutboxLog.RECORD_HEADER_SIZE + 5 + RNSentryOutboxLog.RECORD_HEADER_SIZE;
+            file.seek(position);
+            final int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0xff);
+        }
+
+        final List<String> records = new ArrayList<>();
+        assertEquals(1, read(segment, records, new ArrayList<>()));
+        assertEquals("first", records.get(0));
+    }
+
+    @Test
+    public void rejectsAppendsOnceClosed() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, "first");
+        log.close();
+
+        try {
+            append(log, 0, "second");
+            fail();
+        } catch (IOException expected) {
+            // The records written are left for the next run.
+        }
+        assertEquals(1, read(directory.listFiles()[0], new ArrayList<>(), new ArrayList<>()));
+    }
+
+    @Test
+    public void handsOverRecordsAsEnvelopes() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, ENVELOPE);
+        append(log, 0, "not an envelope");
+        append(log, 0, ENVELOPE);
+        log.rotate();
+        log.close();
+
+        final List<SentryEnvelope> envelopes = new ArrayList<>();
+        assertTrue(RNSentryOutboxLogReader.handOver(
+                log.getCompletedSegments().get(0), new EnvelopeReader(), envelopes::add));
+        assertEquals(2, envelopes.size());
+        assertEquals("0b6c2ea9d0a94d4a8f7b5b8e3f2a1c9d", envelopes.get(0).getHeader().getEventId().toString());
+        assertArrayEquals(new byte[] {'{', '}'}, data(envelopes.get(1)));
+    }
+
+    @Test
+    public void stopsHandingOverOnceAnEnvelopeIsNotTaken() throws IOException {
+        final RNSentryOutboxLog log = RNSentryOutboxLog.open(directory, RNSentryOutboxLog.DEFAULT_SEGMENT_SIZE);
+        append(log, 0, ENVELOPE);
+        append(log, 0, ENVELOPE);
+        log.rotate();
+        log.close();
+
+        final List<SentryEnvelope> envelopes = new ArrayList<>();
+        assertFalse(RNSentryOutboxLogReader.handOver(
+                log.getCompletedSegments().get(0), new EnvelopeReader(), envelope -> !envelopes.add(envelope)));
+        assertEquals(1, envelopes.size());
+    }
+
+    private static void append(RNSentryOutboxLog log, int flags, String record) throws IOException {
+        log.append(flags, false, out -> out.write(record.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static int read(File segment, List<String> records, List<Integer> flags) throws IOException {
+        return RNSentryOutboxLog.readSegment(segment, (recordFlags, channel, position, length) -> {
+            final ByteBuffer record = ByteBuffer.allocate(length);
+            channel.read(record, position);
+            records.add(new String(record.array(), StandardCharsets.UTF_8));
+            flags.add(recordFlags);
+        });
+    }
+
+    private static byte[] data(SentryEnvelope envelope) {
+        try {
+            return envelope.getItems().iterator().next().getData();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -19,9 +19,14 @@
 
 static bool didFetchAppStart;
 
+// Snapshots of transactions which never finish are dropped, oldest first.
+static const NSInteger maxFrameSnapshots = 100;
+
 @implementation RNSentry {
     bool sentHybridSdkDidBecomeActive;
     SentryOptions *sentryOptions;
+    NSMutableDictionary<NSNumber *, SentryScreenFrames *> *frameSnapshots;
+    NSInteger nextFrameSnapshotId;
 }
 
 - (dispatch_queue_t)methodQueue
@@ -200,6 +205,57 @@ RCT_EXPORT_METHOD(fetchNativeFrames:(RCTPromiseResolveBlock)resolve
     }
 }
 
+RCT_EXPORT_METHOD(startFrameSnapshot:(RCTPromiseResolveBlock)resolve
+                  rejecter:(RCTPromiseRejectBlock)reject)
+{
+    if (!PrivateSentrySDKOnly.isFramesTrackingRunning || PrivateSentrySDKOnly.currentScreenFrames == nil) {
+        resolve(nil);
+        return;
+    }
+
+    if (frameSnapshots == nil) {
+        frameSnapshots = [NSMutableDictionary new];
+    }
+
+    nextFrameSnapshotId++;
+    NSNumber *snapshotId = [NSNumber numberWithInteger:nextFrameSnapshotId];
+    frameSnapshots[snapshotId] = PrivateSentrySDKOnly.currentScreenFrames;
+    [frameSnapshots removeObjectForKey:[NSNumber numberWithInteger:nextFrameSnapshotId - maxFrameSnapshots]];
+
+    resolve(snapshotId);
+}
+
+RCT_EXPORT_METHOD(fetchFrameSnapshot:(nonnull NSNumber *)snapshotId
+                  resolve:(RCTPromiseResolveBlock)resolve
+                  rejecter:(RCTPromiseRejectBlock)reject)
+{
+    resolve([self frameSnapshotDelta:snapshotId]);
+}
+
+RCT_EXPORT_METHOD(finishFrameSnapshot:(nonnull NSNumber *)snapshotId
+                  resolve:(RCTPromiseResolveBlock)resolve
+                  rejecter:(RCTPromiseRejectBlock)reject)
+{
+    NSDictionary *delta = [self frameSnapshotDelta:snapshotId];
+    [frameSnapshots removeObjectForKey:snapshotId];
+    resolve(delta);
+}
+
+- (NSDictionary *)frameSnapshotDelta:(NSNumber *)snapshotId {
+    SentryScreenFrames *start = frameSnapshots[snapshotId];
+    SentryScreenFrames *frames = PrivateSentrySDKOnly.currentScreenFrames;
+
+    if (start == nil || frames == nil) {
+        return nil;
+    }
+
+    return @{
+        @"totalFrames": [NSNumber numberWithLong:frames.total - start.total],
+        @"frozenFrames": [NSNumber numberWithLong:frames.frozen - start.frozen],
+        @"slowFrames": [NSNumber numberWithLong:frames.slow - start.slow],
+    };
+}
+
 RCT_EXPORT_METHOD(fetchNativeRelease:(RCTPromiseResolveBlock)resolve
                   rejecter:(RCTPromiseRejectBlock)reject)
 {
@@ -258,55 +314,14 @@ RCT_EXPORT_METHOD(setUser:(NSDictionary *)user
 )
 {
     [SentrySDK configureScope:^(SentryScope * _Nonnull scope) {
-        if (nil == user && nil == otherUserKeys) {
-            [scope setUser:nil];
-        } else {
-            SentryUser* userInstance = [[SentryUser alloc] init];
-
-            if (nil != user) {
-                [userInstance setUserId:user[@"id"]];
-                [userInstance setEmail:user[@"email"]];
-                [userInstance setUsername:user[@"username"]];
-            }
-
-            if (nil != otherUserKeys) {
-                [userInstance setData:otherUserKeys];
-            }
-
-            [scope setUser:userInstance];
-        }
+        [self setUser:user otherUserKeys:otherUserKeys onScope:scope];
     }];
 }
 
 RCT_EXPORT_METHOD(addBreadcrumb:(NSDictionary *)breadcrumb)
 {
     [SentrySDK configureScope:^(SentryScope * _Nonnull scope) {
-        SentryBreadcrumb* breadcrumbInstance = [[SentryBreadcrumb alloc] init];
-
-        NSString * levelString = breadcrumb[@"level"];
-        SentryLevel sentryLevel;
-        if ([levelString isEqualToString:@"fatal"]) {
-            sentryLevel = kSentryLevelFatal;
-        } else if ([levelString isEqualToString:@"warning"]) {
-            sentryLevel = kSentryLevelWarning;
-        } else if ([levelString isEqualToString:@"info"]) {
-            sentryLevel = kSentryLevelInfo;
-        } else if ([levelString isEqualToString:@"debug"]) {
-            sentryLevel = kSentryLevelDebug;
-        } else {
-            sentryLevel = kSentryLevelError;
-        }
-        [breadcrumbInstance setLevel:sentryLevel];
-
-        [breadcrumbInstance setCategory:breadcrumb[@"category"]];
-
-        [breadcrumbInstance setType:breadcrumb[@"type"]];
-
-        [breadcrumbInstance setMessage:breadcrumb[@"message"]];
-
-        [breadcrumbInstance setData:breadcrumb[@"data"]];
-
-        [scope addBreadcrumb:breadcrumbInstance];
+        [scope addBreadcrumb:[self createBreadcrumb:breadcrumb]];
     }];
 }
 
@@ -343,6 +358,86 @@ RCT_EXPORT_METHOD(setTag:(NSString *)key
     }];
 }
 
+RCT_EXPORT_METHOD(applyScopeUpdates:(NSArray *)updates)
+{
+    [SentrySDK configureScope:^(SentryScope * _Nonnull scope) {
+        for (NSDictionary *update in updates) {
+            NSString *op = update[@"op"];
+            if ([op isEqualToString:@"setUser"]) {
+                [self setUser:[self nullableValue:update[@"user"]]
+                otherUserKeys:[self nullableValue:update[@"otherUserKeys"]]
+                      onScope:scope];
+            } else if ([op isEqualToString:@"setTag"]) {
+                [scope setTagValue:update[@"value"] forKey:update[@"key"]];
+            } else if ([op isEqualToString:@"setExtra"]) {
+                [scope setExtraValue:update[@"value"] forKey:update[@"key"]];
+            } else if ([op isEqualToString:@"setContext"]) {
+                [scope setContextValue:[self nullableValue:update[@"context"]] forKey:update[@"key"]];
+            } else if ([op isEqualToString:@"addBreadcrumb"]) {
+                [scope addBreadcrumb:[self createBreadcrumb:update[@"breadcrumb"]]];
+            } else if ([op isEqualToString:@"clearBreadcrumbs"]) {
+                [scope clearBreadcrumbs];
+            }
+        }
+    }];
+}
+
+- (id)nullableValue:(id)value
+{
+    return value == [NSNull null] ? nil : value;
+}
+
+- (void)setUser:(NSDictionary *)user otherUserKeys:(NSDictionary *)otherUserKeys onScope:(SentryScope *)scope
+{
+    if (nil == user && nil == otherUserKeys) {
+        [scope setUser:nil];
+    } else {
+        SentryUser* userInstance = [[SentryUser alloc] init];
+
+        if (nil != user) {
+            [userInstance setUserId:user[@"id"]];
+            [userInstance setEmail:user[@"email"]];
+            [userInstance setUsername:user[@"username"]];
+        }
+
+        if (nil != otherUserKeys) {
+            [userInstance setData:otherUserKeys];
+        }
+
+        [scope setUser:userInstance];
+    }
+}
+
+- (SentryBreadcrumb *)createBreadcrumb:(NSDictionary *)breadcrumb
+{
+    SentryBreadcrumb* breadcrumbInstance = [[SentryBreadcrumb alloc] init];
+
+    NSString * levelString = breadcrumb[@"level"];
+    SentryLevel sentryLevel;
+    if ([levelString isEqualToString:@"fatal"]) {
+        sentryLevel = kSentryLevelFatal;
+    } else if ([levelString isEqualToString:@"warning"]) {
+        sentryLevel = kSentryLevelWarning;
+    } else if ([levelString isEqualToString:@"info"]) {
+        sentryLevel = kSentryLevelInfo;
+    } else if ([levelString isEqualToString:@"debug"]) {
+        sentryLevel = kSentryLevelDebug;
+    } else {
+        sentryLevel = kSentryLevelError;
+    }
+    [breadcrumbInstance setLevel:sentryLevel];
+
+    [breadcrumbInstance setCategory:breadcrumb[@"category"]];
+
+    [breadcrumbInstance setType:breadcrumb[@"type"]];
+
+    [breadcrumbInstance setMessage:breadcrumb[@"message"]];
+
+    [breadcrumbInstance setData:breadcrumb[@"data"]];
+
+    return breadcrumbInstance;
+}
+
 RCT_EXPORT_METHOD(crash)
 {
     [SentrySDK crash];
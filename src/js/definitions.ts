@@ -2,16 +2,105 @@ import { Breadcrumb, Package } from "@sentry/types";
 
 import { ReactNativeOptions } from "./options";
 
+export type NativeAppStartPhase = {
+  op: string;
+  description: string;
+  /** Start of the phase in ms since the epoch. */
+  startTimestampMs: number;
+  /** End of the phase in ms since the epoch. */
+  endTimestampMs: number;
+};
+
 export type NativeAppStartResponse = {
   isColdStart: boolean;
   appStartTime: number;
   didFetchAppStart: boolean;
+  /**
+   * The phases of a cold start, in the order they started. Only available on Android.
+   * `app.start.application_on_create` starts as the SDK content provider is created, so it also includes
+   * the content providers created after it, before `Application.onCreate`.
+   */
+  phases?: NativeAppStartPhase[];
+};
+
+export type NativeFrameTimeHistogram = {
+  /** Upper bounds in ms of the buckets. */
+  bounds: number[];
+  /** Frames per bucket, the last count holds the frames slower than the last bound. */
+  counts: number[];
+};
+
+export type NativeMainThreadStall = {
+  /** Start of the stall in ms since the epoch. */
+  startTimestampMs: number;
+  /** Duration of the stall in ms, so far if it was still ongoing. */
+  durationMs: number;
+  /** The main thread stack sampled during the stall, innermost frame first. */
+  stackTrace: string[];
 };
 
 export type NativeFramesResponse = {
   totalFrames: number;
   slowFrames: number;
   frozenFrames: number;
+  /** Only available on Android. */
+  frameTimeHistogram?: NativeFrameTimeHistogram;
+  /** Upper bound in ms of the histogram bucket holding the percentile. Only available on Android. */
+  frameTimeP50?: number;
+  frameTimeP95?: number;
+  frameTimeP99?: number;
+  /**
+   * The most recent stalls of the main thread, only returned by the frame snapshot methods.
+   * Only available on Android.
+   */
+  mainThreadStalls?: NativeMainThreadStall[];
+  /** The frames rendered by each activity class, only returned by fetchNativeFrames. Only available on Android. */
+  activities?: Record<
+    string,
+    { totalFrames: number; slowFrames: number; frozenFrames: number }
+  >;
+};
+
+export type NativeOutboxStatsResponse = {
+  /** Number of envelopes in the outbox written by the React Native SDK. */
+  envelopeCount: number;
+  /** Size in bytes of these envelopes. */
+  size: number;
+  /** Transactions, sessions and other non-error envelopes evicted to stay within budget. */
+  evictedLowPriority: number;
+  /** Error envelopes evicted to stay within budget. */
+  evictedErrors: number;
+  /** Envelopes dropped by the native rate limits, keyed by category. */
+  dropped: Record<string, { sampledOut: number; rateLimited: number }>;
+  /** Repeated events collapsed into the occurrences of a kept event. */
+  duplicates: number;
+  /** Envelopes dropped while writes were throttled under memory pressure. */
+  throttled: number;
+};
+
+export type NativeMethodStats = {
+  calls: number;
+  /** Failed envelope writes, missing outbox and unsupported scope updates. */
+  failures: number;
+  /** Time spent on the native modules thread. */
+  totalTimeMs: number;
+  /** Bytes written to the outbox by the envelopes captured with this method. */
+  bytesWritten: number;
+  /** Call times bucketed by their upper bound in microseconds, the last count is for slower calls. */
+  latencyHistogram: { bounds: number[]; counts: number[] };
+  latencyP50Us: number;
+  latencyP95Us: number;
+  latencyP99Us: number;
+};
+
+export type NativeStatsResponse = {
+  /** Stats of each bridge method called so far, keyed by method name. */
+  methods: Record<string, NativeMethodStats>;
+  /**
+   * Duration in ms of each phase of the last native SDK initialization,
+   * and of the package info lookup done on the first `fetchNativeRelease`.
+   */
+  initPhasesMs: Record<string, number>;
 };
 
 export type NativeReleaseResponse = {
@@ -24,6 +113,50 @@ export type NativeDeviceContextsResponse = {
   [key: string]: Record<string, unknown>;
 };
 
+/**
+ * A scope mutation applied natively as part of a batch by applyScopeUpdates.
+ */
+export type NativeScopeUpdate =
+  | {
+      op: "setUser";
+      user: SerializedObject | null;
+      otherUserKeys: Record<string, unknown> | null;
+    }
+  | { op: "setTag"; key: string; value: string }
+  | { op: "setExtra"; key: string; value: string }
+  // Only available on iOS.
+  | { op: "setContext"; key: string; context: SerializedObject | null }
+  | { op: "addBreadcrumb"; breadcrumb: Breadcrumb }
+  | { op: "clearBreadcrumbs" };
+
+/**
+ * A file attached to events by reference, which the Android SDK streams from disk into the envelope.
+ */
+export type NativeAttachment = {
+  /** The absolute path, `file://` URL or `content://` URI of the file. */
+  path: string;
+  /** The name of the attachment in Sentry, the last segment of the path by default. */
+  filename?: string;
+  /** The content type of the attachment. */
+  contentType?: string;
+};
+
+/**
+ * An envelope with a single item, which is assembled on the Android side of the bridge.
+ */
+export type NativeSerializedEnvelope = {
+  /** The serialized envelope header. */
+  header: string;
+  /** The serialized item payload. */
+  payload: string;
+  /** The item type. */
+  type: string;
+  /** Resolve only once the envelope is written to disk instead of once it is queued. */
+  durable?: boolean;
+  /** Files streamed into the envelope after the item. */
+  attachments?: NativeAttachment[];
+};
+
 interface SerializedObject {
   [key: string]: string;
 }
@@ -32,6 +165,7 @@ export interface SentryNativeBridgeModule {
   nativeClientAvailable: boolean;
 
   addBreadcrumb(breadcrumb: Breadcrumb): void;
+  applyScopeUpdates(updates: NativeScopeUpdate[]): void;
   captureEnvelope(
     payload:
       | string
@@ -40,6 +174,14 @@ export interface SentryNativeBridgeModule {
           payload: Record<string, unknown>;
         }
   ): PromiseLike<boolean>;
+  /** Android only. */
+  captureSerializedEnvelope(
+    envelope: NativeSerializedEnvelope
+  ): PromiseLike<boolean>;
+  /** Android only. Resolves with whether each envelope was written, in order. */
+  captureEnvelopes(
+    envelopes: NativeSerializedEnvelope[]
+  ): PromiseLike<boolean[]>;
   clearBreadcrumbs(): void;
   crash(): void;
   closeNativeSdk(): PromiseLike<void>;
@@ -53,11 +195,24 @@ export interface SentryNativeBridgeModule {
   fetchNativeDeviceContexts(): PromiseLike<NativeDeviceContextsResponse>;
   fetchNativeAppStart(): PromiseLike<NativeAppStartResponse | null>;
   fetchNativeFrames(): PromiseLike<NativeFramesResponse | null>;
+  startFrameSnapshot(): PromiseLike<number | null>;
+  fetchFrameSnapshot(
+    snapshotId: number
+  ): PromiseLike<NativeFramesResponse | null>;
+  finishFrameSnapshot(
+    snapshotId: number
+  ): PromiseLike<NativeFramesResponse | null>;
+  /** Android only. */
+  fetchNativeOutboxStats(): PromiseLike<NativeOutboxStatsResponse>;
+  /** Android only. */
+  fetchNativeStats(): PromiseLike<NativeStatsResponse>;
+  /** Android only. */
+  fetchNativeRecoveredBreadcrumbs(): PromiseLike<Breadcrumb[]>;
   getStringBytesLength(str: string): Promise<number>;
   initNativeSdk(options: ReactNativeOptions): Promise<boolean>;
   setUser(
     defaultUserKeys: SerializedObject | null,
-    otherUserKeys: SerializedObject | null
+    otherUserKeys: Record<string, unknown> | null
   ): void;
   setContext(key: string, value: SerializedObject | null): void;
   setExtra(key: string, value: string): void;
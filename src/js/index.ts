@@ -57,6 +57,7 @@ import { SDK_NAME, SDK_VERSION } from "./version";
 
 export { ReactNativeBackend } from "./backend";
 export { ReactNativeOptions } from "./options";
+export { NativeAttachment } from "./definitions";
 export { ReactNativeClient } from "./client";
 
 export {
@@ -67,6 +68,8 @@ export {
   // eslint-disable-next-line deprecation/deprecation
   setRelease,
   nativeCrash,
+  addNativeAttachment,
+  clearNativeAttachments,
   flush,
   close,
 } from "./sdk";
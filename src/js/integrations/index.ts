@@ -1,5 +1,6 @@
 export { DebugSymbolicator } from "./debugsymbolicator";
 export { DeviceContext } from "./devicecontext";
+export { NativeStats } from "./nativestats";
 export { ReactNativeErrorHandlers } from "./reactnativeerrorhandlers";
 export { Release } from "./release";
 export { EventOrigin } from "./eventorigin";
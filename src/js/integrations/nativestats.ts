@@ -0,0 +1,53 @@
+import { addGlobalEventProcessor, getCurrentHub } from "@sentry/core";
+import { Event, Integration } from "@sentry/types";
+import { logger } from "@sentry/utils";
+
+import { NATIVE } from "../wrapper";
+
+/** Attaches the overhead of the native bridge methods of the SDK to transactions. */
+export class NativeStats implements Integration {
+  /**
+   * @inheritDoc
+   */
+  public static id: string = "NativeStats";
+
+  /**
+   * @inheritDoc
+   */
+  public name: string = NativeStats.id;
+
+  /**
+   * @inheritDoc
+   */
+  public setupOnce(): void {
+    addGlobalEventProcessor(async (event: Event) => {
+      const self = getCurrentHub().getIntegration(NativeStats);
+      if (!self || event.type !== "transaction") {
+        return event;
+      }
+
+      try {
+        const nativeStats = await NATIVE.fetchNativeStats();
+        if (nativeStats) {
+          const methods: Record<string, Record<string, number>> = {};
+          Object.keys(nativeStats.methods).forEach((name) => {
+            const method = nativeStats.methods[name];
+            // Histograms are left out to keep the context small.
+            methods[name] = {
+              calls: method.calls,
+              failures: method.failures,
+              total_time_ms: method.totalTimeMs,
+              bytes_written: method.bytesWritten,
+              latency_p95_us: method.latencyP95Us,
+            };
+          });
+          event.contexts = { ...event.contexts, native_stats: methods };
+        }
+      } catch (e) {
+        logger.log(`Failed to get native bridge stats: ${e}`);
+      }
+
+      return event;
+    });
+  }
+}
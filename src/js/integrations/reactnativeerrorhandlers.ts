@@ -4,6 +4,7 @@ import { Integration, Severity } from "@sentry/types";
 import { addExceptionMechanism, getGlobalObject, logger } from "@sentry/utils";
 
 import { ReactNativeClient } from "../client";
+import { flushNativeScope } from "../scope";
 
 /** ReactNativeErrorHandlers Options */
 interface ReactNativeErrorHandlersOptions {
@@ -192,6 +193,11 @@ export class ReactNativeErrorHandlers implements Integration {
 
         currentHub.captureEvent(event);
 
+        if (isFatal) {
+          // The default handler crashes the app, the native SDKs should have the latest scope for it.
+          flushNativeScope();
+        }
+
         if (!__DEV__) {
           void client.flush(options.shutdownTimeout || 2000).then(() => {
             defaultHandler(error, isFatal);
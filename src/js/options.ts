@@ -4,6 +4,19 @@ import { CaptureContext } from "@sentry/types/dist/scope";
 
 import { TouchEventBoundaryProps } from "./touchevents";
 
+/**
+ * An Android `onTrimMemory` level, from the least to the most severe.
+ * The `ui_hidden` and `background` levels are left out, as these only tell the app went to the background.
+ * `never` disables what it configures.
+ */
+export type TrimMemoryLevel =
+  | "running_moderate"
+  | "running_low"
+  | "running_critical"
+  | "moderate"
+  | "complete"
+  | "never";
+
 /**
  * Configuration options for the Sentry ReactNative SDK.
  * @see ReactNativeFrontend for more information.
@@ -70,9 +83,209 @@ export interface ReactNativeOptions extends BrowserOptions {
     didCallNativeInit: boolean;
   }) => void;
 
+  /**
+   * Time window in milliseconds in which envelopes are coalesced into a single native bridge call on Android.
+   * Unhandled errors are always sent right away. Set to `0` to send every envelope on its own.
+   *
+   * @default 20
+   */
+  envelopeBatchWindowMs?: number;
+
+  /**
+   * Maximum number of envelopes waiting to be written to disk by the background writer on Android.
+   *
+   * @default 100
+   */
+  envelopeQueueSize?: number;
+
+  /**
+   * What the background writer on Android does with a new envelope when its queue is full:
+   * drop the oldest queued envelope, drop the new one, or block the native bridge until there is room.
+   *
+   * @default "dropOldest"
+   */
+  envelopeQueueOverflowPolicy?: "dropOldest" | "dropNewest" | "block";
+
+  /**
+   * Maximum size in bytes of the envelopes kept in the outbox on Android while they can't be sent.
+   * Once exceeded, transactions and sessions are evicted first, then the oldest errors. Crashes are always kept.
+   *
+   * @default 5242880
+   */
+  maxOutboxSize?: number;
+
+  /**
+   * Maximum number of envelopes kept in the outbox on Android while they can't be sent.
+   * Evicts envelopes the same way as `maxOutboxSize`.
+   *
+   * @default 100
+   */
+  maxOutboxEnvelopes?: number;
+
+  /**
+   * Gzips the envelopes written to the outbox on Android, which saves disk space while they wait to be sent.
+   *
+   * @default false
+   */
+  compressOutboxEnvelopes?: boolean;
+
+  /**
+   * Maximum size in bytes of a file attached with `addNativeAttachment`, larger files are left out of the event.
+   * Attachments count towards `maxOutboxSize`, which might need to be raised too.
+   *
+   * @default 20971520
+   */
+  maxAttachmentSize?: number;
+
+  /**
+   * Maximum size in bytes of all of the files attached to an event, the attachments which would go over it
+   * are left out.
+   *
+   * @default 104857600
+   */
+  maxEnvelopeAttachmentsSize?: number;
+
+  /**
+   * Appends envelopes on Android to rolling segment files instead of writing each to its own outbox file,
+   * which saves creating a file per envelope. Completed segments are handed over to the Android SDK
+   * on a background thread. Envelopes written as the app crashes are still written to their own file.
+   *
+   * Handing over is at least once: envelopes of a segment the app was closed or crashed in the middle of handing
+   * over, or of a segment kept because the Android SDK could not send one of them, are sent again. The server
+   * discards the duplicated events by their event id. The log is not fsynced unless `outboxLogSync` is set,
+   * so envelopes appended right before a power loss or an OS crash may be lost.
+   *
+   * @default false
+   */
+  useOutboxLog?: boolean;
+
+  /**
+   * Forces the outbox log to disk after each envelope appended to it, at the cost of a write to the storage
+   * per envelope. Only applies with `useOutboxLog`.
+   *
+   * @default false
+   */
+  outboxLogSync?: boolean;
+
+  /**
+   * Size in bytes after which a segment of the outbox log is completed and handed over.
+   *
+   * @default 1048576
+   */
+  outboxLogSegmentSize?: number;
+
+  /**
+   * Time in milliseconds after which a segment of the outbox log is completed and handed over even if not full,
+   * the most an envelope waits before the Android SDK can send it.
+   *
+   * @default 1000
+   */
+  outboxLogMaxSegmentAgeMs?: number;
+
+  /**
+   * Initializes the Android SDK on a background thread instead of the native modules thread, to keep it out of
+   * the app start. Scope updates, envelopes and frames calls made meanwhile are held back and replayed in order.
+   * Past 100 calls held back, the next ones are dropped until the SDK is initialized, their promise rejected.
+   * Integrations relying on the first activity, such as app start tracking, may miss it.
+   *
+   * @default false
+   */
+  initNativeSdkInBackground?: boolean;
+
+  /**
+   * Persists the last `maxBreadcrumbs` breadcrumbs of the native scope on Android in a fixed-size memory-mapped file,
+   * so the breadcrumbs of a run that crashed or was killed can be read on the next run
+   * with `NATIVE.fetchNativeRecoveredBreadcrumbs()`.
+   *
+   * @default false
+   */
+  persistNativeBreadcrumbs?: boolean;
+
+  /**
+   * Sampling and rate limits applied on Android before envelopes are written to the outbox, keyed by category:
+   * `error`, `transaction`, `session` or `default` for any other item type.
+   * Each category is sampled with `sampleRate`, then kept at a steady `maxPerSecond` with bursts of up to `burst`.
+   * Crashes are never dropped and categories which are not configured are not limited.
+   */
+  nativeRateLimits?: {
+    [category: string]: {
+      sampleRate?: number;
+      maxPerSecond?: number;
+      burst?: number;
+    };
+  };
+
+  /**
+   * Degrades the Android SDK when the system reports memory pressure with `onTrimMemory`.
+   * Off unless set, `{}` enables it with the defaults.
+   * Each degradation starts at its trim level, or never, and ends once the reported level drops below it:
+   * the native scope only keeps its newest `maxBreadcrumbs` breadcrumbs, frame tracking is paused,
+   * and envelopes other than errors are written at most `maxEnvelopesPerSecond`.
+   * Events captured while degraded are tagged with `low_memory`.
+   */
+  memoryPressure?: {
+    /** @default "running_low" */
+    trimBreadcrumbsLevel?: TrimMemoryLevel;
+    /** @default "running_low" */
+    pauseFramesTrackingLevel?: TrimMemoryLevel;
+    /** @default "running_critical" */
+    throttleEnvelopesLevel?: TrimMemoryLevel;
+    /** @default 10 */
+    maxBreadcrumbs?: number;
+    /** @default 1 */
+    maxEnvelopesPerSecond?: number;
+  };
+
+  /**
+   * Events with the same exception type, top frames and message within this window are collapsed on Android
+   * into the first one, the next event kept carries the collapsed count as the `occurrences` extra.
+   * 0 disables the deduplication.
+   *
+   * @default 30000
+   */
+  nativeDedupWindowMs?: number;
+
+  /**
+   * Maximum number of event fingerprints remembered for the deduplication on Android,
+   * the least recently seen are forgotten first.
+   *
+   * @default 100
+   */
+  nativeDedupMaxEntries?: number;
+
   /** Enable auto performance tracking by default. */
   enableAutoPerformanceTracking?: boolean;
 
+  /**
+   * Frames slower than this many milliseconds are counted as slow frames on Android.
+   * Defaults to the frame budget of the display refresh rate, e.g. 11ms at 90Hz, and follows refresh rate changes.
+   */
+  slowFrameThresholdMs?: number;
+
+  /**
+   * Frames slower than this many milliseconds are counted as frozen frames on Android.
+   *
+   * @default 700
+   */
+  frozenFrameThresholdMs?: number;
+
+  /**
+   * Samples the main thread stack when it is stalled for longer than `frozenFrameThresholdMs`,
+   * and attaches the stalls within a transaction to it as the `main_thread_stalls` context. Android only.
+   * The main thread is only checked on while a transaction is running and an activity is shown.
+   *
+   * @default false
+   */
+  sampleMainThreadStalls?: boolean;
+
+  /**
+   * Attaches the calls, time spent, bytes written and failures of the native bridge methods of the SDK
+   * to transactions as the `native_stats` context, to monitor the overhead of the SDK. Android only.
+   *
+   * @default false
+   */
+  attachNativeStats?: boolean;
+
   /**
    * Enables Out of Memory Tracking for iOS and macCatalyst.
    * See the following link for more information and possible restrictions:
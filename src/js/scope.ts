@@ -1,17 +1,200 @@
 import { Scope } from "@sentry/hub";
 import { Breadcrumb, User } from "@sentry/types";
+import { logger } from "@sentry/utils";
 
-import { NATIVE } from "./wrapper";
+import { NATIVE, ScopeUpdate } from "./wrapper";
+
+/** Scope updates made within this window of each other are synced in a single bridge call. */
+const SCOPE_SYNC_DEBOUNCE_MS = 10;
+/** Pending scope updates are synced after at most this delay, even while updates keep coming. */
+const MAX_SCOPE_SYNC_DELAY_MS = 100;
+
+/** The scope syncs with pending updates. */
+const PENDING_SYNCS: Set<NativeScopeSync> = new Set();
+
+/**
+ * Syncs the pending scope updates to the native SDKs right away.
+ * Called before flushing or closing the SDK, and before a fatal error is passed on,
+ * so the native SDKs have the latest scope.
+ */
+export function flushNativeScope(): void {
+  PENDING_SYNCS.forEach((sync) => sync.flush());
+}
+
+/**
+ * Returns the serialized value an update sets, or undefined for breadcrumb updates, which are always synced.
+ */
+function serializeValue(update: ScopeUpdate): string | undefined {
+  switch (update.op) {
+    case "setUser":
+      return JSON.stringify(update.user);
+    case "setTag":
+      return update.value;
+    case "setExtra":
+      return JSON.stringify(update.value);
+    case "setContext":
+      return JSON.stringify(update.context);
+    default:
+      return undefined;
+  }
+}
+
+/**
+ * Coalesces the scope updates synced to the native SDKs.
+ * Updates are debounced, and only the latest value of the user and of each tag, extra and context is synced,
+ * and only if it differs from the value the native scope already has. The values it has are forgotten
+ * once the native SDK is initialized or closed again, and once the scope is cleared.
+ * Updates are synced in the order they were made, a value set again is synced at the position of its latest update,
+ * which leaves the native scope as replaying every update would.
+ */
+export class NativeScopeSync {
+  /** The pending updates in order, keyed by what they set so a later update replaces an earlier one. */
+  private _pending: Map<string, ScopeUpdate> = new Map();
+  private _breadcrumbCount: number = 0;
+
+  /** The serialized values the native scope already has, keyed like the pending updates. */
+  private _synced: Map<string, string> = new Map();
+  /** The generation of the native SDK the synced values were synced to. */
+  private _syncedGeneration: number = NATIVE.nativeScopeGeneration;
+
+  private _timeout: ReturnType<typeof setTimeout> | undefined;
+  private _firstPendingTimestamp: number | undefined;
+
+  /** Sets the user, null clears the user. */
+  public setUser(user: User | null): void {
+    this._set("user", { op: "setUser", user });
+  }
+
+  /** Sets a tag. */
+  public setTag(key: string, value: string): void {
+    this._set(`tag:${key}`, { op: "setTag", key, value });
+  }
+
+  /** Sets an extra. */
+  // eslint-disable-next-line @typescript-eslint/explicit-module-boundary-types,@typescript-eslint/no-explicit-any
+  public setExtra(key: string, extra: any): void {
+    this._set(`extra:${key}`, { op: "setExtra", key, value: extra });
+  }
+
+  /** Sets a context, null removes the context. */
+  // eslint-disable-next-line @typescript-eslint/no-explicit-any
+  public setContext(key: string, context: { [key: string]: any } | null): void {
+    this._set(`context:${key}`, { op: "setContext", key, context });
+  }
+
+  /** Adds a breadcrumb. */
+  public addBreadcrumb(breadcrumb: Breadcrumb): void {
+    this._set(`breadcrumb:${this._breadcrumbCount++}`, {
+      op: "addBreadcrumb",
+      breadcrumb,
+    });
+  }
+
+  /** Clears the breadcrumbs, including the ones not synced yet. */
+  public clearBreadcrumbs(): void {
+    this._pending.forEach((update, key) => {
+      if (update.op === "addBreadcrumb") {
+        this._pending.delete(key);
+      }
+    });
+    this._set("clearBreadcrumbs", { op: "clearBreadcrumbs" });
+  }
+
+  /**
+   * Forgets the values the native scope has, so the next updates are synced whatever their value.
+   */
+  public reset(): void {
+    this._synced.clear();
+  }
+
+  /**
+   * Syncs the pending scope updates to the native SDKs right away.
+   */
+  public flush(): void {
+    if (this._timeout !== undefined) {
+      clearTimeout(this._timeout);
+      this._timeout = undefined;
+    }
+    this._firstPendingTimestamp = undefined;
+    PENDING_SYNCS.delete(this);
+
+    // A native SDK initialized or closed since has none of the values synced before.
+    if (this._syncedGeneration !== NATIVE.nativeScopeGeneration) {
+      this._syncedGeneration = NATIVE.nativeScopeGeneration;
+      this._synced.clear();
+    }
+
+    const updates: ScopeUpdate[] = [];
+    this._pending.forEach((update, key) => {
+      const serialized = serializeValue(update);
+      if (serialized === undefined) {
+        updates.push(update);
+      } else if (this._synced.get(key) !== serialized) {
+        this._synced.set(key, serialized);
+        updates.push(update);
+      }
+    });
+    this._pending.clear();
+
+    if (updates.length === 0) {
+      return;
+    }
+    try {
+      NATIVE.applyScopeUpdates(updates);
+    } catch (e) {
+      logger.error("Failed to sync the scope to the native SDK:", e);
+    }
+  }
+
+  /**
+   * Adds an update to the pending ones, after the others.
+   */
+  private _set(key: string, update: ScopeUpdate): void {
+    // Deleted first, so the update moves to the end.
+    this._pending.delete(key);
+    this._pending.set(key, update);
+    this._schedule();
+  }
+
+  /**
+   * Debounces the sync of the pending updates, up to the max delay since the first pending update.
+   */
+  private _schedule(): void {
+    const now = Date.now();
+    if (this._firstPendingTimestamp === undefined) {
+      this._firstPendingTimestamp = now;
+    }
+    if (this._timeout !== undefined) {
+      clearTimeout(this._timeout);
+    }
+    PENDING_SYNCS.add(this);
+
+    const delay = Math.min(
+      SCOPE_SYNC_DEBOUNCE_MS,
+      Math.max(0, this._firstPendingTimestamp + MAX_SCOPE_SYNC_DELAY_MS - now)
+    );
+    this._timeout = setTimeout(() => this.flush(), delay);
+  }
+}
 
 /**
  * Extends the scope methods to set scope on the Native SDKs
  */
 export class ReactNativeScope extends Scope {
+  private _nativeScopeSync: NativeScopeSync = new NativeScopeSync();
+
+  /**
+   * Syncs the pending scope updates to the native SDKs right away.
+   */
+  public flushNativeScope(): void {
+    this._nativeScopeSync.flush();
+  }
+
   /**
    * @inheritDoc
    */
   public setUser(user: User | null): this {
-    NATIVE.setUser(user);
+    this._nativeScopeSync.setUser(user);
     return super.setUser(user);
   }
 
@@ -19,7 +202,7 @@ export class ReactNativeScope extends Scope {
    * @inheritDoc
    */
   public setTag(key: string, value: string): this {
-    NATIVE.setTag(key, value);
+    this._nativeScopeSync.setTag(key, value);
     return super.setTag(key, value);
   }
 
@@ -27,9 +210,8 @@ export class ReactNativeScope extends Scope {
    * @inheritDoc
    */
   public setTags(tags: { [key: string]: string }): this {
-    // As native only has setTag, we just loop through each tag key.
     Object.keys(tags).forEach((key) => {
-      NATIVE.setTag(key, tags[key]);
+      this._nativeScopeSync.setTag(key, tags[key]);
     });
     return super.setTags(tags);
   }
@@ -40,7 +222,7 @@ export class ReactNativeScope extends Scope {
   // eslint-disable-next-line @typescript-eslint/no-explicit-any
   public setExtras(extras: { [key: string]: any }): this {
     Object.keys(extras).forEach((key) => {
-      NATIVE.setExtra(key, extras[key]);
+      this._nativeScopeSync.setExtra(key, extras[key]);
     });
     return super.setExtras(extras);
   }
@@ -50,7 +232,7 @@ export class ReactNativeScope extends Scope {
    */
   // eslint-disable-next-line @typescript-eslint/explicit-module-boundary-types,@typescript-eslint/no-explicit-any
   public setExtra(key: string, extra: any): this {
-    NATIVE.setExtra(key, extra);
+    this._nativeScopeSync.setExtra(key, extra);
     return super.setExtra(key, extra);
   }
 
@@ -58,7 +240,7 @@ export class ReactNativeScope extends Scope {
    * @inheritDoc
    */
   public addBreadcrumb(breadcrumb: Breadcrumb, maxBreadcrumbs?: number): this {
-    NATIVE.addBreadcrumb(breadcrumb);
+    this._nativeScopeSync.addBreadcrumb(breadcrumb);
     return super.addBreadcrumb(breadcrumb, maxBreadcrumbs);
   }
 
@@ -66,16 +248,24 @@ export class ReactNativeScope extends Scope {
    * @inheritDoc
    */
   public clearBreadcrumbs(): this {
-    NATIVE.clearBreadcrumbs();
+    this._nativeScopeSync.clearBreadcrumbs();
     return super.clearBreadcrumbs();
   }
 
+  /**
+   * @inheritDoc
+   */
+  public clear(): this {
+    this._nativeScopeSync.reset();
+    return super.clear();
+  }
+
   /**
    * @inheritDoc
    */
   // eslint-disable-next-line @typescript-eslint/no-explicit-any
   public setContext(key: string, context: { [key: string]: any } | null): this {
-    NATIVE.setContext(key, context);
+    this._nativeScopeSync.setContext(key, context);
     return super.setContext(key, context);
   }
 }
@@ -7,18 +7,21 @@ import { getGlobalObject, logger } from "@sentry/utils";
 import * as React from "react";
 
 import { ReactNativeClient } from "./client";
+import { NativeAttachment } from "./definitions";
 import {
   DebugSymbolicator,
   DeviceContext,
   EventOrigin,
+  NativeStats,
   ReactNativeErrorHandlers,
   Release,
   SdkInfo,
 } from "./integrations";
 import { ReactNativeOptions, ReactNativeWrapperOptions } from "./options";
-import { ReactNativeScope } from "./scope";
+import { flushNativeScope, ReactNativeScope } from "./scope";
 import { TouchEventBoundary } from "./touchevents";
 import { ReactNativeProfiler, ReactNativeTracing } from "./tracing";
+import { NATIVE } from "./wrapper";
 
 const IGNORED_DEFAULT_INTEGRATIONS = [
   "GlobalHandlers", // We will use the react-native internal handlers
@@ -92,6 +95,9 @@ export function init(passedOptions: ReactNativeOptions): void {
     );
     if (options.enableNative) {
       options.defaultIntegrations.push(new DeviceContext());
+      if (options.attachNativeStats) {
+        options.defaultIntegrations.push(new NativeStats());
+      }
     }
     if (tracingEnabled) {
       if (options.enableAutoPerformanceTracking) {
@@ -167,12 +173,30 @@ export function nativeCrash(): void {
   }
 }
 
+/**
+ * Attaches a file to the errors captured from now on, by its path or `content://` URI.
+ * The file is streamed from disk by the native SDK, without loading it in JS.
+ * Files larger than `maxAttachmentSize` are left out.
+ * NOTE: Only available on Android.
+ */
+export function addNativeAttachment(attachment: NativeAttachment): void {
+  NATIVE.addAttachment(attachment);
+}
+
+/**
+ * Removes the attachments added with `addNativeAttachment`.
+ */
+export function clearNativeAttachments(): void {
+  NATIVE.clearAttachments();
+}
+
 /**
  * Flushes all pending events in the queue to disk.
  * Use this before applying any realtime updates such as code-push or expo updates.
  */
 export async function flush(): Promise<boolean> {
   try {
+    flushNativeScope();
     const client = getCurrentHub().getClient<ReactNativeClient>();
 
     if (client) {
@@ -193,6 +217,8 @@ export async function flush(): Promise<boolean> {
  */
 export async function close(): Promise<void> {
   try {
+    // The native SDK is closed too, so the scope updates not synced yet would be lost.
+    flushNativeScope();
     const client = getCurrentHub().getClient<ReactNativeClient>();
 
     if (client) {
@@ -2,7 +2,11 @@ import { Span, Transaction } from "@sentry/tracing";
 import { Event, EventProcessor } from "@sentry/types";
 import { logger, timestampInSeconds } from "@sentry/utils";
 
-import { NativeFramesResponse } from "../definitions";
+import {
+  NativeFramesResponse,
+  NativeFrameTimeHistogram,
+  NativeMainThreadStall,
+} from "../definitions";
 import { NATIVE } from "../wrapper";
 import { instrumentChildSpanFinish } from "./utils";
 
@@ -11,6 +15,23 @@ type FramesMeasurements = Record<
   { value: number }
 >;
 
+/** The frame time distribution, only computed natively on Android. */
+type FramesContext = {
+  frame_time_p50: number;
+  frame_time_p95: number;
+  frame_time_p99: number;
+  frame_time_histogram: NativeFrameTimeHistogram;
+};
+
+/** The main thread stalls within the transaction, only sampled natively on Android. */
+type MainThreadStallsContext = {
+  stalls: {
+    start_timestamp: number;
+    duration_ms: number;
+    stacktrace: string[];
+  }[];
+};
+
 /**
  * A margin of error of 50ms is allowed for the async native bridge call.
  * Anything larger would reduce the accuracy of our frames measurements.
@@ -21,18 +42,18 @@ const MARGIN_OF_ERROR_SECONDS = 0.05;
  * Instrumentation to add native slow/frozen frames measurements onto transactions.
  */
 export class NativeFramesInstrumentation {
-  /** The native frames at the transaction finish time, keyed by traceId. */
+  /** The native frames rendered until the transaction finish time, keyed by traceId. */
   private _finishFrames: Map<
     string,
     { timestamp: number; nativeFrames: NativeFramesResponse | null }
   > = new Map();
   /** The listeners for each native frames response, keyed by traceId */
   private _framesListeners: Map<string, () => void> = new Map();
-  /** The native frames at the finish time of the most recent span. */
-  private _lastSpanFinishFrames?: {
-    timestamp: number;
-    nativeFrames: NativeFramesResponse;
-  };
+  /** The native frames rendered until the finish time of the most recent span, keyed by traceId. */
+  private _lastSpanFinishFrames: Map<
+    string,
+    { timestamp: number; nativeFrames: NativeFramesResponse }
+  > = new Map();
 
   public constructor(
     addGlobalEventProcessor: (e: EventProcessor) => void,
@@ -47,18 +68,25 @@ export class NativeFramesInstrumentation {
 
   /**
    * To be called when a transaction is started.
-   * Logs the native frames at this start point and instruments child span finishes.
+   * Starts a native frames snapshot at this start point and instruments child span finishes.
    */
   public onTransactionStart(transaction: Transaction): void {
-    void NATIVE.fetchNativeFrames().then((framesMetrics) => {
-      if (framesMetrics) {
-        transaction.setData("__startFrames", framesMetrics);
-      }
-    });
+    void NATIVE.startFrameSnapshot()
+      .then((snapshotId) => {
+        if (snapshotId !== null) {
+          transaction.setData("__frameSnapshotId", snapshotId);
+        }
+      })
+      .catch((e) => {
+        logger.error(
+          "[NativeFrames] Failed to start a native frames snapshot:",
+          e
+        );
+      });
 
     instrumentChildSpanFinish(transaction, (_: Span, endTimestamp?: number) => {
       if (!endTimestamp) {
-        this._onSpanFinish();
+        this._onSpanFinish(transaction);
       }
     });
   }
@@ -74,29 +102,37 @@ export class NativeFramesInstrumentation {
    * Called on a span finish to fetch native frames to support transactions with trimEnd.
    * Only to be called when a span does not have an end timestamp.
    */
-  private _onSpanFinish(): void {
+  private _onSpanFinish(transaction: Transaction): void {
+    const snapshotId = transaction.data.__frameSnapshotId as number | undefined;
+    if (snapshotId === undefined) {
+      return;
+    }
+
     const timestamp = timestampInSeconds();
 
-    void NATIVE.fetchNativeFrames().then((nativeFrames) => {
-      if (nativeFrames) {
-        this._lastSpanFinishFrames = {
-          timestamp,
-          nativeFrames,
-        };
-      }
-    });
+    void NATIVE.fetchFrameSnapshot(snapshotId)
+      .then((nativeFrames) => {
+        if (nativeFrames) {
+          this._lastSpanFinishFrames.set(transaction.traceId, {
+            timestamp,
+            nativeFrames,
+          });
+        }
+      })
+      .catch((e) => {
+        logger.error("[NativeFrames] Failed to fetch native frames:", e);
+      });
   }
 
   /**
-   * Returns the computed frames measurements and awaits for them if they are not ready yet.
+   * Returns the frames rendered during the transaction and awaits for them if they are not ready yet.
    */
-  private async _getFramesMeasurements(
+  private async _getFinishFrames(
     traceId: string,
-    finalEndTimestamp: number,
-    startFrames: NativeFramesResponse
-  ): Promise<FramesMeasurements | null> {
+    finalEndTimestamp: number
+  ): Promise<NativeFramesResponse | null> {
     if (this._finishFrames.has(traceId)) {
-      return this._prepareMeasurements(traceId, finalEndTimestamp, startFrames);
+      return this._prepareFinishFrames(traceId, finalEndTimestamp);
     }
 
     return new Promise((resolve) => {
@@ -107,9 +143,7 @@ export class NativeFramesInstrumentation {
       }, 2000);
 
       this._framesListeners.set(traceId, () => {
-        resolve(
-          this._prepareMeasurements(traceId, finalEndTimestamp, startFrames)
-        );
+        resolve(this._prepareFinishFrames(traceId, finalEndTimestamp));
 
         clearTimeout(timeout);
         this._framesListeners.delete(traceId);
@@ -118,16 +152,16 @@ export class NativeFramesInstrumentation {
   }
 
   /**
-   * Returns the computed frames measurements given ready data
+   * Returns the frames rendered during the transaction given ready data
    */
-  private _prepareMeasurements(
+  private _prepareFinishFrames(
     traceId: string,
-    finalEndTimestamp: number, // The actual transaction finish time.
-    startFrames: NativeFramesResponse
-  ): FramesMeasurements | null {
+    finalEndTimestamp: number // The actual transaction finish time.
+  ): NativeFramesResponse | null {
     let finalFinishFrames: NativeFramesResponse | undefined;
 
     const finish = this._finishFrames.get(traceId);
+    const lastSpanFinish = this._lastSpanFinishFrames.get(traceId);
     if (
       finish &&
       finish.nativeFrames &&
@@ -136,47 +170,106 @@ export class NativeFramesInstrumentation {
     ) {
       finalFinishFrames = finish.nativeFrames;
     } else if (
-      this._lastSpanFinishFrames &&
-      Math.abs(this._lastSpanFinishFrames.timestamp - finalEndTimestamp) <
+      lastSpanFinish &&
+      Math.abs(lastSpanFinish.timestamp - finalEndTimestamp) <
         MARGIN_OF_ERROR_SECONDS
     ) {
       // Fallback to the last span finish if it is within the margin of error of the actual finish timestamp.
       // This should be the case for trimEnd.
-      finalFinishFrames = this._lastSpanFinishFrames.nativeFrames;
+      finalFinishFrames = lastSpanFinish.nativeFrames;
     } else {
       return null;
     }
 
-    const measurements = {
+    return finalFinishFrames;
+  }
+
+  /**
+   * Returns the frames measurements. The frames since the transaction start are computed natively from the snapshot.
+   */
+  private _prepareMeasurements(
+    finishFrames: NativeFramesResponse
+  ): FramesMeasurements {
+    return {
       frames_total: {
-        value: finalFinishFrames.totalFrames - startFrames.totalFrames,
+        value: finishFrames.totalFrames,
       },
       frames_frozen: {
-        value: finalFinishFrames.frozenFrames - startFrames.frozenFrames,
+        value: finishFrames.frozenFrames,
       },
       frames_slow: {
-        value: finalFinishFrames.slowFrames - startFrames.slowFrames,
+        value: finishFrames.slowFrames,
       },
     };
+  }
 
-    return measurements;
+  /**
+   * Returns the frame time distribution context, if the native SDK computed it.
+   */
+  private _prepareFramesContext(
+    finishFrames: NativeFramesResponse
+  ): FramesContext | null {
+    if (
+      finishFrames.frameTimeHistogram === undefined ||
+      finishFrames.frameTimeP50 === undefined ||
+      finishFrames.frameTimeP95 === undefined ||
+      finishFrames.frameTimeP99 === undefined
+    ) {
+      return null;
+    }
+
+    return {
+      frame_time_p50: finishFrames.frameTimeP50,
+      frame_time_p95: finishFrames.frameTimeP95,
+      frame_time_p99: finishFrames.frameTimeP99,
+      frame_time_histogram: finishFrames.frameTimeHistogram,
+    };
   }
 
   /**
-   * Fetch finish frames for a transaction at the current time. Calls any awaiting listeners.
+   * Returns the main thread stalls which started within the transaction, if any.
+   */
+  private _prepareMainThreadStallsContext(
+    finishFrames: NativeFramesResponse,
+    startTimestamp: number,
+    endTimestamp: number
+  ): MainThreadStallsContext | null {
+    const stalls = (finishFrames.mainThreadStalls ?? []).filter(
+      (stall: NativeMainThreadStall) =>
+        stall.startTimestampMs / 1000 >= startTimestamp &&
+        stall.startTimestampMs / 1000 <= endTimestamp
+    );
+    if (stalls.length === 0) {
+      return null;
+    }
+
+    return {
+      stalls: stalls.map((stall) => ({
+        start_timestamp: stall.startTimestampMs / 1000,
+        duration_ms: stall.durationMs,
+        stacktrace: stall.stackTrace,
+      })),
+    };
+  }
+
+  /**
+   * Finishes the frames snapshot of a transaction at the current time. Calls any awaiting listeners.
    */
   private async _fetchFramesForTransaction(
     transaction: Transaction
   ): Promise<void> {
-    const startFrames = transaction.data.__startFrames as
-      | NativeFramesResponse
-      | undefined;
+    const snapshotId = transaction.data.__frameSnapshotId as number | undefined;
 
     // This timestamp marks when the finish frames were retrieved. It should be pretty close to the transaction finish.
     const timestamp = timestampInSeconds();
     let finishFrames: NativeFramesResponse | null = null;
-    if (startFrames) {
-      finishFrames = await NATIVE.fetchNativeFrames();
+    if (snapshotId !== undefined) {
+      try {
+        finishFrames = await NATIVE.finishFrameSnapshot(snapshotId);
+      } catch (e) {
+        // Resolves the listeners without frames rather than waiting for the timeout.
+        logger.error("[NativeFrames] Failed to finish native frames:", e);
+      }
     }
 
     this._finishFrames.set(transaction.traceId, {
@@ -193,6 +286,8 @@ export class NativeFramesInstrumentation {
    * On a finish frames failure, we cancel the await.
    */
   private _cancelFinishFrames(transaction: Transaction): void {
+    this._lastSpanFinishFrames.delete(transaction.traceId);
+
     if (this._finishFrames.has(transaction.traceId)) {
       this._finishFrames.delete(transaction.traceId);
 
@@ -229,18 +324,23 @@ export class NativeFramesInstrumentation {
 
       const traceId = traceContext.trace_id;
 
-      if (traceId && traceContext.data?.__startFrames && event.timestamp) {
-        const measurements = await this._getFramesMeasurements(
+      if (
+        traceId &&
+        traceContext.data?.__frameSnapshotId !== undefined &&
+        event.timestamp
+      ) {
+        const finishFrames = await this._getFinishFrames(
           traceId,
-          event.timestamp,
-          traceContext.data.__startFrames as NativeFramesResponse
+          event.timestamp
         );
 
-        if (!measurements) {
+        if (!finishFrames) {
           logger.log(
             `[NativeFrames] Could not fetch native frames for ${traceContext.op} transaction ${event.transaction}. Not adding native frames measurements.`
           );
         } else {
+          const measurements = this._prepareMeasurements(finishFrames);
+
           logger.log(
             `[Measurements] Adding measurements to ${
               traceContext.op
@@ -256,10 +356,34 @@ export class NativeFramesInstrumentation {
             ...measurements,
           };
 
+          const framesContext = this._prepareFramesContext(finishFrames);
+          if (framesContext) {
+            event.contexts = {
+              ...event.contexts,
+              frames: framesContext,
+            };
+          }
+
+          const stallsContext =
+            event.start_timestamp !== undefined
+              ? this._prepareMainThreadStallsContext(
+                  finishFrames,
+                  event.start_timestamp,
+                  event.timestamp
+                )
+              : null;
+          if (stallsContext) {
+            event.contexts = {
+              ...event.contexts,
+              main_thread_stalls: stallsContext,
+            };
+          }
+
           this._finishFrames.delete(traceId);
         }
 
-        delete traceContext.data.__startFrames;
+        this._lastSpanFinishFrames.delete(traceId);
+        delete traceContext.data.__frameSnapshotId;
       }
     }
 
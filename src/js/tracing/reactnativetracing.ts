@@ -287,13 +287,35 @@ export class ReactNativeTracing implements Integration {
 
     const appStartTimeSeconds = appStart.appStartTime / 1000;
 
-    transaction.startChild({
+    const appStartSpan = transaction.startChild({
       description: appStart.isColdStart ? "Cold App Start" : "Warm App Start",
       op: appStart.isColdStart ? "app.start.cold" : "app.start.warm",
       startTimestamp: appStartTimeSeconds,
       endTimestamp: this._appStartFinishTimestamp,
     });
 
+    // Phases are clamped to the app start span, as the process starts before
+    // the native SDK records the app start.
+    const appStartFinishTimestamp = this._appStartFinishTimestamp;
+    appStart.phases?.forEach((phase) => {
+      const startTimestamp = Math.max(
+        phase.startTimestampMs / 1000,
+        appStartTimeSeconds
+      );
+      const endTimestamp = Math.min(
+        phase.endTimestampMs / 1000,
+        appStartFinishTimestamp
+      );
+      if (endTimestamp > startTimestamp) {
+        appStartSpan.startChild({
+          description: phase.description,
+          op: phase.op,
+          startTimestamp,
+          endTimestamp,
+        });
+      }
+    });
+
     const appStartDurationMilliseconds =
       this._appStartFinishTimestamp * 1000 - appStart.appStartTime;
 
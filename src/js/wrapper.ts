@@ -8,24 +8,62 @@ import {
   Status,
   User,
 } from "@sentry/types";
-import { logger, SentryError } from "@sentry/utils";
+import { logger, normalize, SentryError } from "@sentry/utils";
 import { NativeModules, Platform } from "react-native";
 
 import {
   NativeAppStartResponse,
+  NativeAttachment,
   NativeDeviceContextsResponse,
   NativeFramesResponse,
+  NativeOutboxStatsResponse,
   NativeReleaseResponse,
+  NativeScopeUpdate,
+  NativeSerializedEnvelope,
+  NativeStatsResponse,
   SentryNativeBridgeModule,
 } from "./definitions";
 import { ReactNativeOptions } from "./options";
 
 const RNSentry = NativeModules.RNSentry as SentryNativeBridgeModule | undefined;
 
+/** Default time window in which envelopes are coalesced into one bridge call on Android. */
+const DEFAULT_ENVELOPE_BATCH_WINDOW_MS = 20;
+/** Maximum number of envelopes sent over the bridge in one batch. */
+const MAX_ENVELOPE_BATCH_SIZE = 30;
+
+/**
+ * A scope mutation to apply on the native scope, see applyScopeUpdates.
+ */
+export type ScopeUpdate =
+  | { op: "setUser"; user: User | null }
+  | { op: "setTag"; key: string; value: string }
+  | { op: "setExtra"; key: string; value: unknown }
+  | {
+      op: "setContext";
+      key: string;
+      context: { [key: string]: unknown } | null;
+    }
+  | { op: "addBreadcrumb"; breadcrumb: Breadcrumb }
+  | { op: "clearBreadcrumbs" };
+
+interface PendingEnvelope {
+  envelope: NativeSerializedEnvelope;
+  resolve: (wasSent: boolean) => void;
+  reject: (reason: unknown) => void;
+}
+
 interface SentryNativeWrapper {
   enableNative: boolean;
   nativeIsReady: boolean;
   platform: typeof Platform.OS;
+  envelopeBatchWindowMs: number;
+  attachments: NativeAttachment[];
+  /** Incremented each time the native SDK is initialized or closed, which starts its scope over. */
+  nativeScopeGeneration: number;
+
+  _pendingEnvelopes: PendingEnvelope[];
+  _envelopeBatchTimeout: ReturnType<typeof setTimeout> | undefined;
 
   _NativeClientError: Error;
   _DisabledNativeError: Error;
@@ -33,9 +71,19 @@ interface SentryNativeWrapper {
   _processLevels(event: Event): Event;
   _processLevel(level: Severity): Severity;
   _serializeObject(data: { [key: string]: unknown }): { [key: string]: string };
+  _serializeUser(
+    user: User | null
+  ): [{ [key: string]: string } | null, { [key: string]: unknown } | null];
+  _serializeBreadcrumb(breadcrumb: Breadcrumb): Breadcrumb;
+  _toNativeScopeUpdate(update: ScopeUpdate): NativeScopeUpdate;
   _isModuleLoaded(
     module: SentryNativeBridgeModule | undefined
   ): module is SentryNativeBridgeModule;
+  _captureEnvelopeBatched(
+    envelope: NativeSerializedEnvelope,
+    flushImmediately: boolean
+  ): Promise<boolean>;
+  _flushEnvelopes(): void;
 
   isNativeTransportAvailable(): boolean;
 
@@ -48,6 +96,12 @@ interface SentryNativeWrapper {
   fetchNativeDeviceContexts(): PromiseLike<NativeDeviceContextsResponse>;
   fetchNativeAppStart(): PromiseLike<NativeAppStartResponse | null>;
   fetchNativeFrames(): PromiseLike<NativeFramesResponse | null>;
+  startFrameSnapshot(): Promise<number | null>;
+  fetchFrameSnapshot(snapshotId: number): Promise<NativeFramesResponse | null>;
+  finishFrameSnapshot(snapshotId: number): Promise<NativeFramesResponse | null>;
+  fetchNativeOutboxStats(): PromiseLike<NativeOutboxStatsResponse | null>;
+  fetchNativeStats(): PromiseLike<NativeStatsResponse | null>;
+  fetchNativeRecoveredBreadcrumbs(): PromiseLike<Breadcrumb[]>;
   fetchNativeSdkInfo(): PromiseLike<Package | null>;
 
   disableNativeFramesTracking(): void;
@@ -58,6 +112,9 @@ interface SentryNativeWrapper {
   setExtra(key: string, extra: unknown): void;
   setUser(user: User | null): void;
   setTag(key: string, value: string): void;
+  applyScopeUpdates(updates: ScopeUpdate[]): void;
+  addAttachment(attachment: NativeAttachment): void;
+  clearAttachments(): void;
 
   nativeCrash(): void;
 }
@@ -114,25 +171,29 @@ export const NATIVE: SentryNativeWrapper = {
         },
       };
 
-      const payloadString = JSON.stringify(payload);
-      let length = payloadString.length;
-      try {
-        length = await RNSentry.getStringBytesLength(payloadString);
-      } catch {
-        // The native call failed, we do nothing, we have payload.length as a fallback
-      }
+      // The app is likely about to crash on unhandled and fatal errors, so these are sent right away
+      // and we wait for native to write them to disk instead of only queueing them.
+      const isCrashing =
+        event.exception?.values?.[0]?.mechanism?.handled === false ||
+        event.level === Severity.Fatal;
 
-      const item = {
-        content_type: "application/json",
-        length,
+      // The envelope item header (and its length in bytes) is created on the Android side of the native bridge.
+      const serializedEnvelope: NativeSerializedEnvelope = {
+        header: headerString,
+        payload: JSON.stringify(payload),
         type: payload.type ?? "event",
       };
+      if (isCrashing) {
+        serializedEnvelope.durable = true;
+      }
+      if (this.attachments.length > 0 && serializedEnvelope.type === "event") {
+        serializedEnvelope.attachments = [...this.attachments];
+      }
 
-      const itemString = JSON.stringify(item);
-
-      const envelopeString = `${headerString}\n${itemString}\n${payloadString}`;
-
-      envelopeWasSent = await RNSentry.captureEnvelope(envelopeString);
+      envelopeWasSent = await this._captureEnvelopeBatched(
+        serializedEnvelope,
+        isCrashing
+      );
     } else {
       // iOS/Mac
 
@@ -173,9 +234,12 @@ export const NATIVE: SentryNativeWrapper = {
     const options = {
       enableNative: true,
       autoInitializeNativeSdk: true,
+      envelopeBatchWindowMs: DEFAULT_ENVELOPE_BATCH_WINDOW_MS,
       ...originalOptions,
     };
 
+    this.envelopeBatchWindowMs = options.envelopeBatchWindowMs;
+
     if (!options.enableNative) {
       if (options.enableNativeNagger) {
         logger.warn("Note: Native Sentry SDK is disabled.");
@@ -215,6 +279,8 @@ export const NATIVE: SentryNativeWrapper = {
     } = options;
     /* eslint-enable @typescript-eslint/unbound-method,@typescript-eslint/no-unused-vars */
 
+    // Counted before the call, so scope updates synced meanwhile are synced again.
+    this.nativeScopeGeneration++;
     const nativeIsReady = await RNSentry.initNativeSdk(filteredOptions);
 
     this.nativeIsReady = nativeIsReady;
@@ -296,6 +362,128 @@ export const NATIVE: SentryNativeWrapper = {
     return RNSentry.fetchNativeFrames();
   },
 
+  /**
+   * Starts a native frames snapshot.
+   * @returns The snapshot id, or null if native frames are not tracked.
+   */
+  async startFrameSnapshot(): Promise<number | null> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    return RNSentry.startFrameSnapshot();
+  },
+
+  /**
+   * Fetches the native frames rendered since the snapshot was started, computed natively.
+   * @param snapshotId The id returned by startFrameSnapshot.
+   */
+  async fetchFrameSnapshot(
+    snapshotId: number
+  ): Promise<NativeFramesResponse | null> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    return RNSentry.fetchFrameSnapshot(snapshotId);
+  },
+
+  /**
+   * Fetches the native frames rendered since the snapshot was started and releases the snapshot.
+   * @param snapshotId The id returned by startFrameSnapshot.
+   */
+  async finishFrameSnapshot(
+    snapshotId: number
+  ): Promise<NativeFramesResponse | null> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    return RNSentry.finishFrameSnapshot(snapshotId);
+  },
+
+  /**
+   * Fetches the outbox budget usage and eviction counts.
+   * NOTE: Only available on Android.
+   */
+  async fetchNativeOutboxStats(): Promise<NativeOutboxStatsResponse | null> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    if (this.platform !== "android") {
+      return null;
+    }
+
+    return RNSentry.fetchNativeOutboxStats();
+  },
+
+  /**
+   * Fetches the calls, time spent, bytes written and failures of each native bridge method.
+   * NOTE: Only available on Android.
+   */
+  async fetchNativeStats(): Promise<NativeStatsResponse | null> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    if (this.platform !== "android") {
+      return null;
+    }
+
+    return RNSentry.fetchNativeStats();
+  },
+
+  /**
+   * Fetches the breadcrumbs persisted by the previous run of the app with `persistNativeBreadcrumbs`, oldest first.
+   * NOTE: Only available on Android.
+   */
+  async fetchNativeRecoveredBreadcrumbs(): Promise<Breadcrumb[]> {
+    if (!this.enableNative) {
+      throw this._DisabledNativeError;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+
+    if (this.platform !== "android") {
+      return [];
+    }
+
+    return RNSentry.fetchNativeRecoveredBreadcrumbs();
+  },
+
+  /**
+   * Attaches a file to the events sent from now on, by reference. Native reads the file when writing the event,
+   * so its content doesn't go through the bridge.
+   * NOTE: Only available on Android.
+   */
+  addAttachment(attachment: NativeAttachment): void {
+    this.attachments.push(attachment);
+  },
+
+  /**
+   * Removes the attachments added with addAttachment.
+   */
+  clearAttachments(): void {
+    this.attachments = [];
+  },
+
   /**
    * Triggers a native crash.
    * Use this only for testing purposes.
@@ -323,19 +511,7 @@ export const NATIVE: SentryNativeWrapper = {
       throw this._NativeClientError;
     }
 
-    // separate and serialze all non-default user keys.
-    let defaultUserKeys = null;
-    let otherUserKeys = null;
-    if (user) {
-      const { id, ip_address, email, username, ...otherKeys } = user;
-      defaultUserKeys = this._serializeObject({
-        email,
-        id,
-        ip_address,
-        username,
-      });
-      otherUserKeys = this._serializeObject(otherKeys);
-    }
+    const [defaultUserKeys, otherUserKeys] = this._serializeUser(user);
 
     RNSentry.setUser(defaultUserKeys, otherUserKeys);
   },
@@ -392,16 +568,7 @@ export const NATIVE: SentryNativeWrapper = {
       throw this._NativeClientError;
     }
 
-    RNSentry.addBreadcrumb({
-      ...breadcrumb,
-      // Process and convert deprecated levels
-      level: breadcrumb.level
-        ? this._processLevel(breadcrumb.level)
-        : undefined,
-      data: breadcrumb.data
-        ? this._serializeObject(breadcrumb.data)
-        : undefined,
-    });
+    RNSentry.addBreadcrumb(this._serializeBreadcrumb(breadcrumb));
   },
 
   /**
@@ -442,6 +609,26 @@ export const NATIVE: SentryNativeWrapper = {
     }
   },
 
+  /**
+   * Applies a batch of scope mutations on the native scope in a single bridge call, in order.
+   * @param updates The scope mutations.
+   */
+  applyScopeUpdates(updates: ScopeUpdate[]): void {
+    if (!this.enableNative) {
+      return;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      throw this._NativeClientError;
+    }
+    if (updates.length === 0) {
+      return;
+    }
+
+    RNSentry.applyScopeUpdates(
+      updates.map((update) => this._toNativeScopeUpdate(update))
+    );
+  },
+
   /**
    * Closes the Native Layer SDK
    */
@@ -453,8 +640,12 @@ export const NATIVE: SentryNativeWrapper = {
       return;
     }
 
+    // Do not leave envelopes waiting for a batch that will never be sent.
+    this._flushEnvelopes();
+
     return RNSentry.closeNativeSdk().then(() => {
       this.enableNative = false;
+      this.nativeScopeGeneration++;
     });
   },
 
@@ -473,6 +664,74 @@ export const NATIVE: SentryNativeWrapper = {
     return this.enableNative && this._isModuleLoaded(RNSentry);
   },
 
+  /**
+   * Queues an envelope to be sent to native together with the other envelopes captured
+   * within the batch window. Resolves once native has written the envelope.
+   * @param envelope The serialized envelope header and payload.
+   * @param flushImmediately Sends the pending batch including this envelope right away.
+   */
+  _captureEnvelopeBatched(
+    envelope: NativeSerializedEnvelope,
+    flushImmediately: boolean
+  ): Promise<boolean> {
+    const envelopeWasSent = new Promise<boolean>((resolve, reject) => {
+      this._pendingEnvelopes.push({ envelope, resolve, reject });
+    });
+
+    if (
+      flushImmediately ||
+      this.envelopeBatchWindowMs <= 0 ||
+      this._pendingEnvelopes.length >= MAX_ENVELOPE_BATCH_SIZE
+    ) {
+      this._flushEnvelopes();
+    } else if (!this._envelopeBatchTimeout) {
+      this._envelopeBatchTimeout = setTimeout(
+        () => this._flushEnvelopes(),
+        this.envelopeBatchWindowMs
+      );
+    }
+
+    return envelopeWasSent;
+  },
+
+  /**
+   * Sends all pending envelopes over the bridge in one call.
+   */
+  _flushEnvelopes(): void {
+    if (this._envelopeBatchTimeout) {
+      clearTimeout(this._envelopeBatchTimeout);
+      this._envelopeBatchTimeout = undefined;
+    }
+
+    const batch = this._pendingEnvelopes;
+    this._pendingEnvelopes = [];
+
+    if (batch.length === 0) {
+      return;
+    }
+    if (!this._isModuleLoaded(RNSentry)) {
+      batch.forEach((pending) => pending.reject(this._NativeClientError));
+      return;
+    }
+
+    if (batch.length === 1) {
+      RNSentry.captureSerializedEnvelope(batch[0].envelope).then(
+        batch[0].resolve,
+        batch[0].reject
+      );
+      return;
+    }
+
+    RNSentry.captureEnvelopes(batch.map((pending) => pending.envelope)).then(
+      (results) => {
+        batch.forEach((pending, i) => pending.resolve(!!results[i]));
+      },
+      (reason) => {
+        batch.forEach((pending) => pending.reject(reason));
+      }
+    );
+  },
+
   /**
    * Serializes all values of root-level keys into strings.
    * @param data key-value map.
@@ -492,6 +751,97 @@ export const NATIVE: SentryNativeWrapper = {
     return serialized;
   },
 
+  /**
+   * Separates and serializes the default and all non-default user keys.
+   * Non-default keys keep their types, the native SDKs convert them.
+   * @param user The user, null to clear the user.
+   * @returns The serialized default user keys and other user keys.
+   */
+  _serializeUser(
+    user: User | null
+  ): [{ [key: string]: string } | null, { [key: string]: unknown } | null] {
+    if (!user) {
+      return [null, null];
+    }
+
+    const { id, ip_address, email, username, ...otherKeys } = user;
+    return [
+      this._serializeObject({
+        email,
+        id,
+        ip_address,
+        username,
+      }),
+      normalize(otherKeys) as { [key: string]: unknown },
+    ];
+  },
+
+  /**
+   * Converts the deprecated level and normalizes the data of a breadcrumb.
+   * Data values keep their types, the native SDKs convert them.
+   * @param breadcrumb Breadcrumb
+   * @returns The breadcrumb as sent over the bridge.
+   */
+  _serializeBreadcrumb(breadcrumb: Breadcrumb): Breadcrumb {
+    return {
+      ...breadcrumb,
+      // Process and convert deprecated levels
+      level: breadcrumb.level
+        ? this._processLevel(breadcrumb.level)
+        : undefined,
+      data: breadcrumb.data ? normalize(breadcrumb.data) : undefined,
+    };
+  },
+
+  /**
+   * Serializes a scope mutation the way its own bridge method would.
+   * @param update The scope mutation.
+   * @returns The scope mutation as sent over the bridge.
+   */
+  _toNativeScopeUpdate(update: ScopeUpdate): NativeScopeUpdate {
+    switch (update.op) {
+      case "setUser": {
+        const [user, otherUserKeys] = this._serializeUser(update.user);
+        return { op: "setUser", user, otherUserKeys };
+      }
+      case "setTag":
+      case "setExtra":
+        return {
+          op: update.op,
+          key: update.key,
+          // we stringify the value as native only takes in strings.
+          value:
+            typeof update.value === "string"
+              ? update.value
+              : JSON.stringify(update.value),
+        };
+      case "setContext":
+        if (this.platform === "android") {
+          // setContext not available on the Android SDK yet.
+          return this._toNativeScopeUpdate({
+            op: "setExtra",
+            key: update.key,
+            value: update.context,
+          });
+        }
+        return {
+          op: "setContext",
+          key: update.key,
+          context:
+            update.context !== null
+              ? this._serializeObject(update.context)
+              : null,
+        };
+      case "addBreadcrumb":
+        return {
+          op: "addBreadcrumb",
+          breadcrumb: this._serializeBreadcrumb(update.breadcrumb),
+        };
+      case "clearBreadcrumbs":
+        return { op: "clearBreadcrumbs" };
+    }
+  },
+
   /**
    * Convert js severity level in event.level and event.breadcrumbs to more widely supported levels.
    * @param event
@@ -546,4 +896,10 @@ export const NATIVE: SentryNativeWrapper = {
   enableNative: true,
   nativeIsReady: false,
   platform: Platform.OS,
+  envelopeBatchWindowMs: DEFAULT_ENVELOPE_BATCH_WINDOW_MS,
+  attachments: [],
+  nativeScopeGeneration: 0,
+
+  _pendingEnvelopes: [],
+  _envelopeBatchTimeout: undefined,
 };
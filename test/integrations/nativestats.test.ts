@@ -0,0 +1,86 @@
+import { addGlobalEventProcessor } from "@sentry/core";
+import { EventProcessor } from "@sentry/types";
+
+import { NativeStats } from "../../src/js/integrations/nativestats";
+import { NATIVE } from "../../src/js/wrapper";
+
+jest.mock("@sentry/core", () => {
+  const hub = {
+    getIntegration: () => NativeStats,
+  };
+
+  return {
+    addGlobalEventProcessor: jest.fn(),
+    getCurrentHub: () => hub,
+  };
+});
+
+jest.mock("../../src/js/wrapper", () => ({
+  NATIVE: {
+    fetchNativeStats: jest.fn(),
+  },
+}));
+
+const mockNativeStats = {
+  methods: {
+    captureEnvelopes: {
+      calls: 10,
+      failures: 1,
+      totalTimeMs: 4.2,
+      bytesWritten: 20480,
+      latencyHistogram: { bounds: [10, 25, 50], counts: [2, 5, 3, 0] },
+      latencyP50Us: 25,
+      latencyP95Us: 50,
+      latencyP99Us: 50,
+    },
+  },
+  initPhasesMs: { configure: 0.5, sentryAndroidInit: 12, total: 13 },
+};
+
+describe("Tests the NativeStats integration", () => {
+  let eventProcessor: EventProcessor = () => null;
+
+  beforeEach(() => {
+    (NATIVE.fetchNativeStats as jest.Mock).mockReset();
+    // @ts-ignore Mock
+    addGlobalEventProcessor.mockImplementation((e) => (eventProcessor = e));
+    new NativeStats().setupOnce();
+  });
+
+  test("Attaches the native stats to transactions", async () => {
+    (NATIVE.fetchNativeStats as jest.Mock).mockResolvedValue(mockNativeStats);
+
+    const event = await eventProcessor({
+      type: "transaction",
+      contexts: { trace: { op: "navigation" } },
+    });
+
+    expect(event?.contexts).toEqual({
+      trace: { op: "navigation" },
+      native_stats: {
+        captureEnvelopes: {
+          calls: 10,
+          failures: 1,
+          total_time_ms: 4.2,
+          bytes_written: 20480,
+          latency_p95_us: 50,
+        },
+      },
+    });
+  });
+
+  test("Does not fetch native stats for errors", async () => {
+    const event = await eventProcessor({ message: "error" });
+
+    expect(event?.contexts).toBeUndefined();
+    expect(NATIVE.fetchNativeStats).not.toBeCalled();
+  });
+
+  test("Keeps the transaction if the native stats are unavailable", async () => {
+    (NATIVE.fetchNativeStats as jest.Mock).mockResolvedValue(null);
+
+    const event = await eventProcessor({ type: "transaction" });
+
+    expect(event?.contexts).toBeUndefined();
+  });
+});
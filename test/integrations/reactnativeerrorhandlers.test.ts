@@ -33,11 +33,16 @@ jest.mock("promise/setimmediate/core", () => {
   return {};
 });
 
+jest.mock("../../src/js/scope", () => ({
+  flushNativeScope: jest.fn(),
+}));
+
 import { getCurrentHub } from "@sentry/core";
 import { Severity } from "@sentry/types";
 import { getGlobalObject, logger } from "@sentry/utils";
 
 import { ReactNativeErrorHandlers } from "../../src/js/integrations/reactnativeerrorhandlers";
+import { flushNativeScope } from "../../src/js/scope";
 
 beforeEach(() => {
   ErrorUtils.getGlobalHandler = () => jest.fn();
@@ -76,6 +81,7 @@ describe("ReactNativeErrorHandlers", () => {
       expect(event.level).toBe(Severity.Fatal);
       expect(event.exception?.values?.[0].mechanism?.handled).toBe(false);
       expect(event.exception?.values?.[0].mechanism?.type).toBe("onerror");
+      expect(flushNativeScope).toBeCalled();
     });
 
     test("Does not set handled:false on a non-fatal error", async () => {
@@ -105,6 +111,7 @@ describe("ReactNativeErrorHandlers", () => {
       expect(event.level).toBe(Severity.Error);
       expect(event.exception?.values?.[0].mechanism?.handled).toBe(true);
       expect(event.exception?.values?.[0].mechanism?.type).toBe("generic");
+      expect(flushNativeScope).not.toBeCalled();
     });
   });
 
@@ -0,0 +1,190 @@
+jest.mock("../src/js/wrapper", () => ({
+  NATIVE: {
+    applyScopeUpdates: jest.fn(),
+    nativeScopeGeneration: 0,
+  },
+}));
+
+import { flushNativeScope, ReactNativeScope } from "../src/js/scope";
+import { NATIVE } from "../src/js/wrapper";
+
+beforeEach(() => {
+  jest.useFakeTimers();
+});
+
+afterEach(() => {
+  jest.clearAllMocks();
+  jest.restoreAllMocks();
+});
+
+describe("ReactNativeScope", () => {
+  test("syncs updates made together in a single bridge call", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    scope.setTags({ b: "2", c: "3" });
+    scope.setExtra("extra", { value: 1 });
+    scope.addBreadcrumb({ message: "first" });
+    scope.setUser({ id: "user" });
+
+    expect(NATIVE.applyScopeUpdates).not.toBeCalled();
+
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledTimes(1);
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "setTag", key: "a", value: "1" },
+      { op: "setTag", key: "b", value: "2" },
+      { op: "setTag", key: "c", value: "3" },
+      { op: "setExtra", key: "extra", value: { value: 1 } },
+      { op: "addBreadcrumb", breadcrumb: { message: "first" } },
+      { op: "setUser", user: { id: "user" } },
+    ]);
+  });
+
+  test("syncs updates in the order they were made", () => {
+    const scope = new ReactNativeScope();
+
+    scope.addBreadcrumb({ message: "first" });
+    scope.setUser({ id: "user" });
+    scope.clearBreadcrumbs();
+    scope.addBreadcrumb({ message: "second" });
+    scope.setTag("a", "1");
+    scope.setUser({ id: "other" });
+
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "clearBreadcrumbs" },
+      { op: "addBreadcrumb", breadcrumb: { message: "second" } },
+      { op: "setTag", key: "a", value: "1" },
+      { op: "setUser", user: { id: "other" } },
+    ]);
+  });
+
+  test("only syncs the latest value of each key", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    scope.setTag("a", "2");
+    scope.setContext("context", { value: 1 });
+    scope.setContext("context", null);
+
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "setTag", key: "a", value: "2" },
+      { op: "setContext", key: "context", context: null },
+    ]);
+  });
+
+  test("does not sync values the native scope already has", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    scope.setExtra("extra", { value: 1 });
+    scope.setUser({ id: "user" });
+    jest.runAllTimers();
+
+    scope.setTag("a", "1");
+    scope.setExtra("extra", { value: 1 });
+    scope.setUser({ id: "user" });
+    scope.setTag("b", "2");
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toHaveBeenLastCalledWith([
+      { op: "setTag", key: "b", value: "2" },
+    ]);
+  });
+
+  test("syncs values again once the native SDK is initialized again", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    jest.runAllTimers();
+
+    NATIVE.nativeScopeGeneration++;
+    scope.setTag("a", "1");
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledTimes(2);
+    expect(NATIVE.applyScopeUpdates).toHaveBeenLastCalledWith([
+      { op: "setTag", key: "a", value: "1" },
+    ]);
+  });
+
+  test("syncs values again once the scope is cleared", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setUser({ id: "user" });
+    jest.runAllTimers();
+
+    scope.clear();
+    scope.setUser({ id: "user" });
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toHaveBeenLastCalledWith([
+      { op: "setUser", user: { id: "user" } },
+    ]);
+  });
+
+  test("drops the pending breadcrumbs when breadcrumbs are cleared", () => {
+    const scope = new ReactNativeScope();
+
+    scope.addBreadcrumb({ message: "first" });
+    scope.clearBreadcrumbs();
+    scope.addBreadcrumb({ message: "second" });
+
+    jest.runAllTimers();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "clearBreadcrumbs" },
+      { op: "addBreadcrumb", breadcrumb: { message: "second" } },
+    ]);
+  });
+
+  test("syncs after the max delay while updates keep coming", () => {
+    let now = 0;
+    jest.spyOn(Date, "now").mockImplementation(() => now);
+    const scope = new ReactNativeScope();
+
+    for (let i = 0; i < 20; i++) {
+      scope.setTag("a", `${i}`);
+      now += 9;
+      jest.advanceTimersByTime(9);
+    }
+
+    expect(NATIVE.applyScopeUpdates).toBeCalled();
+  });
+
+  test("flushNativeScope syncs the pending updates of every scope", () => {
+    const scope = new ReactNativeScope();
+    const other = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    other.setTag("b", "2");
+    flushNativeScope();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledTimes(2);
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "setTag", key: "a", value: "1" },
+    ]);
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "setTag", key: "b", value: "2" },
+    ]);
+
+    jest.runAllTimers();
+    expect(NATIVE.applyScopeUpdates).toBeCalledTimes(2);
+  });
+
+  test("flushNativeScope syncs right away", () => {
+    const scope = new ReactNativeScope();
+
+    scope.setTag("a", "1");
+    scope.flushNativeScope();
+
+    expect(NATIVE.applyScopeUpdates).toBeCalledWith([
+      { op: "setTag", key: "a", value: "1" },
+    ]);
+  });
+});
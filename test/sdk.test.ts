@@ -36,6 +36,7 @@ jest.mock("@sentry/hub", () => {
 jest.mock("../src/js/scope", () => {
   return {
     ReactNativeScope: class ReactNativeScopeMock {},
+    flushNativeScope: jest.fn(),
   };
 });
 
@@ -50,6 +51,7 @@ jest.spyOn(logger, "error");
 import { initAndBind } from "@sentry/core";
 import { getCurrentHub } from "@sentry/react";
 
+import { flushNativeScope } from "../src/js/scope";
 import { flush, init } from "../src/js/sdk";
 import { ReactNativeTracing } from "../src/js/tracing";
 
@@ -108,6 +110,7 @@ describe("Tests the SDK functionality", () => {
 
           // eslint-disable-next-line @typescript-eslint/unbound-method
           expect(mockClient.flush).toBeCalled();
+          expect(flushNativeScope).toBeCalled();
           expect(flushResult).toBe(true);
         }
       });
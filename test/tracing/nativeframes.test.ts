@@ -2,6 +2,9 @@ jest.mock("../../src/js/wrapper", () => {
   return {
     NATIVE: {
       fetchNativeFrames: jest.fn(),
+      startFrameSnapshot: jest.fn(),
+      fetchFrameSnapshot: jest.fn(),
+      finishFrameSnapshot: jest.fn(),
       disableNativeFramesTracking: jest.fn(),
       enableNative: true,
     },
@@ -10,6 +13,7 @@ jest.mock("../../src/js/wrapper", () => {
 
 import { Transaction } from "@sentry/tracing";
 import { EventProcessor } from "@sentry/types";
+import { logger } from "@sentry/utils";
 
 import { NativeFramesInstrumentation } from "../../src/js/tracing/nativeframes";
 import { NATIVE } from "../../src/js/wrapper";
@@ -20,14 +24,9 @@ beforeEach(() => {
 });
 
 describe("NativeFramesInstrumentation", () => {
-  it("Sets start frames to trace context on transaction start.", (done) => {
-    const startFrames = {
-      totalFrames: 100,
-      slowFrames: 20,
-      frozenFrames: 5,
-    };
+  it("Sets frame snapshot id to trace context on transaction start.", (done) => {
     // eslint-disable-next-line @typescript-eslint/unbound-method
-    mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(startFrames);
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
 
     const instance = new NativeFramesInstrumentation(
       // eslint-disable-next-line @typescript-eslint/no-empty-function
@@ -40,29 +39,50 @@ describe("NativeFramesInstrumentation", () => {
     instance.onTransactionStart(transaction);
 
     setImmediate(() => {
-      expect(transaction.data.__startFrames).toMatchObject(startFrames);
+      expect(transaction.data.__frameSnapshotId).toBe(1);
+
+      expect(transaction.getTraceContext().data?.__frameSnapshotId).toBe(1);
+
+      done();
+    });
+  });
+
+  it("Logs a failure to start the frame snapshot.", (done) => {
+    const error = new Error("Native frames failed");
+    const loggerError = jest.spyOn(logger, "error").mockImplementation();
+    // eslint-disable-next-line @typescript-eslint/unbound-method
+    mockFunction(NATIVE.startFrameSnapshot).mockRejectedValue(error);
+
+    const instance = new NativeFramesInstrumentation(
+      // eslint-disable-next-line @typescript-eslint/no-empty-function
+      (_eventProcessor) => {},
+      () => true
+    );
+
+    const transaction = new Transaction({ name: "test" });
+
+    instance.onTransactionStart(transaction);
 
-      expect(transaction.getTraceContext().data?.__startFrames).toMatchObject(
-        startFrames
+    setImmediate(() => {
+      expect(transaction.data.__frameSnapshotId).toBeUndefined();
+      expect(loggerError).toBeCalledWith(
+        "[NativeFrames] Failed to start a native frames snapshot:",
+        error
       );
 
+      loggerError.mockRestore();
       done();
     });
   });
 
-  it("Sets measurements on the transaction event and removes startFrames from trace context.", (done) => {
-    const startFrames = {
+  it("Sets measurements on the transaction event and removes the frame snapshot id from trace context.", (done) => {
+    const snapshotFrames = {
       totalFrames: 100,
       slowFrames: 20,
       frozenFrames: 5,
     };
-    const finishFrames = {
-      totalFrames: 200,
-      slowFrames: 40,
-      frozenFrames: 10,
-    };
     // eslint-disable-next-line @typescript-eslint/unbound-method
-    mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(startFrames);
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
 
     let eventProcessor: EventProcessor;
     const instance = new NativeFramesInstrumentation(
@@ -79,7 +99,9 @@ describe("NativeFramesInstrumentation", () => {
 
     setImmediate(() => {
       // eslint-disable-next-line @typescript-eslint/unbound-method
-      mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(finishFrames);
+      mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(
+        snapshotFrames
+      );
 
       const finishTimestamp = Date.now() / 1000;
       instance.onTransactionFinish(transaction);
@@ -110,13 +132,13 @@ describe("NativeFramesInstrumentation", () => {
 
               if (event.measurements) {
                 expect(event.measurements.frames_total.value).toBe(
-                  finishFrames.totalFrames - startFrames.totalFrames
+                  snapshotFrames.totalFrames
                 );
                 expect(event.measurements.frames_slow.value).toBe(
-                  finishFrames.slowFrames - startFrames.slowFrames
+                  snapshotFrames.slowFrames
                 );
                 expect(event.measurements.frames_frozen.value).toBe(
-                  finishFrames.frozenFrames - startFrames.frozenFrames
+                  snapshotFrames.frozenFrames
                 );
               }
 
@@ -125,7 +147,7 @@ describe("NativeFramesInstrumentation", () => {
               if (event.contexts?.trace?.data) {
                 expect(
                   // eslint-disable-next-line @typescript-eslint/no-explicit-any
-                  (event.contexts.trace.data as any).__startFrames
+                  (event.contexts.trace.data as any).__frameSnapshotId
                 ).toBeUndefined();
               }
             }
@@ -138,14 +160,202 @@ describe("NativeFramesInstrumentation", () => {
     });
   });
 
-  it("Does not set measurements on transactions without startFrames.", (done) => {
-    const finishFrames = {
+  it("Sets the frame time distribution context if the native frames have a histogram.", (done) => {
+    const snapshotFrames = {
+      totalFrames: 100,
+      slowFrames: 20,
+      frozenFrames: 5,
+      frameTimeHistogram: {
+        bounds: [8, 16, 700],
+        counts: [50, 25, 20, 5],
+      },
+      frameTimeP50: 8,
+      frameTimeP95: 700,
+      frameTimeP99: 700,
+    };
+    // eslint-disable-next-line @typescript-eslint/unbound-method
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
+
+    let eventProcessor: EventProcessor;
+    const instance = new NativeFramesInstrumentation(
+      // eslint-disable-next-line @typescript-eslint/no-empty-function
+      (_eventProcessor) => {
+        eventProcessor = _eventProcessor;
+      },
+      () => true
+    );
+
+    const transaction = new Transaction({ name: "test" });
+
+    instance.onTransactionStart(transaction);
+
+    setImmediate(() => {
+      // eslint-disable-next-line @typescript-eslint/unbound-method
+      mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(
+        snapshotFrames
+      );
+
+      const finishTimestamp = Date.now() / 1000;
+      instance.onTransactionFinish(transaction);
+
+      setImmediate(async () => {
+        try {
+          expect(eventProcessor).toBeDefined();
+          if (eventProcessor) {
+            const event = await eventProcessor({
+              event_id: "0",
+              type: "transaction",
+              transaction: transaction.name,
+              contexts: {
+                trace: transaction.getTraceContext(),
+              },
+              start_timestamp: finishTimestamp - 10,
+              timestamp: finishTimestamp,
+            });
+
+            jest.runOnlyPendingTimers();
+
+            expect(event?.measurements?.frames_total.value).toBe(100);
+            expect(event?.contexts?.frames).toEqual({
+              frame_time_p50: 8,
+              frame_time_p95: 700,
+              frame_time_p99: 700,
+              frame_time_histogram: snapshotFrames.frameTimeHistogram,
+            });
+          }
+          done();
+        } catch (e) {
+          done(e);
+        }
+      });
+    });
+  });
+
+  it("Adds the main thread stalls within the transaction to the transaction event.", (done) => {
+    const finishTimestamp = Date.now() / 1000;
+    const snapshotFrames = {
+      totalFrames: 100,
+      slowFrames: 20,
+      frozenFrames: 1,
+      mainThreadStalls: [
+        {
+          startTimestampMs: (finishTimestamp - 20) * 1000,
+          durationMs: 800,
+          stackTrace: ["before.transaction(Before.java:1)"],
+        },
+        {
+          startTimestampMs: (finishTimestamp - 5) * 1000,
+          durationMs: 900,
+          stackTrace: [
+            "java.lang.Thread.sleep(Native Method)",
+            "com.app.MainActivity.onResume(MainActivity.java:42)",
+          ],
+        },
+      ],
+    };
+    // eslint-disable-next-line @typescript-eslint/unbound-method
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
+
+    let eventProcessor: EventProcessor;
+    const instance = new NativeFramesInstrumentation(
+      // eslint-disable-next-line @typescript-eslint/no-empty-function
+      (_eventProcessor) => {
+        eventProcessor = _eventProcessor;
+      },
+      () => true
+    );
+
+    const transaction = new Transaction({ name: "test" });
+
+    instance.onTransactionStart(transaction);
+
+    setImmediate(() => {
+      // eslint-disable-next-line @typescript-eslint/unbound-method
+      mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(
+        snapshotFrames
+      );
+
+      instance.onTransactionFinish(transaction);
+
+      setImmediate(async () => {
+        try {
+          expect(eventProcessor).toBeDefined();
+          if (eventProcessor) {
+            const event = await eventProcessor({
+              event_id: "0",
+              type: "transaction",
+              transaction: transaction.name,
+              contexts: {
+                trace: transaction.getTraceContext(),
+              },
+              start_timestamp: finishTimestamp - 10,
+              timestamp: finishTimestamp,
+            });
+
+            jest.runOnlyPendingTimers();
+
+            expect(event?.contexts?.main_thread_stalls).toEqual({
+              stalls: [
+                {
+                  start_timestamp: finishTimestamp - 5,
+                  duration_ms: 900,
+                  stacktrace: [
+                    "java.lang.Thread.sleep(Native Method)",
+                    "com.app.MainActivity.onResume(MainActivity.java:42)",
+                  ],
+                },
+              ],
+            });
+          }
+          done();
+        } catch (e) {
+          done(e);
+        }
+      });
+    });
+  });
+
+  it("Finishes the frame snapshot of each overlapping transaction.", (done) => {
+    // eslint-disable-next-line @typescript-eslint/unbound-method
+    mockFunction(NATIVE.startFrameSnapshot)
+      .mockResolvedValueOnce(1)
+      .mockResolvedValueOnce(2);
+    // eslint-disable-next-line @typescript-eslint/unbound-method
+    mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(null);
+
+    const instance = new NativeFramesInstrumentation(
+      // eslint-disable-next-line @typescript-eslint/no-empty-function
+      (_eventProcessor) => {},
+      () => true
+    );
+
+    const first = new Transaction({ name: "first" });
+    const second = new Transaction({ name: "second" });
+
+    instance.onTransactionStart(first);
+    instance.onTransactionStart(second);
+
+    setImmediate(() => {
+      instance.onTransactionFinish(second);
+      instance.onTransactionFinish(first);
+
+      // eslint-disable-next-line @typescript-eslint/unbound-method
+      expect(NATIVE.finishFrameSnapshot).toHaveBeenNthCalledWith(1, 2);
+      // eslint-disable-next-line @typescript-eslint/unbound-method
+      expect(NATIVE.finishFrameSnapshot).toHaveBeenNthCalledWith(2, 1);
+
+      done();
+    });
+  });
+
+  it("Does not set measurements on transactions without a frame snapshot.", (done) => {
+    const snapshotFrames = {
       totalFrames: 200,
       slowFrames: 40,
       frozenFrames: 10,
     };
     // eslint-disable-next-line @typescript-eslint/unbound-method
-    mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(finishFrames);
+    mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(snapshotFrames);
 
     let eventProcessor: EventProcessor;
     const instance = new NativeFramesInstrumentation(
@@ -199,7 +409,7 @@ describe("NativeFramesInstrumentation", () => {
               if (event.contexts?.trace?.data) {
                 expect(
                   // eslint-disable-next-line @typescript-eslint/no-explicit-any
-                  (event.contexts.trace.data as any).__startFrames
+                  (event.contexts.trace.data as any).__frameSnapshotId
                 ).toBeUndefined();
               }
             }
@@ -211,15 +421,10 @@ describe("NativeFramesInstrumentation", () => {
     });
   });
 
-  it("Sets measurements on the transaction event and removes startFrames if finishFrames is null.", (done) => {
-    const startFrames = {
-      totalFrames: 100,
-      slowFrames: 20,
-      frozenFrames: 5,
-    };
+  it("Does not set measurements on the transaction event and removes the frame snapshot id if finishFrames is null.", (done) => {
     const finishFrames = null;
     // eslint-disable-next-line @typescript-eslint/unbound-method
-    mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(startFrames);
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
 
     let eventProcessor: EventProcessor;
     const instance = new NativeFramesInstrumentation(
@@ -236,7 +441,7 @@ describe("NativeFramesInstrumentation", () => {
 
     setImmediate(() => {
       // eslint-disable-next-line @typescript-eslint/unbound-method
-      mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(finishFrames);
+      mockFunction(NATIVE.finishFrameSnapshot).mockResolvedValue(finishFrames);
 
       const finishTimestamp = Date.now() / 1000;
       instance.onTransactionFinish(transaction);
@@ -268,7 +473,7 @@ describe("NativeFramesInstrumentation", () => {
               if (event.contexts?.trace?.data) {
                 expect(
                   // eslint-disable-next-line @typescript-eslint/no-explicit-any
-                  (event.contexts.trace.data as any).__startFrames
+                  (event.contexts.trace.data as any).__frameSnapshotId
                 ).toBeUndefined();
               }
             }
@@ -282,16 +487,11 @@ describe("NativeFramesInstrumentation", () => {
     });
   });
 
-  it("Does not set measurements on the transaction event and removes startFrames if finishFrames times out.", (done) => {
+  it("Does not set measurements on the transaction event and removes the frame snapshot id if finishFrames times out.", (done) => {
     jest.useRealTimers();
 
-    const startFrames = {
-      totalFrames: 100,
-      slowFrames: 20,
-      frozenFrames: 5,
-    };
     // eslint-disable-next-line @typescript-eslint/unbound-method
-    mockFunction(NATIVE.fetchNativeFrames).mockResolvedValue(startFrames);
+    mockFunction(NATIVE.startFrameSnapshot).mockResolvedValue(1);
 
     let eventProcessor: EventProcessor;
     const instance = new NativeFramesInstrumentation(
@@ -308,7 +508,7 @@ describe("NativeFramesInstrumentation", () => {
 
     setImmediate(() => {
       // eslint-disable-next-line @typescript-eslint/unbound-method
-      mockFunction(NATIVE.fetchNativeFrames).mockImplementation(
+      mockFunction(NATIVE.finishFrameSnapshot).mockImplementation(
         // eslint-disable-next-line @typescript-eslint/no-empty-function
         async () => new Promise(() => {})
       );
@@ -341,7 +541,7 @@ describe("NativeFramesInstrumentation", () => {
               if (event.contexts?.trace?.data) {
                 expect(
                   // eslint-disable-next-line @typescript-eslint/no-explicit-any
-                  (event.contexts.trace.data as any).__startFrames
+                  (event.contexts.trace.data as any).__frameSnapshotId
                 ).toBeUndefined();
               }
             }
@@ -11,6 +11,7 @@ jest.mock("../../src/js/wrapper", () => {
     NATIVE: {
       fetchNativeAppStart: jest.fn(),
       fetchNativeFrames: jest.fn(() => Promise.resolve()),
+      startFrameSnapshot: jest.fn(() => Promise.resolve(null)),
       disableNativeFramesTracking: jest.fn(() => Promise.resolve()),
       enableNative: true,
     },
@@ -269,6 +270,91 @@ describe("ReactNativeTracing", () => {
         });
       });
 
+      it("Adds the app start phases as child spans of the app start span", (done) => {
+        const routingInstrumentation = new RoutingInstrumentation();
+        const integration = new ReactNativeTracing({
+          routingInstrumentation,
+        });
+
+        const timeOriginMilliseconds = Date.now();
+        const appStartTimeMilliseconds = timeOriginMilliseconds - 100;
+        const mockAppStartResponse: NativeAppStartResponse = {
+          isColdStart: true,
+          appStartTime: appStartTimeMilliseconds,
+          didFetchAppStart: false,
+          phases: [
+            {
+              op: "app.start.process_init",
+              description: "Process Initialization",
+              startTimestampMs: appStartTimeMilliseconds - 50,
+              endTimestampMs: appStartTimeMilliseconds + 10,
+            },
+            {
+              op: "app.start.js_bundle",
+              description: "JS Bundle Load",
+              startTimestampMs: appStartTimeMilliseconds + 20,
+              endTimestampMs: appStartTimeMilliseconds + 60,
+            },
+            {
+              op: "app.start.first_frame",
+              description: "First Frame",
+              startTimestampMs: timeOriginMilliseconds + 10,
+              endTimestampMs: timeOriginMilliseconds + 20,
+            },
+          ],
+        };
+
+        mockFunction(getTimeOriginMilliseconds).mockReturnValue(
+          timeOriginMilliseconds
+        );
+        // eslint-disable-next-line @typescript-eslint/unbound-method
+        mockFunction(NATIVE.fetchNativeAppStart).mockResolvedValue(
+          mockAppStartResponse
+        );
+
+        const mockHub = getMockHub();
+        integration.setupOnce(addGlobalEventProcessor, () => mockHub);
+
+        // use setImmediate as app start is handled inside a promise.
+        setImmediate(() => {
+          const routeTransaction = routingInstrumentation.onRouteWillChange({
+            name: "test",
+          }) as IdleTransaction;
+          routeTransaction.initSpanRecorder(10);
+
+          jest.runOnlyPendingTimers();
+
+          const spans = routeTransaction.spanRecorder?.spans ?? [];
+          // The transaction, the app start span and the phases which overlap it.
+          expect(spans.length).toBe(4);
+
+          const appStartSpan = spans[1];
+          expect(appStartSpan.op).toBe("app.start.cold");
+
+          const [processInit, jsBundle] = spans.slice(2);
+          expect(processInit.op).toBe("app.start.process_init");
+          expect(processInit.description).toBe("Process Initialization");
+          expect(processInit.parentSpanId).toBe(appStartSpan.spanId);
+          expect(processInit.startTimestamp).toBe(
+            appStartTimeMilliseconds / 1000
+          );
+          expect(processInit.endTimestamp).toBe(
+            (appStartTimeMilliseconds + 10) / 1000
+          );
+
+          expect(jsBundle.op).toBe("app.start.js_bundle");
+          expect(jsBundle.parentSpanId).toBe(appStartSpan.spanId);
+          expect(jsBundle.startTimestamp).toBe(
+            (appStartTimeMilliseconds + 20) / 1000
+          );
+          expect(jsBundle.endTimestamp).toBe(
+            (appStartTimeMilliseconds + 60) / 1000
+          );
+
+          done();
+        });
+      });
+
       it("Adds measurements and child span onto existing routing transaction and sets the op (cold)", (done) => {
         const routingInstrumentation = new RoutingInstrumentation();
         const integration = new ReactNativeTracing({
@@ -474,6 +560,8 @@ describe("ReactNativeTracing", () => {
         expect(NATIVE.disableNativeFramesTracking).toBeCalledTimes(1);
         // eslint-disable-next-line @typescript-eslint/unbound-method
         expect(NATIVE.fetchNativeFrames).not.toBeCalled();
+        // eslint-disable-next-line @typescript-eslint/unbound-method
+        expect(NATIVE.startFrameSnapshot).not.toBeCalled();
 
         done();
       });
@@ -1,5 +1,5 @@
 /* eslint-disable @typescript-eslint/unbound-method */
-import { Event, Severity } from "@sentry/types";
+import { Event, Severity, Status } from "@sentry/types";
 import { logger } from "@sentry/utils";
 
 import { SentryNativeBridgeModule } from "../src/js/definitions";
@@ -12,19 +12,28 @@ jest.mock(
     let envelopePayload:
       | string
       | {
-          header: Record<string, unknown>;
-          payload: Record<string, unknown>;
+          header: Record<string, unknown> | string;
+          payload: Record<string, unknown> | string;
         }
       | null = null;
     let initPayload: ReactNativeOptions | null = null;
 
     const RNSentry: SentryNativeBridgeModule = {
       addBreadcrumb: jest.fn(),
+      applyScopeUpdates: jest.fn(),
       captureEnvelope: jest.fn((envelope) => {
         envelopePayload = envelope;
 
         return Promise.resolve(true);
       }),
+      captureSerializedEnvelope: jest.fn((envelope) => {
+        envelopePayload = envelope;
+
+        return Promise.resolve(true);
+      }),
+      captureEnvelopes: jest.fn((envelopes: unknown[]) =>
+        Promise.resolve(envelopes.map(() => true))
+      ),
       clearBreadcrumbs: jest.fn(),
       crash: jest.fn(),
       fetchNativeDeviceContexts: jest.fn(() =>
@@ -41,6 +50,47 @@ jest.mock(
           version: "1.0.0",
         })
       ),
+      fetchNativeOutboxStats: jest.fn(() =>
+        Promise.resolve({
+          envelopeCount: 2,
+          size: 1024,
+          evictedLowPriority: 3,
+          evictedErrors: 0,
+          dropped: {
+            error: { sampledOut: 0, rateLimited: 12 },
+          },
+          duplicates: 4,
+          throttled: 2,
+        })
+      ),
+      fetchNativeStats: jest.fn(() =>
+        Promise.resolve({
+          methods: {
+            captureEnvelopes: {
+              calls: 3,
+              failures: 1,
+              totalTimeMs: 1.5,
+              bytesWritten: 2048,
+              latencyHistogram: { bounds: [10, 25], counts: [0, 3, 0] },
+              latencyP50Us: 25,
+              latencyP95Us: 25,
+              latencyP99Us: 25,
+            },
+          },
+          initPhasesMs: { configure: 0.5, sentryAndroidInit: 12, total: 13 },
+        })
+      ),
+      fetchNativeRecoveredBreadcrumbs: jest.fn(() =>
+        Promise.resolve([
+          {
+            timestamp: 1640000000,
+            level: "info",
+            category: "navigation",
+            message: "Home",
+            data: { from: "Login" },
+          },
+        ])
+      ),
       getStringBytesLength: jest.fn(() => Promise.resolve(1)),
       setContext: jest.fn(),
       setExtra: jest.fn(),
@@ -90,6 +140,7 @@ const callAllScopeMethods = () => {
 beforeEach(() => {
   NATIVE.platform = "ios";
   NATIVE.enableNative = true;
+  NATIVE.envelopeBatchWindowMs = 20;
 });
 
 afterEach(() => {
@@ -269,11 +320,6 @@ describe("Tests Native Wrapper", () => {
         event_id: event.event_id,
         sdk: event.sdk,
       });
-      const itemString = JSON.stringify({
-        content_type: "application/json",
-        length: 1,
-        type: "event",
-      });
       const payloadString = JSON.stringify({
         ...event,
         message: {
@@ -284,11 +330,13 @@ describe("Tests Native Wrapper", () => {
         },
       });
 
-      expect(RNSentry.captureEnvelope).toBeCalledWith(
-        `${headerString}\n${itemString}\n${payloadString}`
-      );
+      expect(RNSentry.captureSerializedEnvelope).toBeCalledWith({
+        header: headerString,
+        payload: payloadString,
+        type: "event",
+      });
     });
-    test("calls getStringByteLength and captureEnvelope on android", async () => {
+    test("calls only captureSerializedEnvelope on android", async () => {
       NATIVE.platform = "android";
 
       const event = {
@@ -310,18 +358,108 @@ describe("Tests Native Wrapper", () => {
         event_id: event.event_id,
         sdk: event.sdk,
       });
-      const item = JSON.stringify({
-        content_type: "application/json",
-        length: 1,
+      await NATIVE.sendEvent(event);
+
+      expect(RNSentry.getStringBytesLength).not.toBeCalled();
+      // @ts-ignore testing method
+      expect(RNSentry._getLastPayload().envelopePayload).toEqual({
+        header,
+        payload,
         type: "event",
       });
+    });
+    test("references the native attachments in events on android", async () => {
+      NATIVE.platform = "android";
+      NATIVE.addAttachment({ path: "/data/app/files/app.log" });
+      NATIVE.addAttachment({
+        path: "content://com.example.provider/state/1",
+        filename: "state.json",
+        contentType: "application/json",
+      });
 
-      await NATIVE.sendEvent(event);
+      await NATIVE.sendEvent({ event_id: "event0", message: "test" });
+      await NATIVE.sendEvent({ event_id: "event1", type: "transaction" });
+      NATIVE.clearAttachments();
+      await NATIVE.sendEvent({ event_id: "event2", message: "test" });
 
-      // @ts-ignore testing method
-      expect(RNSentry._getLastPayload().envelopePayload).toMatch(
-        `${header}\n${item}\n${payload}`
+      const envelopes = (RNSentry.captureSerializedEnvelope as jest.Mock).mock
+        .calls;
+      expect(envelopes[0][0].attachments).toEqual([
+        { path: "/data/app/files/app.log" },
+        {
+          path: "content://com.example.provider/state/1",
+          filename: "state.json",
+          contentType: "application/json",
+        },
+      ]);
+      expect(envelopes[1][0].attachments).toBeUndefined();
+      expect(envelopes[2][0].attachments).toBeUndefined();
+    });
+    test("batches envelopes captured in the same window on android", async () => {
+      NATIVE.platform = "android";
+
+      const results = await Promise.all([
+        NATIVE.sendEvent({ event_id: "event0", message: "first" }),
+        NATIVE.sendEvent({ event_id: "event1", message: "second" }),
+      ]);
+
+      expect(RNSentry.captureSerializedEnvelope).not.toBeCalled();
+      expect(RNSentry.captureEnvelopes).toBeCalledTimes(1);
+      expect(
+        (RNSentry.captureEnvelopes as jest.Mock).mock.calls[0][0]
+      ).toHaveLength(2);
+      expect(results).toEqual([
+        { status: Status.Success },
+        { status: Status.Success },
+      ]);
+    });
+    test("reports failed envelopes of a batch on android", async () => {
+      NATIVE.platform = "android";
+      (RNSentry.captureEnvelopes as jest.Mock).mockImplementationOnce(() =>
+        Promise.resolve([true, false])
       );
+
+      const results = await Promise.all([
+        NATIVE.sendEvent({ event_id: "event0", message: "first" }),
+        NATIVE.sendEvent({ event_id: "event1", message: "second" }),
+      ]);
+
+      expect(results).toEqual([
+        { status: Status.Success },
+        { status: Status.Failed },
+      ]);
+    });
+    test("flushes pending envelopes right away for unhandled errors on android", async () => {
+      NATIVE.platform = "android";
+      // Would time out the test if the batch was not flushed by the unhandled error.
+      NATIVE.envelopeBatchWindowMs = 60000;
+
+      await Promise.all([
+        NATIVE.sendEvent({ event_id: "event0", message: "first" }),
+        NATIVE.sendEvent({
+          event_id: "event1",
+          exception: {
+            values: [{ mechanism: { handled: false, type: "" } }],
+          },
+        }),
+      ]);
+
+      expect(RNSentry.captureEnvelopes).toBeCalledTimes(1);
+      expect(
+        (RNSentry.captureEnvelopes as jest.Mock).mock.calls[0][0]
+      ).toHaveLength(2);
+    });
+    test("does not batch envelopes if envelopeBatchWindowMs is 0", async () => {
+      NATIVE.platform = "android";
+      NATIVE.envelopeBatchWindowMs = 0;
+
+      await Promise.all([
+        NATIVE.sendEvent({ event_id: "event0", message: "first" }),
+        NATIVE.sendEvent({ event_id: "event1", message: "second" }),
+      ]);
+
+      expect(RNSentry.captureSerializedEnvelope).toBeCalledTimes(2);
+      expect(RNSentry.captureEnvelopes).not.toBeCalled();
     });
     test("does not call RNSentry at all if enableNative is false", async () => {
       try {
@@ -332,6 +470,7 @@ describe("Tests Native Wrapper", () => {
       }
       expect(RNSentry.getStringBytesLength).not.toBeCalled();
       expect(RNSentry.captureEnvelope).not.toBeCalled();
+      expect(RNSentry.captureSerializedEnvelope).not.toBeCalled();
     });
     test("Clears breadcrumbs on Android if mechanism.handled is true", async () => {
       NATIVE.platform = "android";
@@ -367,18 +506,15 @@ describe("Tests Native Wrapper", () => {
         event_id: event.event_id,
         sdk: event.sdk,
       });
-      const item = JSON.stringify({
-        content_type: "application/json",
-        length: 1,
-        type: "event",
-      });
-
       await NATIVE.sendEvent(event);
 
+      expect(RNSentry.getStringBytesLength).not.toBeCalled();
       // @ts-ignore testing method
-      expect(RNSentry._getLastPayload().envelopePayload).toMatch(
-        `${header}\n${item}\n${payload}`
-      );
+      expect(RNSentry._getLastPayload().envelopePayload).toEqual({
+        header,
+        payload,
+        type: "event",
+      });
     });
     test("Does not clear breadcrumbs on Android if mechanism.handled is false", async () => {
       NATIVE.platform = "android";
@@ -413,18 +549,16 @@ describe("Tests Native Wrapper", () => {
         event_id: event.event_id,
         sdk: event.sdk,
       });
-      const item = JSON.stringify({
-        content_type: "application/json",
-        length: 1,
-        type: "event",
-      });
-
       await NATIVE.sendEvent(event);
 
+      expect(RNSentry.getStringBytesLength).not.toBeCalled();
       // @ts-ignore testing method
-      expect(RNSentry._getLastPayload().envelopePayload).toMatch(
-        `${header}\n${item}\n${payload}`
-      );
+      expect(RNSentry._getLastPayload().envelopePayload).toEqual({
+        header,
+        payload,
+        type: "event",
+        durable: true,
+      });
     });
   });
 
@@ -461,6 +595,82 @@ describe("Tests Native Wrapper", () => {
     });
   });
 
+  describe("fetchNativeOutboxStats", () => {
+    test("returns outbox stats from native module on android", async () => {
+      NATIVE.platform = "android";
+
+      await expect(NATIVE.fetchNativeOutboxStats()).resolves.toEqual({
+        envelopeCount: 2,
+        size: 1024,
+        evictedLowPriority: 3,
+        evictedErrors: 0,
+        dropped: {
+          error: { sampledOut: 0, rateLimited: 12 },
+        },
+        duplicates: 4,
+        throttled: 2,
+      });
+
+      expect(RNSentry.fetchNativeOutboxStats).toBeCalled();
+    });
+    test("returns null on ios", async () => {
+      NATIVE.platform = "ios";
+
+      await expect(NATIVE.fetchNativeOutboxStats()).resolves.toBeNull();
+
+      expect(RNSentry.fetchNativeOutboxStats).not.toBeCalled();
+    });
+  });
+
+  describe("fetchNativeStats", () => {
+    test("returns bridge method stats from native module on android", async () => {
+      NATIVE.platform = "android";
+
+      const stats = await NATIVE.fetchNativeStats();
+
+      expect(stats?.methods.captureEnvelopes).toMatchObject({
+        calls: 3,
+        failures: 1,
+        bytesWritten: 2048,
+        latencyP95Us: 25,
+      });
+      expect(stats?.initPhasesMs.total).toBe(13);
+      expect(RNSentry.fetchNativeStats).toBeCalled();
+    });
+    test("returns null on ios", async () => {
+      NATIVE.platform = "ios";
+
+      await expect(NATIVE.fetchNativeStats()).resolves.toBeNull();
+
+      expect(RNSentry.fetchNativeStats).not.toBeCalled();
+    });
+  });
+
+  describe("fetchNativeRecoveredBreadcrumbs", () => {
+    test("returns the recovered breadcrumbs from native module on android", async () => {
+      NATIVE.platform = "android";
+
+      await expect(NATIVE.fetchNativeRecoveredBreadcrumbs()).resolves.toEqual([
+        {
+          timestamp: 1640000000,
+          level: "info",
+          category: "navigation",
+          message: "Home",
+          data: { from: "Login" },
+        },
+      ]);
+
+      expect(RNSentry.fetchNativeRecoveredBreadcrumbs).toBeCalled();
+    });
+    test("returns an empty array on ios", async () => {
+      NATIVE.platform = "ios";
+
+      await expect(NATIVE.fetchNativeRecoveredBreadcrumbs()).resolves.toEqual([]);
+
+      expect(RNSentry.fetchNativeRecoveredBreadcrumbs).not.toBeCalled();
+    });
+  });
+
   describe("isModuleLoaded", () => {
     test("returns true when module is loaded", () => {
       expect(NATIVE._isModuleLoaded(RNSentry)).toBe(true);
@@ -481,8 +691,22 @@ describe("Tests Native Wrapper", () => {
     });
   });
 
+  describe("addBreadcrumb", () => {
+    test("keeps the types of data values", () => {
+      NATIVE.addBreadcrumb({
+        message: "test",
+        data: { count: 2, ok: true, nested: { a: [1, "b"] } },
+      });
+
+      expect(RNSentry.addBreadcrumb).toBeCalledWith({
+        message: "test",
+        data: { count: 2, ok: true, nested: { a: [1, "b"] } },
+      });
+    });
+  });
+
   describe("setUser", () => {
-    test("serializes all user object keys", async () => {
+    test("serializes default user keys and keeps the types of other keys", async () => {
       NATIVE.setUser({
         email: "hello@sentry.io",
         // @ts-ignore Intentional incorrect type to simulate using a double as an id (We had a user open an issue because this didn't work before)
@@ -496,7 +720,23 @@ describe("Tests Native Wrapper", () => {
           id: "3.14159265359",
         },
         {
-          unique: "123",
+          unique: 123,
+        }
+      );
+    });
+
+    test("normalizes nested other user keys", async () => {
+      NATIVE.setUser({
+        id: "Hello",
+        subscription: { plan: "pro", seats: 3, trial: false },
+      });
+
+      expect(RNSentry.setUser).toBeCalledWith(
+        {
+          id: "Hello",
+        },
+        {
+          subscription: { plan: "pro", seats: 3, trial: false },
         }
       );
     });
@@ -515,6 +755,66 @@ describe("Tests Native Wrapper", () => {
     });
   });
 
+  describe("applyScopeUpdates", () => {
+    test("serializes each update as its own bridge method would", () => {
+      NATIVE.applyScopeUpdates([
+        { op: "clearBreadcrumbs" },
+        {
+          op: "addBreadcrumb",
+          breadcrumb: {
+            message: "test",
+            level: Severity.Log,
+            data: { a: 1 },
+          },
+        },
+        { op: "setUser", user: { id: "Hello", unique: 123 } },
+        { op: "setUser", user: null },
+        { op: "setTag", key: "tag", value: "value" },
+        { op: "setExtra", key: "extra", value: { a: 1 } },
+        { op: "setContext", key: "context", context: { a: 1 } },
+      ]);
+
+      expect(RNSentry.applyScopeUpdates).toBeCalledWith([
+        { op: "clearBreadcrumbs" },
+        {
+          op: "addBreadcrumb",
+          breadcrumb: {
+            message: "test",
+            level: Severity.Debug,
+            data: { a: 1 },
+          },
+        },
+        {
+          op: "setUser",
+          user: { id: "Hello" },
+          otherUserKeys: { unique: 123 },
+        },
+        { op: "setUser", user: null, otherUserKeys: null },
+        { op: "setTag", key: "tag", value: "value" },
+        { op: "setExtra", key: "extra", value: '{"a":1}' },
+        { op: "setContext", key: "context", context: { a: "1" } },
+      ]);
+    });
+
+    test("sets contexts as extras on android", () => {
+      NATIVE.platform = "android";
+
+      NATIVE.applyScopeUpdates([
+        { op: "setContext", key: "context", context: { a: 1 } },
+      ]);
+
+      expect(RNSentry.applyScopeUpdates).toBeCalledWith([
+        { op: "setExtra", key: "context", value: '{"a":1}' },
+      ]);
+    });
+
+    test("does not call native with no updates", () => {
+      NATIVE.applyScopeUpdates([]);
+
+      expect(RNSentry.applyScopeUpdates).not.toBeCalled();
+    });
+  });
+
   describe("_processLevel", () => {
     test("converts deprecated levels", () => {
       expect(NATIVE._processLevel(Severity.Log)).toBe(Severity.Debug);